@@ -37,6 +37,9 @@ public class AdminBoundaryContext {
   private final Map<String, Map<String, String>> countyRefMap;
   private final Set<String> whereClauses;
   private final Map<String, Set<String>> nameCodesMap;
+  private final MentionIndex countryMentionIndex;
+  private final MentionIndex provMentionIndex;
+  private final MentionIndex countyMentionIndex;
 
   public AdminBoundaryContext(Map<String, Set<Integer>> countryMentions,
       Map<String, Set<Integer>> provMentions,
@@ -62,6 +65,9 @@ public class AdminBoundaryContext {
     this.countryRegexMap = countryRegexMap;
     this.provinceRegexMap = provinceRegexMap;
     this.countyRegexMap = countyRegexMap;
+    this.countryMentionIndex = MentionIndex.of(countryMentions);
+    this.provMentionIndex = MentionIndex.of(provMentions);
+    this.countyMentionIndex = MentionIndex.of(countyMentions);
   }
 
   public Map<String, Set<String>> getNameCodesMap() {
@@ -80,6 +86,27 @@ public class AdminBoundaryContext {
     return countyMentions;
   }
 
+  /**
+   * @return the country mentions as an index that the scorers share
+   */
+  public MentionIndex getCountryMentionIndex() {
+    return countryMentionIndex;
+  }
+
+  /**
+   * @return the province mentions as an index that the scorers share
+   */
+  public MentionIndex getProvMentionIndex() {
+    return provMentionIndex;
+  }
+
+  /**
+   * @return the county mentions as an index that the scorers share
+   */
+  public MentionIndex getCountyMentionIndex() {
+    return countyMentionIndex;
+  }
+
   public Set<String> getCountryHits() {
     return countryHits;
   }
@@ -21,14 +21,13 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,32 +37,43 @@ import opennlp.tools.entitylinker.EntityLinkerProperties;
 /**
  * Finds instances of country mentions in a String, typically a document text.
  * Used to boost or degrade scoring of linked geo entities
+ * <p>
+ * The lookup tables are loaded once and never change afterwards, and the
+ * mentions of each document are collected in their own {@link AdminBoundaryContext},
+ * so one instance can serve any number of threads at once.
  */
 public class AdminBoundaryContextGenerator {
 
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private List<CountryContextEntry> countrydata;
-  private Map<String, Set<String>> nameCodesMap = new HashMap<>();
-  private final Map<String, Set<Integer>> countryMentions = new HashMap<>();
 
   private final Map<String, String> countryRegexMap = new HashMap<>();
   private final Map<String, String> provinceRegexMap = new HashMap<>();
-  private Map<String, String> countyRegexMap = new HashMap<>();
+  private final Map<String, String> countyRegexMap = new HashMap<>();
 
-  private final Set<CountryContextEntry> countryHits = new HashSet<>();
   private final List<AdminBoundary> adminBoundaryData= new ArrayList<>();
-  private final Set<AdminBoundary> adminBoundaryHits = new HashSet<>();
 
-  private final Set<String> countryHitSet = new HashSet<>();
   private final Map<String, String> countryMap = new HashMap<>();
   private final Map<String, Map<String, String>> provMap = new HashMap<>();
   private final Map<String, Map<String, String>> countyMap = new HashMap<>();
 
-  private Map<String, Set<Integer>> provMentions = new HashMap<>();
-  private Map<String, Set<Integer>> countyMentions = new HashMap<>();
+  /*
+   * read-only views of the lookup tables, shared by all contexts
+   */
+  private final Map<String, Map<String, String>> provRefMap;
+  private final Map<String, Map<String, String>> countyRefMap;
+  private final Map<String, String> countryRegexRefMap;
+  private final Map<String, String> provinceRegexRefMap;
+  private final Map<String, String> countyRegexRefMap;
+
+  /*
+   * the mention patterns of each location type by entry code, all literal
+   * names are found in one pass of the automaton
+   */
+  private final Map<String, Map<String, MentionPattern>> mentionPatterns = new HashMap<>();
+  private final MentionAutomaton automaton;
 
-  private final Set<String> provHits = new HashSet<>();
-  private final Set<String> countyHits = new HashSet<>();
+  private volatile AdminBoundaryContext lastContext;
 
   public static void main(String[] args) {
     try {
@@ -80,9 +90,17 @@ public class AdminBoundaryContextGenerator {
     }
   }
 
+  /**
+   * Finds the admin boundaries mentioned in a document. May be called from
+   * several threads at once.
+   *
+   * @param text the full text of the document
+   * @return the mentions found in the text
+   */
   public AdminBoundaryContext getContext(String text) {
-    nameCodesMap.clear();
-    return process(text);
+    AdminBoundaryContext context = process(text);
+    lastContext = context;
+    return context;
   }
 
   public AdminBoundaryContextGenerator(EntityLinkerProperties properties) throws IOException {
@@ -103,40 +121,58 @@ public class AdminBoundaryContextGenerator {
         throw new IOException("missing country context data");
       }
     }
+    provRefMap = unmodifiableTable(provMap);
+    countyRefMap = unmodifiableTable(countyMap);
+    countryRegexRefMap = Collections.unmodifiableMap(countryRegexMap);
+    provinceRegexRefMap = Collections.unmodifiableMap(provinceRegexMap);
+    countyRegexRefMap = Collections.unmodifiableMap(countyRegexMap);
+    automaton = buildMentionPatterns();
+  }
+
+  private static Map<String, Map<String, String>> unmodifiableTable(Map<String, Map<String, String>> table) {
+    Map<String, Map<String, String>> view = new HashMap<>();
+    table.forEach((code, names) -> view.put(code, Collections.unmodifiableMap(names)));
+    return Collections.unmodifiableMap(view);
   }
 
+  /**
+   * @return always empty
+   * @deprecated The mentions of a document are only in the context that
+   *             {@link #getContext(String)} returns, use
+   *             {@link AdminBoundaryContext#getCountryMentions()}.
+   */
+  @Deprecated
   public Map<String, Set<Integer>> getCountryMentions() {
-    return countryMentions;
+    return Collections.emptyMap();
   }
 
   /**
-   * @return returns the last set of hits after calling regexFind
+   * @return always empty
+   * @deprecated Use {@link AdminBoundaryContext#getCountryHits()} of the
+   *             context that {@link #getContext(String)} returns.
    */
+  @Deprecated
   public Set<CountryContextEntry> getCountryHits() {
-    return countryHits;
+    return Collections.emptySet();
   }
 
   /**
-   * @return returns the last name to codes map after calling regexFind
+   * @return returns the name to codes map of the last call of {@link #getContext(String)} by any thread
+   * @deprecated Use {@link AdminBoundaryContext#getNameCodesMap()} of the
+   *             context that {@link #getContext(String)} returns.
    */
+  @Deprecated
   public Map<String, Set<String>> getNameCodesMap() {
-    return nameCodesMap;
+    AdminBoundaryContext context = lastContext;
+    return context != null ? context.getNameCodesMap() : Collections.emptyMap();
   }
 
+  /**
+   * @deprecated Has no effect, every call of {@link #getContext(String)}
+   *             fills a new map.
+   */
+  @Deprecated
   public void setNameCodesMap(Map<String, Set<String>> nameCodesMap) {
-    this.nameCodesMap = nameCodesMap;
-  }
-
-  private void reset() {
-    this.nameCodesMap.clear();
-    this.countryHitSet.clear();
-    this.countryHits.clear();
-    this.countryMentions.clear();
-    this.provHits.clear();
-    this.provMentions.clear();
-    this.countyHits.clear();
-    this.countyMentions.clear();
-    this.adminBoundaryHits.clear();
   }
 
   /**
@@ -148,19 +184,20 @@ public class AdminBoundaryContextGenerator {
    */
   private AdminBoundaryContext process(String text) {
     try {
-      reset();
-      Map<String, Set<Integer>> countryhitMap = regexfind(text, countryMap, countryHitSet, "country");
+      Mentions found = new Mentions();
+      MentionAutomaton.Occurrences occurrences = automaton.scan(text);
+      Map<String, Set<Integer>> countryhitMap = regexfind(text, occurrences, countryMap, found.countryHitSet, "country", found);
+      Map<String, Set<Integer>> provMentions = new HashMap<>();
+      Map<String, Set<Integer>> countyMentions = new HashMap<>();
       if (!countryhitMap.isEmpty()) {
         for (String cc : countryhitMap.keySet()) {
           Map<String, String> provsForCc = provMap.get(cc);
           if (provsForCc != null) {
-            provMentions.putAll(regexfind(text, provsForCc, provHits, "province"));
-            if (provMentions != null) {
-              for (String prov : provMentions.keySet()) {
-                Map<String, String> get = countyMap.get(prov);
-                if (get != null) {
-                  countyMentions.putAll(regexfind(text, get, countyHits, "province"));
-                }
+            provMentions.putAll(regexfind(text, occurrences, provsForCc, found.provHits, "province", found));
+            for (String prov : provMentions.keySet()) {
+              Map<String, String> get = countyMap.get(prov);
+              if (get != null) {
+                countyMentions.putAll(regexfind(text, occurrences, get, found.countyHits, "province", found));
               }
             }
           }
@@ -168,21 +205,19 @@ public class AdminBoundaryContextGenerator {
       } else {
         for (Map<String, String> provsForCc : provMap.values()) {
           if (provsForCc != null) {
-            provMentions = regexfind(text, provsForCc, provHits, "province");
-            if (provMentions != null) {
-              for (String prov : provMentions.keySet()) {
-                //fake a country hit based on a province hit... this gets fuzzy
-                String cc = prov.split("\\.")[0];
-                if (!countryhitMap.containsKey(cc)) {
-                  countryhitMap.put(cc, provMentions.get(prov));
-                  countryHitSet.add(cc);
-                } else {
-                  countryhitMap.get(cc).addAll(provMentions.get(prov));
-                }
-                Map<String, String> get = countyMap.get(prov);
-                if (get != null) {
-                  countyMentions = regexfind(text, get, countyHits, "oounty");
-                }
+            provMentions = regexfind(text, occurrences, provsForCc, found.provHits, "province", found);
+            for (String prov : provMentions.keySet()) {
+              //fake a country hit based on a province hit... this gets fuzzy
+              String cc = prov.split("\\.")[0];
+              if (!countryhitMap.containsKey(cc)) {
+                countryhitMap.put(cc, provMentions.get(prov));
+                found.countryHitSet.add(cc);
+              } else {
+                countryhitMap.get(cc).addAll(provMentions.get(prov));
+              }
+              Map<String, String> get = countyMap.get(prov);
+              if (get != null) {
+                countyMentions = regexfind(text, occurrences, get, found.countyHits, "oounty", found);
               }
             }
           }
@@ -191,92 +226,71 @@ public class AdminBoundaryContextGenerator {
 
       Map<String, String> countryRefMap = new HashMap<>();
 
-      for (String c : countryHitSet) {
+      for (String c : found.countryHitSet) {
         String countryName = countryMap.get(c);
         if (countryName != null) {
           countryRefMap.put(c, countryName);
         }
       }
 
-      return new AdminBoundaryContext(countryhitMap, provMentions, countyMentions, countryHitSet, provHits, countyHits,
-              countryRefMap, provMap, countyMap, nameCodesMap, countryRegexMap, provinceRegexMap, countyRegexMap);
+      return new AdminBoundaryContext(countryhitMap, provMentions, countyMentions, found.countryHitSet,
+              found.provHits, found.countyHits, countryRefMap, provRefMap, countyRefMap, found.nameCodesMap,
+              countryRegexRefMap, provinceRegexRefMap, countyRegexRefMap);
     } catch (Exception e) {
       LOG.error(e.getLocalizedMessage(), e);
     }
     return null;
   }
 
+  /**
+   * The hits of one document.
+   */
+  private static final class Mentions {
+    private final Map<String, Set<String>> nameCodesMap = new HashMap<>();
+    private final Set<String> countryHitSet = new HashSet<>();
+    private final Set<String> provHits = new HashSet<>();
+    private final Set<String> countyHits = new HashSet<>();
+  }
+
   /**
    * discovers indicators of admin boundary data using regex.
    *
    * @param docText the full text
+   * @param occurrences the literal names found in the full text
    * @param lookupMap a map to use to find names. the key=a location code, the
    * value is an actual name.
    * @param hitsRef a reference to a set that stores the hits by id
+   * @param found the hits of the document, receives the names of the hits
    */
-  private Map<String, Set<Integer>> regexfind(String docText, Map<String, String> lookupMap, Set<String> hitsRef, String locationType) {
+  private Map<String, Set<Integer>> regexfind(String docText, MentionAutomaton.Occurrences occurrences,
+                                              Map<String, String> lookupMap, Set<String> hitsRef,
+                                              String locationType, Mentions found) {
     Map<String, Set<Integer>> mentions = new HashMap<>();
     if (lookupMap == null) {
       return mentions;
     }
     try {
-
+      Map<String, MentionPattern> patterns = mentionPatterns.getOrDefault(locationType, Map.of());
       for (String entry : lookupMap.keySet()) {
-
-        String name = lookupMap.get(entry).toLowerCase();
-        if (name == null) {
-          continue;
-        }
-        switch (locationType) {
-          case "country":
-            if (this.countryRegexMap.containsKey(entry)) {
-              name = countryRegexMap.get(entry);
-            }
-            break;
-
-          case "province":
-            if (this.provinceRegexMap.containsKey(entry)) {
-              name = provinceRegexMap.get(entry);
-            }
-            break;
-          case "county":
-            if (this.countyRegexMap.containsKey(entry)) {
-              name = countyRegexMap.get(entry);
-            }
-            break;
+        MentionPattern pattern = patterns.get(entry);
+        if (pattern == null) {
+          pattern = new MentionPattern(mentionName(entry, lookupMap.get(entry), locationType), null, null);
         }
-        name = "(^|[^\\p{L}\\p{Nd}])" + name.replace(", the", "") + "([^\\p{L}\\p{Nd}]|$)";
-        Pattern regex = Pattern.compile(name, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-        Matcher rs = regex.matcher(docText);
         String code = entry.toLowerCase();
         code = code.trim().replace("ï»¿", "");
-        boolean found = false;
-        while (rs.find()) {
-          found = true;
-          Integer start = rs.start();
-          String hit = rs.group().toLowerCase().trim();
+        String finalCode = code;
+        boolean[] matched = {false};
+        pattern.find(docText, occurrences, (start, end) -> {
+          matched[0] = true;
+          String hit = docText.substring(start, end).toLowerCase().trim();
           hit = hit.replaceAll("\\.|,|;|\\?|!|\\\\|/|\"|'|=|-|&", "");
-          if (mentions.containsKey(code)) {
-            mentions.get(code).add(start);
-          } else {
-            Set<Integer> newset = new HashSet<>();
-            newset.add(start);
-            mentions.put(code, newset);
-          }
+          mentions.computeIfAbsent(finalCode, k -> new HashSet<>()).add(start);
           if (!hit.isEmpty()) {
-            if (this.nameCodesMap.containsKey(hit)) {
-              nameCodesMap.get(hit).add(code);
-            } else {
-              HashSet<String> newset = new HashSet<>();
-              newset.add(code);
-              nameCodesMap.put(hit, newset);
-            }
+            found.nameCodesMap.computeIfAbsent(hit, k -> new HashSet<>()).add(finalCode);
           }
-
-        }
-        if (found) {
+        });
+        if (matched[0]) {
           hitsRef.add(code);
-
         }
       }
 
@@ -287,6 +301,62 @@ public class AdminBoundaryContextGenerator {
     return mentions;
   }
 
+  /**
+   * @return the name or regex that is searched for an entry of a lookup map
+   */
+  private String mentionName(String entry, String lookupName, String locationType) {
+    String name = lookupName.toLowerCase();
+    switch (locationType) {
+      case "country":
+        if (this.countryRegexMap.containsKey(entry)) {
+          name = countryRegexMap.get(entry);
+        }
+        break;
+
+      case "province":
+        if (this.provinceRegexMap.containsKey(entry)) {
+          name = provinceRegexMap.get(entry);
+        }
+        break;
+      case "county":
+        if (this.countyRegexMap.containsKey(entry)) {
+          name = countyRegexMap.get(entry);
+        }
+        break;
+    }
+    return name.replace(", the", "");
+  }
+
+  /**
+   * Prepares the patterns of all names in the lookup maps and builds the
+   * automaton over the literal ones. Counties are looked up as provinces when a
+   * country was found and by name otherwise, so both are prepared.
+   */
+  private MentionAutomaton buildMentionPatterns() {
+    MentionAutomaton.Builder builder = new MentionAutomaton.Builder();
+    Map<String, MentionPattern> byName = new HashMap<>();
+    addMentionPatterns(builder, byName, "country", countryMap);
+    for (Map<String, String> provs : provMap.values()) {
+      addMentionPatterns(builder, byName, "province", provs);
+    }
+    for (Map<String, String> counties : countyMap.values()) {
+      addMentionPatterns(builder, byName, "province", counties);
+      addMentionPatterns(builder, byName, "oounty", counties);
+    }
+    return builder.build();
+  }
+
+  private void addMentionPatterns(MentionAutomaton.Builder builder, Map<String, MentionPattern> byName,
+                                  String locationType, Map<String, String> lookupMap) {
+    Map<String, MentionPattern> patterns = mentionPatterns.computeIfAbsent(locationType, k -> new HashMap<>());
+    for (Map.Entry<String, String> entry : lookupMap.entrySet()) {
+      if (entry.getValue() != null) {
+        String name = mentionName(entry.getKey(), entry.getValue(), locationType);
+        patterns.put(entry.getKey(), byName.computeIfAbsent(name, builder::add));
+      }
+    }
+  }
+
   private void getContextFromFile(File countryContextFile) {
     if (this.adminBoundaryData != null && !this.adminBoundaryData.isEmpty()) {
       return;
@@ -390,7 +460,6 @@ public class AdminBoundaryContextGenerator {
   }
 
   private void fillCountyRegexMap() {
-    this.countyRegexMap = new HashMap<>();
     // this.adminBoundaryData
     for (AdminBoundary adm : adminBoundaryData) {
 
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A size bounded {@link GazetteerSearchCache} with an optional time to live.
+ * <p>
+ * Lookups are lock-free: they read from a {@link ConcurrentHashMap} and only
+ * mark the entry as recently used. Eviction follows the CLOCK (second chance)
+ * approximation of LRU: once the cache holds more than {@code capacity}
+ * entries, the writer that noticed it walks the clock queue, clears the
+ * reference bit of recently used entries and drops the first entry that has
+ * not been used since the last pass. In contrast to clearing the whole cache,
+ * frequently used query results survive, and the work per write is constant
+ * on average.
+ *
+ * @param <V> The type of the cached query results.
+ */
+public class BoundedGazetteerSearchCache<V> implements GazetteerSearchCache<V> {
+
+  private final ConcurrentHashMap<String, Node<V>> map;
+  private final ConcurrentLinkedQueue<Node<V>> clock = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger clockSize = new AtomicInteger();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  private final int capacity;
+  private final long ttlNanos;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * @param capacity The maximum number of cached queries. A value of {@code 0} or less disables caching.
+   * @param ttl The time to live of an entry after it was written, in {@code unit}.
+   *            A value of {@code 0} or less means entries never expire.
+   * @param unit The {@link TimeUnit} of {@code ttl}.
+   */
+  public BoundedGazetteerSearchCache(int capacity, long ttl, TimeUnit unit) {
+    this.capacity = capacity;
+    this.ttlNanos = ttl > 0 ? unit.toNanos(ttl) : 0;
+    this.map = new ConcurrentHashMap<>(Math.max(16, Math.min(capacity, 1 << 16)));
+  }
+
+  @Override
+  public V get(String key) {
+    Node<V> node = map.get(key);
+    if (node == null) {
+      misses.increment();
+      return null;
+    }
+    if (isExpired(node, System.nanoTime())) {
+      if (map.remove(key, node)) {
+        evictions.increment();
+      }
+      misses.increment();
+      return null;
+    }
+    if (!node.referenced) {
+      node.referenced = true;
+    }
+    hits.increment();
+    return node.value;
+  }
+
+  @Override
+  public void put(String key, V value) {
+    if (capacity <= 0) {
+      return;
+    }
+    Node<V> node = new Node<>(key, value, System.nanoTime());
+    map.put(key, node);
+    clock.offer(node);
+    clockSize.incrementAndGet();
+    if (map.size() > capacity || clockSize.get() > 2 * capacity) {
+      evict();
+    }
+  }
+
+  /**
+   * Advances the clock until the cache is within its bounds again. Nodes that
+   * were replaced or expired in the meantime are dropped from the clock on the
+   * way. Only one writer evicts at a time, the others return right away and may
+   * leave the cache slightly above its capacity for a short moment.
+   */
+  private void evict() {
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      long now = System.nanoTime();
+      // two revolutions are enough, the first one clears all reference bits
+      int budget = 2 * clockSize.get();
+      while (budget-- > 0 && (map.size() > capacity || clockSize.get() > 2 * capacity)) {
+        Node<V> node = clock.poll();
+        if (node == null) {
+          break;
+        }
+        clockSize.decrementAndGet();
+        if (map.get(node.key) != node) {
+          // replaced by a newer put or already removed
+          continue;
+        }
+        if (map.size() > capacity && (!node.referenced || isExpired(node, now))) {
+          if (map.remove(node.key, node)) {
+            evictions.increment();
+          }
+          continue;
+        }
+        node.referenced = false;
+        clock.offer(node);
+        clockSize.incrementAndGet();
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private boolean isExpired(Node<V> node, long now) {
+    return ttlNanos > 0 && now - node.writeTime > ttlNanos;
+  }
+
+  @Override
+  public void invalidateAll() {
+    evictionLock.lock();
+    try {
+      map.clear();
+      clock.clear();
+      clockSize.set(0);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  /**
+   * @return Retrieves the maximum number of cached queries.
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  @Override
+  public Stats stats() {
+    return new Stats(hits.sum(), misses.sum(), evictions.sum());
+  }
+
+  @Override
+  public String toString() {
+    return "BoundedGazetteerSearchCache{" + "capacity=" + capacity + ", size=" + size() + ", " + stats() + '}';
+  }
+
+  private static final class Node<V> {
+
+    final String key;
+    final V value;
+    final long writeTime;
+    volatile boolean referenced;
+
+    Node(String key, V value, long writeTime) {
+      this.key = key;
+      this.value = value;
+      this.writeTime = writeTime;
+    }
+  }
+}
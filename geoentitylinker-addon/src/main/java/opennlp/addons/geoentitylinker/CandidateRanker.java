@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import opennlp.addons.geoentitylinker.scoring.ScoreRegistry;
+import opennlp.addons.geoentitylinker.scoring.SlotScoreMap;
+import opennlp.tools.entitylinker.BaseLink;
+import opennlp.tools.entitylinker.EntityLinkerProperties;
+
+/**
+ * Ranks the entries of a span by the weighted sum of their scores and keeps the
+ * best {@code topN}. The total of each entry is computed once, and the best
+ * entries are selected with a heap of {@code topN} entries instead of sorting
+ * all of them, so ranking n entries takes O(n log topN).
+ * <p>
+ * The weight of a score is configured with
+ * {@code opennlp.geoentitylinker.score.weight.<key>}, e.g.
+ * {@code opennlp.geoentitylinker.score.weight.typescore=2}. Without it, the
+ * scores {@code typescore, countrycontext, placenamedicecoef, provincecontext,
+ * geohashbin, normlucene} and {@code spatialdensity}, which is only scored when
+ * the {@link opennlp.addons.geoentitylinker.scoring.SpatialDensityScorer} is
+ * configured, have a weight of 1 and all others 0. The weights are read for
+ * every key in the {@link ScoreRegistry}, and again whenever keys were added
+ * since, e.g. by a custom scorer on its first score, so the scores of custom
+ * scorers are weighted as well.
+ */
+final class CandidateRanker {
+
+  static final String WEIGHT_PREFIX = "opennlp.geoentitylinker.score.weight.";
+
+  private static final Set<Integer> DEFAULT_SLOTS = Set.of(ScoreRegistry.TYPESCORE, ScoreRegistry.COUNTRYCONTEXT,
+      ScoreRegistry.PLACENAMEDICECOEF, ScoreRegistry.PROVINCECONTEXT, ScoreRegistry.GEOHASHBIN,
+      ScoreRegistry.NORMLUCENE, ScoreRegistry.SPATIALDENSITY);
+
+  private final EntityLinkerProperties properties;
+  private volatile Weights weights = new Weights(0, new int[0], new double[0]);
+
+  /**
+   * Creates a ranker with the weights of the properties.
+   *
+   * @param properties the entitylinker properties
+   * @throws IOException Thrown if the properties cannot be read.
+   */
+  CandidateRanker(EntityLinkerProperties properties) throws IOException {
+    this.properties = properties;
+    try {
+      weights();
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  /**
+   * @return the weights of all registered keys, read again if keys were registered since
+   */
+  private Weights weights() {
+    Weights current = weights;
+    return current.registered() == ScoreRegistry.size() ? current : loadWeights();
+  }
+
+  private synchronized Weights loadWeights() {
+    int registered = ScoreRegistry.size();
+    if (weights.registered() == registered) {
+      return weights;
+    }
+    List<Integer> weighted = new ArrayList<>();
+    List<Double> values = new ArrayList<>();
+    try {
+      for (int slot = 0; slot < registered; slot++) {
+        String defaultWeight = DEFAULT_SLOTS.contains(slot) ? "1" : "0";
+        double weight = Double.parseDouble(
+            properties.getProperty(WEIGHT_PREFIX + ScoreRegistry.key(slot), defaultWeight));
+        if (weight != 0d) {
+          weighted.add(slot);
+          values.add(weight);
+        }
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    weights = new Weights(registered, weighted.stream().mapToInt(Integer::intValue).toArray(),
+        values.stream().mapToDouble(Double::doubleValue).toArray());
+    return weights;
+  }
+
+  /**
+   * @param link a scored entry
+   * @return the weighted sum of the scores of the entry, missing scores count as 0
+   */
+  double total(BaseLink link) {
+    return total(link, weights());
+  }
+
+  private static double total(BaseLink link, Weights weights) {
+    int[] slots = weights.slots();
+    double[] values = weights.values();
+    double total = 0d;
+    if (link.getScoreMap() instanceof SlotScoreMap scores) {
+      for (int i = 0; i < slots.length; i++) {
+        total += values[i] * scores.get(slots[i], 0d);
+      }
+    } else {
+      for (int i = 0; i < slots.length; i++) {
+        total += values[i] * ScoreRegistry.get(link, slots[i], 0d);
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Reduces the entries to the best {@code topN}, with the highest total first.
+   * Entries with the same total keep their order.
+   *
+   * @param entries the entries of a span, changed in place
+   * @param topN the number of entries to keep
+   */
+  <T extends BaseLink> void rank(List<T> entries, int topN) {
+    int n = entries.size();
+    int k = Math.max(0, Math.min(topN, n));
+    Weights current = weights();
+    double[] totals = new double[n];
+    for (int i = 0; i < n; i++) {
+      totals[i] = total(entries.get(i), current);
+    }
+    /*
+     * a min heap of the best k entries so far, the worst of them on top
+     */
+    int[] heap = new int[k];
+    int size = 0;
+    for (int i = 0; i < n && k > 0; i++) {
+      if (size < k) {
+        heap[size] = i;
+        siftUp(heap, size++, totals);
+      } else if (better(i, heap[0], totals)) {
+        heap[0] = i;
+        siftDown(heap, size, totals);
+      }
+    }
+    /*
+     * taking the worst entry off the heap until it is empty orders the best k from the back
+     */
+    List<T> ranked = new ArrayList<>(k);
+    for (int i = 0; i < k; i++) {
+      ranked.add(null);
+    }
+    while (size > 0) {
+      ranked.set(size - 1, entries.get(heap[0]));
+      heap[0] = heap[--size];
+      siftDown(heap, size, totals);
+    }
+    entries.clear();
+    entries.addAll(ranked);
+  }
+
+  /**
+   * @return {@code true} if entry {@code a} ranks before entry {@code b}
+   */
+  private static boolean better(int a, int b, double[] totals) {
+    int cmp = Double.compare(totals[a], totals[b]);
+    return cmp > 0 || (cmp == 0 && a < b);
+  }
+
+  private static void siftUp(int[] heap, int i, double[] totals) {
+    int entry = heap[i];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!better(heap[parent], entry, totals)) {
+        break;
+      }
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = entry;
+  }
+
+  private static void siftDown(int[] heap, int size, double[] totals) {
+    if (size == 0) {
+      return;
+    }
+    int entry = heap[0];
+    int i = 0;
+    int child;
+    while ((child = 2 * i + 1) < size) {
+      if (child + 1 < size && better(heap[child], heap[child + 1], totals)) {
+        child++;
+      }
+      if (!better(entry, heap[child], totals)) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = entry;
+  }
+
+  /**
+   * The non-zero weights of the first {@code registered} slots of the registry.
+   */
+  private record Weights(int registered, int[] slots, double[] values) {
+  }
+}
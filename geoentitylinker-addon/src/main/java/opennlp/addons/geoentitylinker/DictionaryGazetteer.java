@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.RandomAccessInput;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.OffHeapFSTStore;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import opennlp.addons.geoentitylinker.indexing.GazetteerDictionaryWriter;
+import opennlp.tools.entitylinker.EntityLinkerProperties;
+
+/**
+ * Resolves place names by an exact lookup of their normalized form in a
+ * gazetteer dictionary, written by the {@link GazetteerDictionaryWriter} from
+ * the index of the {@link opennlp.addons.geoentitylinker.indexing.GazetteerIndexer}.
+ * It is meant for low latency uses that only need exact name and alias matches,
+ * without the cost of opening and searching a lucene index.
+ * <p>
+ * The whole file is memory-mapped. Only the small string table of the codes is
+ * read onto the heap, the {@link FST} of the names is read off-heap, and the
+ * postings and records are decoded on lookup. The entries of a name are ranked
+ * by population, the where clauses are evaluated on the packed codes of each
+ * record, see {@link WhereClause#matches}, and only the records that are
+ * returned are decoded completely. There is no full text score, every hit
+ * scores {@code 1.0}.
+ * <p>
+ * The dictionary file is set with {@code opennlp.geoentitylinker.gaz.dictionary}.
+ */
+public class DictionaryGazetteer implements Gazetteer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final Directory directory;
+  private final IndexInput input;
+  private final RandomAccessInput recordPointers;
+  private final long postingsStart;
+  private final String[] strings;
+  private final FST<Long> fst;
+  private final Map<String, Optional<WhereClause>> whereClauses = new ConcurrentHashMap<>();
+
+  public DictionaryGazetteer(EntityLinkerProperties properties) throws IOException {
+    this(dictionaryFile(properties));
+  }
+
+  /**
+   * @param dictionaryFile the dictionary written by the {@link GazetteerDictionaryWriter}
+   * @throws IOException Thrown if the dictionary cannot be opened or is not a gazetteer dictionary.
+   */
+  public DictionaryGazetteer(Path dictionaryFile) throws IOException {
+    directory = new MMapDirectory(dictionaryFile.toAbsolutePath().getParent());
+    IndexInput in = null;
+    try {
+      in = directory.openInput(dictionaryFile.getFileName().toString(), IOContext.READ);
+      CodecUtil.checkHeader(in, GazetteerDictionaryWriter.CODEC,
+          GazetteerDictionaryWriter.VERSION, GazetteerDictionaryWriter.VERSION);
+      CodecUtil.retrieveChecksum(in);
+      in.seek(in.length() - CodecUtil.footerLength() - GazetteerDictionaryWriter.TRAILER_LONGS * Long.BYTES);
+      long records = in.readLong();
+      long offsetsStart = in.readLong();
+      postingsStart = in.readLong();
+      long stringsStart = in.readLong();
+      long fstStart = in.readLong();
+      recordPointers = in.randomAccessSlice(offsetsStart, records * Long.BYTES);
+
+      in.seek(stringsStart);
+      strings = new String[in.readVInt()];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = in.readString();
+      }
+
+      in.seek(fstStart);
+      if (in.readByte() == 1) {
+        IndexInput fstInput = in.clone();
+        fst = new FST<>(fstInput, fstInput, PositiveIntOutputs.getSingleton(), new OffHeapFSTStore());
+      } else {
+        fst = null;
+      }
+      input = in;
+    } catch (IOException | RuntimeException ex) {
+      IOUtils.closeWhileHandlingException(in, directory);
+      throw ex;
+    }
+  }
+
+  private static Path dictionaryFile(EntityLinkerProperties properties) throws IOException {
+    String location = properties.getProperty("opennlp.geoentitylinker.gaz.dictionary", "");
+    if (location.isEmpty()) {
+      throw new IOException("Opennlp gazetteer dictionary location not found!");
+    }
+    return Paths.get(location);
+  }
+
+  /**
+   * Looks up all names of a document at once, with the same merging of the
+   * where clauses as the {@link GazetteerSearcher}. Where clauses that are not
+   * supported by {@link WhereClause} match nothing.
+   */
+  @Override
+  public Map<String, List<GazetteerHit>> findAllHits(Collection<String> names, int rowsReturned,
+                                                     List<String> whereClauses) {
+    List<WhereClause> clauses = new ArrayList<>(whereClauses.size());
+    for (String whereClause : whereClauses) {
+      whereClause(whereClause).ifPresent(clauses::add);
+    }
+    // every caller reads from its own clone, the input itself is never moved
+    IndexInput in = input.clone();
+    Map<String, List<GazetteerHit>> hitsByName = new LinkedHashMap<>();
+    for (String name : names) {
+      if (!hitsByName.containsKey(name)) {
+        try {
+          hitsByName.put(name, find(in, name, rowsReturned, clauses));
+        } catch (IOException ex) {
+          LOG.error(ex.getLocalizedMessage(), ex);
+          hitsByName.put(name, List.of());
+        }
+      }
+    }
+    return hitsByName;
+  }
+
+  private Optional<WhereClause> whereClause(String whereClause) {
+    return whereClauses.computeIfAbsent(whereClause, clause -> {
+      try {
+        return Optional.of(WhereClause.parse(clause));
+      } catch (IllegalArgumentException ex) {
+        LOG.error(ex.getLocalizedMessage(), ex);
+        return Optional.empty();
+      }
+    });
+  }
+
+  /**
+   * @return the top N records of each where clause, merged and without duplicates
+   */
+  private List<GazetteerHit> find(IndexInput in, String name, int rowsReturned, List<WhereClause> clauses)
+      throws IOException {
+    String key = GazetteerDictionaryWriter.normalize(name);
+    if (key.isEmpty() || fst == null) {
+      return List.of();
+    }
+    Long postings = Util.get(fst, new BytesRef(key));
+    if (postings == null) {
+      return List.of();
+    }
+    in.seek(postingsStart + postings);
+    int[] ords = new int[in.readVInt()];
+    for (int i = 0; i < ords.length; i++) {
+      ords[i] = in.readVInt();
+    }
+
+    Map<Integer, GazetteerHit> merged = new LinkedHashMap<>();
+    int[] codes = new int[4];
+    for (WhereClause clause : clauses) {
+      int found = 0;
+      for (int i = 0; i < ords.length && found < rowsReturned; i++) {
+        in.seek(recordPointers.readLong((long) ords[i] * Long.BYTES));
+        for (int c = 0; c < codes.length; c++) {
+          codes[c] = in.readVInt();
+        }
+        if (clause.matches(field -> code(field, codes))) {
+          found++;
+          if (!merged.containsKey(ords[i])) {
+            merged.put(ords[i], readHit(in, ords[i], codes));
+          }
+        }
+      }
+    }
+    return List.copyOf(merged.values());
+  }
+
+  private String code(String field, int[] codes) {
+    return switch (field) {
+      case "countrycode" -> strings[codes[0]];
+      case "admincode" -> strings[codes[1]];
+      case "loctype" -> strings[codes[2]];
+      case "gazsource" -> strings[codes[3]];
+      default -> null;
+    };
+  }
+
+  /**
+   * Reads the rest of a record, the input is positioned right after its codes.
+   */
+  private GazetteerHit readHit(IndexInput in, int ord, int[] codes) throws IOException {
+    double latitude = Double.longBitsToDouble(in.readLong());
+    double longitude = Double.longBitsToDouble(in.readLong());
+    long population = in.readVLong();
+    String placeName = in.readString();
+    String hierarchy = in.readString();
+    String locId = in.readString();
+
+    Map<String, String> data = new HashMap<>();
+    data.put("placename", placeName);
+    data.put("hierarchy", hierarchy);
+    data.put("locid", locId);
+    data.put("latitude", String.valueOf(latitude));
+    data.put("longitude", String.valueOf(longitude));
+    data.put("population", String.valueOf(population));
+    data.put("countrycode", strings[codes[0]]);
+    data.put("admincode", strings[codes[1]]);
+    data.put("loctype", strings[codes[2]]);
+    data.put("gazsource", strings[codes[3]]);
+    return new GazetteerHit(ord, 1.0, placeName, strings[codes[0]], strings[codes[1]], strings[codes[2]],
+        strings[codes[3]], hierarchy, latitude, longitude, fields -> project(data, fields));
+  }
+
+  private static Map<String, String> project(Map<String, String> data, Set<String> fields) {
+    if (fields == null) {
+      return data;
+    }
+    Map<String, String> projection = new HashMap<>();
+    for (String field : fields) {
+      String value = data.get(field);
+      if (value != null) {
+        projection.put(field, value);
+      }
+    }
+    return projection;
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOUtils.close(input, directory);
+  }
+}
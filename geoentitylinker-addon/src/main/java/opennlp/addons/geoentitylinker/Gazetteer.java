@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves place names to gazetteer entries for the {@link GeoEntityLinker}.
+ * The linker picks the implementation with {@code opennlp.geoentitylinker.gaz.type}:
+ * <ul>
+ * <li>{@code lucene}, the default: the {@link GazetteerSearcher}, a full text
+ * search of the lucene index built by the
+ * {@link opennlp.addons.geoentitylinker.indexing.GazetteerIndexer}</li>
+ * <li>{@code dictionary}: the {@link DictionaryGazetteer}, an exact lookup of
+ * the normalized names and aliases in a memory-mapped dictionary file</li>
+ * </ul>
+ * Implementations are used by all documents at once and must be thread-safe.
+ */
+public interface Gazetteer extends Closeable {
+
+  /**
+   * Looks up all names of a document at once. Each distinct name is looked up
+   * once per where clause.
+   *
+   * @param names the location names to look up, duplicates are looked up once
+   * @param rowsReturned how many entries to return per name and where clause (top N...)
+   * @param whereClauses the conditional statements that define the index type and the country code,
+   *                     see {@link AdminBoundaryContext#getWhereClauses()}
+   * @return a map of each name to the merged hits of all where clauses, in the
+   * order of the where clauses and without duplicates. The hits are immutable
+   * and may be shared, callers create entries from them per mention.
+   */
+  Map<String, List<GazetteerHit>> findAllHits(Collection<String> names, int rowsReturned,
+                                              List<String> whereClauses);
+
+  /**
+   * Same as {@link #findAllHits(Collection, int, List)}, but returns a new entry for each hit.
+   *
+   * @param names the location names to look up, duplicates are looked up once
+   * @param rowsReturned how many entries to return per name and where clause (top N...)
+   * @param whereClauses the conditional statements that define the index type and the country code
+   * @return a map of each name to the merged entries of all where clauses, in the
+   * order of the where clauses and without duplicates. Each entry is a new object.
+   */
+  default Map<String, List<GazetteerEntry>> findAll(Collection<String> names, int rowsReturned,
+                                                    List<String> whereClauses) {
+    Map<String, List<GazetteerEntry>> linkedData = new LinkedHashMap<>();
+    for (Map.Entry<String, List<GazetteerHit>> hits : findAllHits(names, rowsReturned, whereClauses).entrySet()) {
+      List<GazetteerEntry> entries = new ArrayList<>(hits.getValue().size());
+      for (GazetteerHit hit : hits.getValue()) {
+        entries.add(hit.toEntry());
+      }
+      linkedData.put(hits.getKey(), entries);
+    }
+    return linkedData;
+  }
+}
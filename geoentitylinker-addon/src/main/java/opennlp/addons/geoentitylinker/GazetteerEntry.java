@@ -18,11 +18,14 @@ package opennlp.addons.geoentitylinker;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Supplier;
 
+import opennlp.addons.geoentitylinker.scoring.SlotScoreMap;
 import opennlp.tools.entitylinker.BaseLink;
 
 /**
  * Stores a minimal amount of information from a geographic place names gazetteer.
+ * The scores are kept in a {@link SlotScoreMap}.
  */
 public class GazetteerEntry extends BaseLink {
 
@@ -34,10 +37,15 @@ public class GazetteerEntry extends BaseLink {
   private String provinceCode;
   private String hierarchy;
   
-  private Map<String, String> indexData = new HashMap<>();
+  private Map<String, String> indexData;
+  private Supplier<Map<String, String>> indexDataLoader;
 
+  // setScoreMap is only reachable through BaseLink; the class stays open for
+  // existing subclasses, which see the SlotScoreMap as an ordinary score map
+  @SuppressWarnings("this-escape")
   public GazetteerEntry(String parentID, String itemID, String itemName, String itemType) {
     super(parentID, itemID, itemName, itemType);
+    setScoreMap(new SlotScoreMap());
   }
 
   /**
@@ -88,6 +96,10 @@ public class GazetteerEntry extends BaseLink {
    * @return Retrieves all the other fields in the gazetteer in the form of a map
    */
   public Map<String, String> getIndexData() {
+    if (indexData == null) {
+      indexData = indexDataLoader == null ? new HashMap<>() : new HashMap<>(indexDataLoader.get());
+      indexDataLoader = null;
+    }
     return indexData;
   }
 
@@ -98,6 +110,18 @@ public class GazetteerEntry extends BaseLink {
    */
   public void setIndexData(Map<String, String> indexData) {
     this.indexData = indexData;
+    this.indexDataLoader = null;
+  }
+
+  /**
+   * Defers building the index data map until {@link #getIndexData()} is called
+   * for the first time.
+   *
+   * @param indexDataLoader supplies all fields in the index as fieldname:value
+   */
+  public void setIndexDataLoader(Supplier<Map<String, String>> indexDataLoader) {
+    this.indexData = null;
+    this.indexDataLoader = indexDataLoader;
   }
 
   public String getCountryCode() {
@@ -124,12 +148,17 @@ public class GazetteerEntry extends BaseLink {
     this.hierarchy = hierarchy;
   }
 
+  /**
+   * Does not load the index data, it is printed as {@code <not loaded>} until
+   * {@link #getIndexData()} was called.
+   */
   @Override
   public String toString() {
 
     return super.toString() + "\n\t\tGazetteerEntry\n" + "\t\tlatitude=" +
             latitude + ", \n\t\tlongitude=" + longitude + ", \n\t\tsource=" +
-            source + ", \n\t\tindexID=" + indexID + ",\n\t\tindexData=" + indexData + "\n";
+            source + ", \n\t\tindexID=" + indexID + ",\n\t\tindexData=" +
+            (indexData == null && indexDataLoader != null ? "<not loaded>" : indexData) + "\n";
   }
 
   @Override
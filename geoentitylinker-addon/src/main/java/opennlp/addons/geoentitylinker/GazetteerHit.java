@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import opennlp.addons.geoentitylinker.scoring.ScoreRegistry;
+
+/**
+ * An immutable record of a single gazetteer search hit. Hits are what the
+ * {@link GazetteerSearcher} caches: they can be shared freely between threads
+ * and documents, while every call gets its own {@link GazetteerEntry} views
+ * via {@link #toEntry()}, so scorers never see scores from another document.
+ * <p>
+ * The fields the linker needs are read eagerly. All other stored fields of
+ * the document are only loaded on request: either all of them through
+ * {@link #indexData()}, loaded once, or a projection through
+ * {@link #indexData(Set)}. Loading them needs the index generation the hit
+ * was found in, which a refresh or swap of the {@link GazetteerSearcher}
+ * releases.
+ */
+public final class GazetteerHit {
+
+  private final int docId;
+  private final double score;
+  private final String placeName;
+  private final String countryCode;
+  private final String provinceCode;
+  private final String itemType;
+  private final String source;
+  private final String hierarchy;
+  private final double latitude;
+  private final double longitude;
+  private final Function<Set<String>, Map<String, String>> fieldLoader;
+  private volatile Map<String, String> indexData;
+
+  /**
+   * @param docId The id of the hit within its gazetteer, e.g. the lucene document id.
+   * @param score The lucene score of the hit, {@code 1.0} for exact dictionary matches.
+   * @param placeName The place name.
+   * @param countryCode The lower case country code, also used as the parent id.
+   * @param provinceCode The admin code of the place.
+   * @param itemType The location type, e.g. a geonames feature code.
+   * @param source The gazetteer source, e.g. {@code usgs} or {@code geonames}.
+   * @param hierarchy The place hierarchy, e.g. {@code country, province, place}.
+   * @param latitude The latitude of the place.
+   * @param longitude The longitude of the place.
+   * @param fieldLoader Loads the given stored fields of the document, or all of
+   *                    them for {@code null}. Called until it succeeded once for all fields.
+   */
+  public GazetteerHit(int docId, double score, String placeName, String countryCode,
+                      String provinceCode, String itemType, String source, String hierarchy,
+                      double latitude, double longitude, Function<Set<String>, Map<String, String>> fieldLoader) {
+    this.docId = docId;
+    this.score = score;
+    this.placeName = placeName;
+    this.countryCode = countryCode;
+    this.provinceCode = provinceCode;
+    this.itemType = itemType;
+    this.source = source;
+    this.hierarchy = hierarchy;
+    this.latitude = latitude;
+    this.longitude = longitude;
+    this.fieldLoader = fieldLoader;
+  }
+
+  public int docId() {
+    return docId;
+  }
+
+  public double score() {
+    return score;
+  }
+
+  public String placeName() {
+    return placeName;
+  }
+
+  public String countryCode() {
+    return countryCode;
+  }
+
+  public String provinceCode() {
+    return provinceCode;
+  }
+
+  public String itemType() {
+    return itemType;
+  }
+
+  public String source() {
+    return source;
+  }
+
+  public String hierarchy() {
+    return hierarchy;
+  }
+
+  public double latitude() {
+    return latitude;
+  }
+
+  public double longitude() {
+    return longitude;
+  }
+
+  /**
+   * @return All stored fields of the document as an unmodifiable map. They are
+   * loaded from the index on the first call. A load that failed is not kept,
+   * the next call tries again.
+   * @throws java.io.UncheckedIOException Thrown if the stored fields could not be read.
+   * @throws IllegalStateException Thrown if the fields were not loaded before
+   * the index generation of the hit was released by a refresh or swap.
+   */
+  public Map<String, String> indexData() {
+    Map<String, String> data = indexData;
+    if (data == null) {
+      synchronized (this) {
+        data = indexData;
+        if (data == null) {
+          data = Map.copyOf(fieldLoader.apply(null));
+          indexData = data;
+        }
+      }
+    }
+    return data;
+  }
+
+  /**
+   * @param fields The names of the stored fields to read.
+   * @return The requested stored fields that the document has, as an unmodifiable
+   * map. Only these fields are loaded, unless all fields are loaded already.
+   */
+  public Map<String, String> indexData(Set<String> fields) {
+    Map<String, String> data = indexData;
+    if (data == null) {
+      return Map.copyOf(fieldLoader.apply(fields));
+    }
+    Map<String, String> projection = new HashMap<>();
+    for (String field : fields) {
+      String value = data.get(field);
+      if (value != null) {
+        projection.put(field, value);
+      }
+    }
+    return Map.copyOf(projection);
+  }
+
+  /**
+   * @return Creates a new {@link GazetteerEntry} for this hit with a fresh
+   * score map. The index data is only loaded if it is read.
+   */
+  public GazetteerEntry toEntry() {
+    String id = String.valueOf(docId);
+    GazetteerEntry entry = new GazetteerEntry(countryCode, id, placeName, itemType);
+    ScoreRegistry.put(entry, ScoreRegistry.LUCENE, score);
+    entry.setIndexID(id);
+    entry.setSource(source);
+    entry.setLatitude(latitude);
+    entry.setLongitude(longitude);
+    entry.setProvinceCode(provinceCode);
+    entry.setCountryCode(countryCode);
+    entry.setHierarchy(hierarchy);
+    entry.setIndexDataLoader(this::indexData);
+    return entry;
+  }
+
+  @Override
+  public String toString() {
+    return "GazetteerHit{" + "docId=" + docId + ", score=" + score + ", placeName=" + placeName
+        + ", countryCode=" + countryCode + ", provinceCode=" + provinceCode + ", itemType=" + itemType
+        + ", source=" + source + ", latitude=" + latitude + ", longitude=" + longitude + '}';
+  }
+}
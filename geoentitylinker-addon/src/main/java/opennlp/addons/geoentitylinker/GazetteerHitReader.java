@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.ScoreDoc;
+
+import opennlp.addons.geoentitylinker.indexing.GazetteerDocValues;
+
+/**
+ * Turns top documents into {@link GazetteerHit hits}. Coordinates and codes
+ * are read from the doc values written by the indexing processors, so only
+ * the place name and the hierarchy are loaded from the stored fields. Indexes
+ * built before the doc values were added are read from the stored fields, as
+ * before. All other stored fields are only loaded if a hit's index data is
+ * read.
+ * <p>
+ * The hits load their other stored fields from the reader they were found
+ * with, so this only works while the reader is open. For the
+ * {@link GazetteerSearcher} that is the current index generation.
+ */
+final class GazetteerHitReader {
+
+  private static final String PLACE_NAME = "placename";
+  private static final String HIERARCHY = "hierarchy";
+
+  private final IndexReader reader;
+
+  /**
+   * @param reader the reader the documents were found with
+   */
+  GazetteerHitReader(IndexReader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * @param scoreDocs the top documents, best first
+   * @return the hits in the same order
+   */
+  List<GazetteerHit> read(ScoreDoc[] scoreDocs) throws IOException {
+    GazetteerHit[] hits = new GazetteerHit[scoreDocs.length];
+    // doc values are read forward only, so visit the documents in index order
+    Integer[] order = new Integer[scoreDocs.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparingInt(i -> scoreDocs[i].doc));
+
+    List<LeafReaderContext> leaves = reader.leaves();
+    LeafValues values = null;
+    for (int i : order) {
+      int docId = scoreDocs[i].doc;
+      LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+      if (values == null || values.context != leaf) {
+        values = new LeafValues(leaf);
+      }
+      hits[i] = values.read(docId, scoreDocs[i].score);
+    }
+    return List.of(hits);
+  }
+
+  /**
+   * @param fields the fields to load, {@code null} for all of them
+   * @throws UncheckedIOException Thrown if the fields could not be read.
+   * @throws org.apache.lucene.store.AlreadyClosedException Thrown if the reader was closed.
+   */
+  private Map<String, String> loadFields(int docId, Set<String> fields) {
+    try {
+      Document d = fields == null ? reader.document(docId) : reader.document(docId, fields);
+      Map<String, String> data = new HashMap<>();
+      for (IndexableField field : d.getFields()) {
+        String value = d.get(field.name());
+        if (value != null) {
+          data.put(field.name(), value);
+        }
+      }
+      return data;
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /**
+   * The doc values of one segment.
+   */
+  private final class LeafValues {
+
+    private final LeafReaderContext context;
+    private final NumericDocValues latitude;
+    private final NumericDocValues longitude;
+    private final SortedDocValues countryCode;
+    private final SortedDocValues adminCode;
+    private final SortedDocValues locType;
+    private final SortedDocValues source;
+
+    LeafValues(LeafReaderContext context) throws IOException {
+      this.context = context;
+      LeafReader leaf = context.reader();
+      latitude = leaf.getNumericDocValues(GazetteerDocValues.LATITUDE);
+      longitude = leaf.getNumericDocValues(GazetteerDocValues.LONGITUDE);
+      countryCode = leaf.getSortedDocValues(GazetteerDocValues.COUNTRY_CODE);
+      adminCode = leaf.getSortedDocValues(GazetteerDocValues.ADMIN_CODE);
+      locType = leaf.getSortedDocValues(GazetteerDocValues.LOC_TYPE);
+      source = leaf.getSortedDocValues(GazetteerDocValues.SOURCE);
+    }
+
+    GazetteerHit read(int docId, double score) throws IOException {
+      int doc = docId - context.docBase;
+      Double lat = value(latitude, doc);
+      Double lon = value(longitude, doc);
+      String cc = value(countryCode, doc);
+      String admin = value(adminCode, doc);
+      String type = value(locType, doc);
+      String src = value(source, doc);
+
+      Set<String> fieldsToLoad = new HashSet<>(List.of(PLACE_NAME, HIERARCHY));
+      if (lat == null || lon == null) {
+        fieldsToLoad.add(GazetteerDocValues.LATITUDE);
+        fieldsToLoad.add(GazetteerDocValues.LONGITUDE);
+      }
+      addIfMissing(fieldsToLoad, cc, GazetteerDocValues.COUNTRY_CODE);
+      addIfMissing(fieldsToLoad, admin, GazetteerDocValues.ADMIN_CODE);
+      addIfMissing(fieldsToLoad, type, GazetteerDocValues.LOC_TYPE);
+      addIfMissing(fieldsToLoad, src, GazetteerDocValues.SOURCE);
+      Document d = context.reader().document(doc, fieldsToLoad);
+
+      if (lat == null || lon == null) {
+        lat = Double.parseDouble(d.get(GazetteerDocValues.LATITUDE));
+        lon = Double.parseDouble(d.get(GazetteerDocValues.LONGITUDE));
+      }
+      if (cc == null) {
+        cc = d.get(GazetteerDocValues.COUNTRY_CODE);
+      }
+      return new GazetteerHit(docId, score, d.get(PLACE_NAME), cc.toLowerCase(),
+          admin != null ? admin : d.get(GazetteerDocValues.ADMIN_CODE),
+          type != null ? type : d.get(GazetteerDocValues.LOC_TYPE),
+          src != null ? src : d.get(GazetteerDocValues.SOURCE),
+          d.get(HIERARCHY), lat, lon, fields -> loadFields(docId, fields));
+    }
+
+    private void addIfMissing(Set<String> fieldsToLoad, String value, String field) {
+      if (value == null) {
+        fieldsToLoad.add(field);
+      }
+    }
+
+    private Double value(NumericDocValues values, int doc) throws IOException {
+      if (values == null || !values.advanceExact(doc)) {
+        return null;
+      }
+      return Double.longBitsToDouble(values.longValue());
+    }
+
+    private String value(SortedDocValues values, int doc) throws IOException {
+      if (values == null || !values.advanceExact(doc)) {
+        return null;
+      }
+      return values.binaryValue().utf8ToString();
+    }
+  }
+}
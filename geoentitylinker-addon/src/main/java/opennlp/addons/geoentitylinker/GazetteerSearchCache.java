@@ -15,33 +15,60 @@
  */
 package opennlp.addons.geoentitylinker;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-
 /**
- * Caches {@link GazetteerEntry gazetteer} query results statically.
- * Clears itself if more than 10000 results are cached.
+ * Caches {@link GazetteerEntry gazetteer} query results for a single
+ * {@link GazetteerSearcher}. Implementations must be safe for concurrent use.
+ *
+ * @param <V> The type of the cached query results.
+ *
+ * @see BoundedGazetteerSearchCache
  */
-public class GazetteerSearchCache {
+public interface GazetteerSearchCache<V> {
+
+  /**
+   * @param key The query key to check for cached results.
+   * @return Retrieves cached results. Returns {@code null} if the key does not exist in the cache.
+   */
+  V get(String key);
 
-  private static final Map<String, ArrayList<GazetteerEntry>> CACHE = new HashMap<>();
+  /**
+   * Stores the results of a query. Implementations may evict other entries to stay within their bounds.
+   *
+   * @param key The query key.
+   * @param value The results of the query, must not be {@code null}.
+   */
+  void put(String key, V value);
 
   /**
-   * @param searchString The search string to check for matching entries.
-   * @return Retrieves cached entries. Returns {@code null} if the query does not exist in the cache.
+   * Removes all cached entries. Counters are not reset.
    */
-  public static synchronized ArrayList<GazetteerEntry> get(String searchString) {
-    return CACHE.get(searchString);
-  }
+  void invalidateAll();
 
-  public static synchronized void put(String searchString, ArrayList<GazetteerEntry> hits) {
-    if (CACHE.size() > 10000) {
-      CACHE.clear();
-    }
-    if (!CACHE.containsKey(searchString)) {
-      CACHE.put(searchString, hits);
+  /**
+   * @return Retrieves the number of entries currently held by the cache.
+   */
+  int size();
+
+  /**
+   * @return Retrieves a snapshot of the hit, miss and eviction counters.
+   */
+  Stats stats();
+
+  /**
+   * A point in time snapshot of the cache counters.
+   *
+   * @param hits The number of lookups that returned a cached value.
+   * @param misses The number of lookups that did not find a (live) value.
+   * @param evictions The number of entries dropped because of the size bound or their time to live.
+   */
+  record Stats(long hits, long misses, long evictions) {
+
+    /**
+     * @return Retrieves the ratio of hits to all lookups, or {@code 0} if there were no lookups yet.
+     */
+    public double hitRate() {
+      long lookups = hits + misses;
+      return lookups == 0 ? 0d : (double) hits / lookups;
     }
   }
-
 }
@@ -15,29 +15,56 @@
  */
 package opennlp.addons.geoentitylinker;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandles;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.core.KeywordAnalyzer;
 import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCache;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.MMapDirectory;
 import org.slf4j.Logger;
@@ -49,21 +76,36 @@ import opennlp.tools.entitylinker.EntityLinkerProperties;
  *
  * Searches Gazetteers stored in a MMapDirectory Lucene index. The structure of
  * these indices are based on loading the indexes using the GazetteerIndexer
+ * <p>
+ * The index is opened through a {@link SearcherManager}. Updates are picked up
+ * with {@link #refresh()}, periodically after {@link #start()} if
+ * {@code opennlp.geoentitylinker.gaz.refresh.seconds} is set, and a rebuilt index
+ * can be switched to with {@link #swapIndex(Path)}. Both drop the cached results
+ * of the previous index generation and release its reader, so the index data of
+ * hits found in it can no longer be loaded.
  *
  */
-public class GazetteerSearcher {
+public class GazetteerSearcher implements Gazetteer {
 
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private static final String REGEX_CLEAN = "[^\\p{L}\\p{Nd}]";
   private double scoreCutoff = .70;
   private final boolean doubleQuoteAllSearchTerms = false;
   private boolean useHierarchyField = false;
+  private boolean combinedQuery = false;
 
   private final EntityLinkerProperties properties;
+  private GazetteerSearchCache<List<GazetteerHit>> cache;
 
-  private Directory opennlpIndex;//= new MMapDirectory(new File(indexloc));
-  private IndexSearcher opennlpSearcher;// = new IndexSearcher(geonamesReader);
+  private volatile IndexHandle index;
+  private final AtomicLong generation = new AtomicLong();
+  private long refreshSeconds;
+  private ScheduledExecutorService refreshExecutor;
   private Analyzer opennlpAnalyzer;
+  private ExecutorService searchExecutor;
+  private final Map<String, Query> filters = new ConcurrentHashMap<>();
+  private final Set<Query> filterQueries = ConcurrentHashMap.newKeySet();
+  private QueryCache filterCache;
 
   public static void main(String[] args) {
     try {
@@ -75,10 +117,30 @@ public class GazetteerSearcher {
   }
 
   public GazetteerSearcher(EntityLinkerProperties properties) throws IOException {
+    this(properties, null);
+  }
+
+  /**
+   * @param properties the entitylinker properties
+   * @param cache the cache for query results. If {@code null}, a
+   *              {@link BoundedGazetteerSearchCache} is created from the
+   *              {@code opennlp.geoentitylinker.gaz.cache.*} properties.
+   * @throws IOException Thrown if the index could not be opened.
+   */
+  public GazetteerSearcher(EntityLinkerProperties properties,
+                           GazetteerSearchCache<List<GazetteerHit>> cache) throws IOException {
     this.properties = properties;
+    this.cache = cache;
     init();
   }
 
+  /**
+   * @return Retrieves the query result cache of this searcher, e.g. to inspect its {@link GazetteerSearchCache.Stats}.
+   */
+  public GazetteerSearchCache<List<GazetteerHit>> getCache() {
+    return cache;
+  }
+
   /**
    * Searches the single lucene index that includes the location hierarchy.
    *
@@ -94,87 +156,498 @@ public class GazetteerSearcher {
     if (searchString.isEmpty()) {
       return linkedData;
     }
+    /*
+     * every caller gets its own entries, the scorers write into their score maps
+     */
+    Query query = buildQuery(searchString, whereClause);
+    if (query == null) {
+      return linkedData;
+    }
+    for (GazetteerHit hit : searchAndCache(cacheKey(searchString, rowsReturned, whereClause), query, rowsReturned)) {
+      linkedData.add(hit.toEntry());
+    }
+    return linkedData;
+  }
+
+  /**
+   * Searches the index for all names of a document at once. Each distinct name
+   * is searched once per where clause, query strings are built in a single pass,
+   * and all queries that are not cached yet are run as one batch, fanned out
+   * over the search executor if {@code opennlp.geoentitylinker.gaz.search.threads}
+   * is configured. With {@code opennlp.geoentitylinker.gaz.combinedquery=true},
+   * each name is searched once for all where clauses together instead.
+   */
+  @Override
+  public Map<String, List<GazetteerHit>> findAllHits(Collection<String> names, int rowsReturned,
+                                                     List<String> whereClauses) {
+    /*
+     * build all queries in one pass, names that occur several times share their queries
+     */
+    Map<String, List<String>> keysByName = new LinkedHashMap<>();
+    Map<String, Query> queries = new LinkedHashMap<>();
+    Map<String, Map<String, Query>> filtersBySearchString = new LinkedHashMap<>();
+    for (String name : names) {
+      if (keysByName.containsKey(name)) {
+        continue;
+      }
+      List<String> keysForName = new ArrayList<>(whereClauses.size());
+      String searchString = cleanInput(name);
+      if (!searchString.isEmpty()) {
+        for (String whereClause : whereClauses) {
+          String key = cacheKey(searchString, rowsReturned, whereClause);
+          if (!queries.containsKey(key)) {
+            Query query = buildQuery(searchString, whereClause);
+            if (query == null) {
+              continue;
+            }
+            queries.put(key, query);
+            filtersBySearchString.computeIfAbsent(searchString, k -> new LinkedHashMap<>())
+                .put(key, getFilter(whereClause));
+          }
+          keysForName.add(key);
+        }
+      }
+      keysByName.put(name, keysForName);
+    }
+
+    /*
+     * answer what we can from the cache and run the remaining queries as a batch
+     */
+    Map<String, List<GazetteerHit>> hitsByKey = new HashMap<>();
+    Map<String, Query> missing = new LinkedHashMap<>();
+    for (Map.Entry<String, Query> query : queries.entrySet()) {
+      List<GazetteerHit> hits = cache.get(query.getKey());
+      if (hits != null) {
+        hitsByKey.put(query.getKey(), hits);
+      } else {
+        missing.put(query.getKey(), query.getValue());
+      }
+    }
+    if (combinedQuery && whereClauses.size() > 1) {
+      hitsByKey.putAll(searchAllCombined(filtersBySearchString, missing.keySet(), rowsReturned));
+    } else {
+      hitsByKey.putAll(searchAll(missing, rowsReturned));
+    }
+
+    Map<String, List<GazetteerHit>> hitsByName = new LinkedHashMap<>();
+    for (Map.Entry<String, List<String>> entry : keysByName.entrySet()) {
+      Map<Integer, GazetteerHit> merged = new LinkedHashMap<>();
+      for (String key : entry.getValue()) {
+        for (GazetteerHit hit : hitsByKey.getOrDefault(key, List.of())) {
+          merged.putIfAbsent(hit.docId(), hit);
+        }
+      }
+      hitsByName.put(entry.getKey(), List.copyOf(merged.values()));
+    }
+    return hitsByName;
+  }
+
+  /**
+   * Runs a batch of queries, on the search executor if there is one.
+   */
+  private Map<String, List<GazetteerHit>> searchAll(Map<String, Query> queries, int rowsReturned) {
+    List<Callable<Map<String, List<GazetteerHit>>>> tasks = new ArrayList<>(queries.size());
+    for (Map.Entry<String, Query> query : queries.entrySet()) {
+      tasks.add(() -> Map.of(query.getKey(), searchAndCache(query.getKey(), query.getValue(), rowsReturned)));
+    }
+    return runAll(tasks);
+  }
+
+  /**
+   * Runs one combined query per name instead of one query per name and where
+   * clause. The query matches the name within the union of all where clauses,
+   * and the top N of each clause are collected in the same pass, see
+   * {@link PerFilterTopDocsCollector}. A document that mentions N countries
+   * thus searches each name once instead of N times, with the same candidates.
+   *
+   * @param filtersBySearchString the filter of each cache key, grouped by the cleaned name
+   * @param missing the cache keys that are not cached yet
+   */
+  private Map<String, List<GazetteerHit>> searchAllCombined(Map<String, Map<String, Query>> filtersBySearchString,
+                                                            Set<String> missing, int rowsReturned) {
+    List<Callable<Map<String, List<GazetteerHit>>>> tasks = new ArrayList<>(filtersBySearchString.size());
+    for (Map.Entry<String, Map<String, Query>> entry : filtersBySearchString.entrySet()) {
+      Map<String, Query> filtersByKey = new LinkedHashMap<>(entry.getValue());
+      filtersByKey.keySet().retainAll(missing);
+      if (!filtersByKey.isEmpty()) {
+        tasks.add(() -> searchCombinedAndCache(entry.getKey(), filtersByKey, rowsReturned));
+      }
+    }
+    return runAll(tasks);
+  }
+
+  /**
+   * Searches a name once for all given filters and caches the hits per filter.
+   *
+   * @return the hits by cache key, empty if the search failed
+   */
+  private Map<String, List<GazetteerHit>> searchCombinedAndCache(String searchString, Map<String, Query> filtersByKey,
+                                                                 int rowsReturned) {
     try {
-      /*
-       * build the search string Sometimes no country context is found. In this
-       * case the code variables will be empty strings
-       */
-      String placeNameQueryString = "placename:(" + searchString.toLowerCase() + ") " + "AND " + whereClause;
-      if (searchString.trim().contains(" ") && useHierarchyField) {
-        placeNameQueryString = "(placename:(" + searchString.toLowerCase() + ") AND hierarchy:(" + formatForHierarchy(searchString) + "))"
-            + " AND " + whereClause;
+      BooleanQuery.Builder query = buildNameQuery(searchString);
+      if (query == null) {
+        return Map.of();
       }
+      List<Query> filters = new ArrayList<>(filtersByKey.values());
+      if (filters.stream().noneMatch(f -> f instanceof MatchAllDocsQuery)) {
+        BooleanQuery.Builder union = new BooleanQuery.Builder();
+        for (Query filter : filters) {
+          union.add(filter, BooleanClause.Occur.SHOULD);
+        }
+        query.add(union.build(), BooleanClause.Occur.FILTER);
+      }
+      Map<String, List<GazetteerHit>> hitsByKey = withSearcher(searcher -> {
+        PerFilterTopDocsCollector collector = new PerFilterTopDocsCollector(searcher, filters, rowsReturned);
+        searcher.search(query.build(), collector);
+        GazetteerHitReader hitReader = new GazetteerHitReader(searcher.getIndexReader());
+        Map<String, List<GazetteerHit>> hits = new HashMap<>();
+        int i = 0;
+        for (String key : filtersByKey.keySet()) {
+          hits.put(key, hitReader.read(collector.topDocs(i++)));
+        }
+        return hits;
+      });
+      hitsByKey.forEach(cache::put);
+      return hitsByKey;
+    } catch (IOException ex) {
+      LOG.error(ex.getLocalizedMessage(), ex);
+      return Map.of();
+    }
+  }
 
+  /**
+   * Runs the tasks, on the search executor if there is one, and merges their results.
+   */
+  private Map<String, List<GazetteerHit>> runAll(List<Callable<Map<String, List<GazetteerHit>>>> tasks) {
+    Map<String, List<GazetteerHit>> hitsByKey = new HashMap<>();
+    if (searchExecutor == null || tasks.size() < 2) {
+      for (Callable<Map<String, List<GazetteerHit>>> task : tasks) {
+        try {
+          hitsByKey.putAll(task.call());
+        } catch (Exception ex) {
+          LOG.error(ex.getLocalizedMessage(), ex);
+        }
+      }
+      return hitsByKey;
+    }
+    List<Future<Map<String, List<GazetteerHit>>>> futures = new ArrayList<>(tasks.size());
+    for (Callable<Map<String, List<GazetteerHit>>> task : tasks) {
+      futures.add(searchExecutor.submit(task));
+    }
+    for (Future<Map<String, List<GazetteerHit>>> future : futures) {
+      try {
+        hitsByKey.putAll(future.get());
+      } catch (ExecutionException ex) {
+        LOG.error(ex.getLocalizedMessage(), ex);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        futures.forEach(f -> f.cancel(true));
+        break;
+      }
+    }
+    return hitsByKey;
+  }
+
+  /**
+   * Checks the cache and only searches the index if the query is not cached yet.
+   *
+   * @return the hits of the query, an empty list if the search failed
+   */
+  private List<GazetteerHit> searchAndCache(String key, Query query, int rowsReturned) {
+    /*
+     * check the cache and go no further if the records already exist
+     */
+    List<GazetteerHit> hits = cache.get(key);
+    if (hits != null) {
+      return hits;
+    }
+    try {
+      hits = search(query, rowsReturned);
       /*
-       * check the cache and go no further if the records already exist
+       * add the records to the cache for this query
        */
-      ArrayList<GazetteerEntry> get = GazetteerSearchCache.get(placeNameQueryString);
-      if (get != null) {
+      cache.put(key, hits);
+      return hits;
+    } catch (IOException ex) {
+      LOG.error(ex.getLocalizedMessage(), ex);
+      return List.of();
+    }
+  }
 
-        return get;
+  /**
+   * Builds the query for a name, sometimes no country context is found. In
+   * this case the where clause is blank and the whole index is searched.
+   * <p>
+   * The place name terms are optional clauses of a required sub query, like
+   * {@code placename:(...)} used to be. If the hierarchy field is enabled, every
+   * term of multi-word names must also occur in the hierarchy. The where clause
+   * is added as a precompiled, non-scoring filter.
+   *
+   * @param searchString the cleaned location name
+   * @param whereClause the conditional statement that defines the index type and the country code
+   * @return the query, or {@code null} if the name has no searchable terms or the where clause is invalid
+   */
+  private Query buildQuery(String searchString, String whereClause) {
+    try {
+      BooleanQuery.Builder query = buildNameQuery(searchString);
+      if (query == null) {
+        return null;
       }
-      /*
-       * search the placename
-       */
-      QueryParser parser = new QueryParser(placeNameQueryString, opennlpAnalyzer);
-      Query q = parser.parse(placeNameQueryString);
-      //Filter filter = new QueryWrapperFilter(new QueryParser(Version.LUCENE_48, whereClause, opennlpAnalyzer).parse(whereClause));      
-
-      TopDocs bestDocs = opennlpSearcher.search(q, rowsReturned);
-      Double maxscore = 0d;
-      for (int i = 0; i < bestDocs.scoreDocs.length; ++i) {
-        int docId = bestDocs.scoreDocs[i].doc;
-        double sc = bestDocs.scoreDocs[i].score;
-        if (maxscore.compareTo(sc) < 0) {
-          maxscore = sc;
-        }
-        Document d = opennlpSearcher.doc(docId);
-        List<IndexableField> fields = d.getFields();
-
-        String lat = d.get("latitude");
-        String lon = d.get("longitude");
-        String placename = d.get("placename");
-        String parentid = d.get("countrycode").toLowerCase();
-        String provid = d.get("admincode");
-        String itemtype = d.get("loctype");
-        String source = d.get("gazsource");
-        String hier = d.get("hierarchy");
-
-        GazetteerEntry ge = new GazetteerEntry(parentid, String.valueOf(docId), placename, itemtype);
-        ge.getScoreMap().put("lucene", sc);
-        ge.setIndexID(String.valueOf(docId));
-        ge.setSource(source);
-        ge.setLatitude(Double.valueOf(lat));
-        ge.setLongitude(Double.valueOf(lon));
-        ge.setProvinceCode(provid);
-        ge.setCountryCode(parentid);
-        ge.setHierarchy(hier);
-        for (IndexableField field : fields) {
-          ge.getIndexData().put(field.name(), d.get(field.name()));
+      Query filter = getFilter(whereClause);
+      if (!(filter instanceof MatchAllDocsQuery)) {
+        query.add(filter, BooleanClause.Occur.FILTER);
+      }
+      return query.build();
+    } catch (IOException | UncheckedIOException | IllegalArgumentException ex) {
+      LOG.error(ex.getLocalizedMessage(), ex);
+      return null;
+    }
+  }
+
+  /**
+   * Builds the scoring part of the query for a name, without any where clause.
+   *
+   * @return the query builder, or {@code null} if the name has no searchable terms
+   */
+  private BooleanQuery.Builder buildNameQuery(String searchString) throws IOException {
+    List<String> placeNameTerms = analyze("placename", searchString);
+    if (placeNameTerms.isEmpty()) {
+      return null;
+    }
+    BooleanQuery.Builder placeName = new BooleanQuery.Builder();
+    for (String term : placeNameTerms) {
+      placeName.add(new TermQuery(new Term("placename", term)), BooleanClause.Occur.SHOULD);
+    }
+    BooleanQuery.Builder query = new BooleanQuery.Builder();
+    query.add(placeName.build(), BooleanClause.Occur.MUST);
+    if (searchString.trim().contains(" ") && useHierarchyField) {
+      BooleanQuery.Builder hierarchy = new BooleanQuery.Builder();
+      for (String term : analyze("hierarchy", searchString)) {
+        hierarchy.add(new TermQuery(new Term("hierarchy", term)), BooleanClause.Occur.MUST);
+      }
+      query.add(hierarchy.build(), BooleanClause.Occur.MUST);
+    }
+    return query;
+  }
+
+  /**
+   * Retrieves the precompiled filter of a where clause. Each distinct clause is
+   * compiled once. Clauses beyond simple {@code field:value} restrictions are
+   * parsed with the classic query parser, also once.
+   * <p>
+   * Filters are rewritten up front and registered with the caching policy of
+   * the searcher, so the query cache keeps the matching documents of, e.g.,
+   * {@code countrycode:us AND gazsource:usgs} per segment. The same
+   * country and source restriction is therefore computed once per segment,
+   * not once per name and document. Equal restrictions share their cache
+   * entry, no matter how the where clause string was written.
+   *
+   * @param whereClause the conditional statement that defines the index type and the country code
+   * @return the filter, a {@link MatchAllDocsQuery} for blank clauses
+   * @throws IllegalArgumentException Thrown if the clause cannot be parsed.
+   */
+  private Query getFilter(String whereClause) {
+    return filters.computeIfAbsent(whereClause, clause -> {
+      Query filter;
+      try {
+        filter = WhereClause.parse(clause).toFilter();
+      } catch (IllegalArgumentException ex) {
+        try {
+          filter = new QueryParser("placename", opennlpAnalyzer).parse(clause);
+        } catch (ParseException pex) {
+          throw new IllegalArgumentException("Invalid where clause: " + clause, pex);
         }
+      }
+      try {
+        Query parsed = filter;
+        filter = withSearcher(searcher -> searcher.rewrite(parsed));
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+      if (!(filter instanceof MatchAllDocsQuery)) {
+        filterQueries.add(filter);
+      }
+      return filter;
+    });
+  }
 
-        /*
-         * only want hits above the levenshtein thresh. This should be a low
-         * thresh due to the use of the hierarchy field in the index
-         */
-        // if (normLev > scoreCutoff) {
-        if (ge.getItemParentID().equalsIgnoreCase(parentid) || parentid.equalsIgnoreCase("")) {
-          //make sure we don't produce a duplicate
-          if (!linkedData.contains(ge)) {
-            linkedData.add(ge);
-            /*
-             * add the records to the cache for this query
-             */
-            GazetteerSearchCache.put(placeNameQueryString, linkedData);
-          }
+  /**
+   * Runs the text through the analyzer of the field.
+   */
+  private List<String> analyze(String field, String text) throws IOException {
+    List<String> terms = new ArrayList<>();
+    try (TokenStream tokens = opennlpAnalyzer.tokenStream(field, text)) {
+      CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+      tokens.reset();
+      while (tokens.incrementToken()) {
+        terms.add(term.toString());
+      }
+      tokens.end();
+    }
+    return terms;
+  }
+
+  private String cacheKey(String searchString, int rowsReturned, String whereClause) {
+    // results of older index generations are never looked up again
+    return generation.get() + "|" + searchString.toLowerCase() + '|' + rowsReturned + '|' + whereClause.trim();
+  }
+
+  /**
+   * Runs the query against the index and turns the top documents into immutable hits.
+   *
+   * @param query the lucene query
+   * @param rowsReturned how many index entries to return (top N...)
+   * @return the hits in the order of their lucene score, never {@code null}
+   */
+  private List<GazetteerHit> search(Query query, int rowsReturned) throws IOException {
+    return withSearcher(searcher -> {
+      TopDocs bestDocs = searcher.search(query, rowsReturned);
+      return new GazetteerHitReader(searcher.getIndexReader()).read(bestDocs.scoreDocs);
+    });
+  }
+
+  /**
+   * Runs a function with a searcher acquired from the current index and
+   * releases it afterwards. The reader of the searcher stays open until it is
+   * released, even if the index is refreshed or swapped in the meantime.
+   */
+  private <T> T withSearcher(SearchFunction<T> function) throws IOException {
+    while (true) {
+      SearcherManager manager = index.manager();
+      IndexSearcher searcher;
+      try {
+        searcher = manager.acquire();
+      } catch (AlreadyClosedException ex) {
+        if (manager == index.manager()) {
+          throw ex;
         }
+        // swapped in the meantime, try the new index
+        continue;
       }
+      try {
+        return function.apply(searcher);
+      } finally {
+        manager.release(searcher);
+      }
+    }
+  }
 
-    } catch (IOException | ParseException ex) {
-      LOG.error(ex.getLocalizedMessage(), ex);
+  /**
+   * Starts to {@link #refresh()} the index periodically if
+   * {@code opennlp.geoentitylinker.gaz.refresh.seconds} is set. Does nothing if
+   * it is not set or the refresh was started already.
+   */
+  public synchronized void start() {
+    if (refreshSeconds > 0 && refreshExecutor == null) {
+      refreshExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "gazetteer-refresh");
+        t.setDaemon(true);
+        return t;
+      });
+      refreshExecutor.scheduleWithFixedDelay(() -> {
+        try {
+          refresh();
+        } catch (IOException | RuntimeException ex) {
+          LOG.error(ex.getLocalizedMessage(), ex);
+        }
+      }, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
     }
+  }
 
-    return linkedData;
+  /**
+   * Reopens the index if it changed on disk, e.g. after the indexer added
+   * documents to it. The previous searcher stays usable for running searches.
+   *
+   * @return {@code true} if a new index generation is used from now on
+   * @throws IOException Thrown if the index could not be reopened.
+   */
+  public boolean refresh() throws IOException {
+    IndexHandle current = index;
+    long before = generation.get();
+    current.manager().maybeRefreshBlocking();
+    return generation.get() != before;
+  }
+
+  /**
+   * Switches to another index, e.g. a gazetteer that was rebuilt in a new
+   * directory, without interrupting running searches. They finish on the old
+   * index, which is closed once they release it.
+   *
+   * @param indexLocation the directory of the new index
+   * @throws IOException Thrown if the new index could not be opened. The current
+   *                     index is kept in that case.
+   */
+  public void swapIndex(Path indexLocation) throws IOException {
+    IndexHandle swapped = openIndex(indexLocation);
+    IndexHandle previous;
+    synchronized (this) {
+      previous = index;
+      index = swapped;
+    }
+    onNewGeneration();
+    if (previous != null) {
+      previous.close();
+    }
+    LOG.info("Swapped gazetteer index to {}", indexLocation);
+  }
+
+  /**
+   * Drops everything that depends on the previous index generation.
+   */
+  private void onNewGeneration() {
+    generation.incrementAndGet();
+    filters.clear();
+    filterQueries.clear();
+    cache.invalidateAll();
+  }
+
+  private IndexHandle openIndex(Path indexLocation) throws IOException {
+    Directory directory = new MMapDirectory(indexLocation);
+    try {
+      SearcherManager manager = new SearcherManager(directory, new SearcherFactory() {
+        @Override
+        public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+          return GazetteerSearcher.this.newSearcher(reader);
+        }
+      });
+      manager.addListener(new ReferenceManager.RefreshListener() {
+        @Override
+        public void beforeRefresh() {
+        }
+
+        @Override
+        public void afterRefresh(boolean didRefresh) {
+          if (didRefresh) {
+            onNewGeneration();
+            LOG.info("Refreshed gazetteer index {}", indexLocation);
+          }
+        }
+      });
+      return new IndexHandle(directory, manager);
+    } catch (IOException | RuntimeException ex) {
+      directory.close();
+      throw ex;
+    }
+  }
+
+  /**
+   * Stops the background threads and closes the index. Searches that are
+   * still running finish on the already acquired searcher.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (refreshExecutor != null) {
+        refreshExecutor.shutdownNow();
+      }
+    }
+    if (searchExecutor != null) {
+      searchExecutor.shutdownNow();
+    }
+    IndexHandle current = index;
+    if (current != null) {
+      current.close();
+    }
   }
 
   /**
@@ -195,18 +668,51 @@ public class GazetteerSearcher {
 
   }
 
+  /**
+   * Creates a searcher that shares the filter cache of this instance.
+   */
+  private IndexSearcher newSearcher(IndexReader reader) {
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setQueryCache(filterCache);
+    searcher.setQueryCachingPolicy(new FilterCachingPolicy());
+    return searcher;
+  }
+
+  /**
+   * Always caches the precompiled where clause filters, and leaves all other
+   * queries to the default {@link UsageTrackingQueryCachingPolicy}.
+   */
+  private final class FilterCachingPolicy implements QueryCachingPolicy {
+
+    private final QueryCachingPolicy defaultPolicy = new UsageTrackingQueryCachingPolicy();
+
+    @Override
+    public void onUse(Query query) {
+      defaultPolicy.onUse(query);
+    }
+
+    @Override
+    public boolean shouldCache(Query query) throws IOException {
+      return filterQueries.contains(query) || defaultPolicy.shouldCache(query);
+    }
+  }
+
   private void init() throws IOException {
 
-    if (opennlpIndex == null) {
+    if (index == null) {
       String indexloc = properties.getProperty("opennlp.geoentitylinker.gaz", "");
       if (indexloc.isEmpty()) {
         LOG.error("Opennlp combined Gaz directory location not found!");
       }
 
-      opennlpIndex = new MMapDirectory(Paths.get(indexloc));
-      // = DirectoryReader.open(geonamesIndex);
-      IndexReader opennlpReader = DirectoryReader.open(opennlpIndex);
-      opennlpSearcher = new IndexSearcher(opennlpReader);
+      int filterCacheSize = Integer.parseInt(
+          properties.getProperty("opennlp.geoentitylinker.gaz.filtercache.size", "1000"));
+      long filterCacheRam = Long.parseLong(
+          properties.getProperty("opennlp.geoentitylinker.gaz.filtercache.ram", "64"));
+      // cache filters on every segment, even if the place name query alone would be cheaper
+      filterCache = new LRUQueryCache(filterCacheSize, filterCacheRam * 1024 * 1024,
+          leaf -> true, Float.POSITIVE_INFINITY);
+      index = openIndex(Paths.get(indexloc));
       opennlpAnalyzer
           = //new StandardAnalyzer(Version.LUCENE_48, new CharArraySet(Version.LUCENE_48, new ArrayList(), true));
           new StandardAnalyzer(new CharArraySet(new ArrayList<>(), true));
@@ -229,24 +735,46 @@ public class GazetteerSearcher {
       if (usehierarchy != null && !usehierarchy.isEmpty()) {
         useHierarchyField = Boolean.parseBoolean(usehierarchy);
       }
+      combinedQuery = Boolean.parseBoolean(
+          properties.getProperty("opennlp.geoentitylinker.gaz.combinedquery", "false"));
       //  opennlp.geoentitylinker.gaz.doublequote=false
       //opennlp.geoentitylinker.gaz.hierarchyfield=false
 
     }
+    if (cache == null) {
+      int cacheSize = Integer.parseInt(properties.getProperty("opennlp.geoentitylinker.gaz.cache.size", "10000"));
+      long cacheTtl = Long.parseLong(properties.getProperty("opennlp.geoentitylinker.gaz.cache.ttl", "0"));
+      cache = new BoundedGazetteerSearchCache<>(cacheSize, cacheTtl, TimeUnit.SECONDS);
+    }
+    int searchThreads = Integer.parseInt(properties.getProperty("opennlp.geoentitylinker.gaz.search.threads", "0"));
+    if (searchThreads > 0 && searchExecutor == null) {
+      searchExecutor = Executors.newFixedThreadPool(searchThreads, r -> {
+        Thread t = new Thread(r, "gazetteer-search");
+        t.setDaemon(true);
+        return t;
+      });
+    }
+    refreshSeconds = Long.parseLong(properties.getProperty("opennlp.geoentitylinker.gaz.refresh.seconds", "0"));
   }
 
-  private String formatForHierarchy(String searchTerm) {
-    String[] parts = cleanInput(searchTerm).split(" ");
-    String out = "";
-    if (parts.length != 0) {
-      for (String string : parts) {
-        out += string + " AND ";
+  @FunctionalInterface
+  private interface SearchFunction<T> {
+    T apply(IndexSearcher searcher) throws IOException;
+  }
+
+  /**
+   * An open index, the directory is closed together with the searcher manager.
+   */
+  private record IndexHandle(Directory directory, SearcherManager manager) implements Closeable {
+
+    @Override
+    public void close() throws IOException {
+      try {
+        manager.close();
+      } finally {
+        directory.close();
       }
-      out = out.substring(0, out.lastIndexOf(" AND "));
-    } else {
-      out = cleanInput(searchTerm);
     }
-    return out;
   }
 
 }
@@ -15,20 +15,17 @@
  */
 package opennlp.addons.geoentitylinker;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import opennlp.addons.geoentitylinker.scoring.CountryProximityScorer;
-import opennlp.addons.geoentitylinker.scoring.FuzzyStringMatchScorer;
-import opennlp.addons.geoentitylinker.scoring.GeoHashBinningScorer;
 import opennlp.addons.geoentitylinker.scoring.LinkedEntityScorer;
-import opennlp.addons.geoentitylinker.scoring.ModelBasedScorer;
-import opennlp.addons.geoentitylinker.scoring.PlacetypeScorer;
-import opennlp.addons.geoentitylinker.scoring.ProvinceProximityScorer;
+import opennlp.addons.geoentitylinker.scoring.ScoreRegistry;
 import opennlp.tools.entitylinker.BaseLink;
 import opennlp.tools.entitylinker.EntityLinker;
 import opennlp.tools.entitylinker.EntityLinkerProperties;
@@ -39,47 +36,86 @@ import opennlp.tools.util.Span;
  * Links location entities to the USGS and GeoNames gazetteers, and uses several
  * scoring techniques to enable resolution. The gazetteers are stored in lucene
  * indexes. The indexes can be built using the GeoEntityLinkerSetupUtils class
- * in this same package.
+ * in this same package. With {@code opennlp.geoentitylinker.gaz.type=dictionary},
+ * names are looked up in a memory-mapped gazetteer dictionary instead, see
+ * {@link Gazetteer}.
+ * <p>
+ * Once {@link #init(EntityLinkerProperties)} has returned, a linker may be
+ * shared by any number of threads, and {@link #find(String, Span[], Span[][], Span[][])}
+ * may be called concurrently. The gazetteer index, the admin boundary tables
+ * and the scoring models are loaded once and shared. Everything that belongs
+ * to one document, i.e. its {@link AdminBoundaryContext}, its spans and their
+ * entries, is created per call, and the scorers keep no state between calls.
+ * The linker has to be published to other threads safely after {@code init},
+ * e.g. through a final field or a concurrent collection. The linker owns its
+ * gazetteer and scorer threads, {@link #close()} releases them.
+ * <p>
+ * The scorers are configured in the entitylinker properties:
+ * <ul>
+ * <li>{@code opennlp.geoentitylinker.scorers}: the scorers in the order they
+ * run, comma separated class names, all six scorers of the scoring package by
+ * default</li>
+ * <li>{@code opennlp.geoentitylinker.scorers.optional}: the scorers that are
+ * skipped once a document is over budget, {@code ModelBasedScorer} by default</li>
+ * <li>{@code opennlp.geoentitylinker.scorers.budget.ms}: the time budget of a
+ * document, {@code 0} for none</li>
+ * <li>{@code opennlp.geoentitylinker.scorers.budget.candidates}: the most
+ * entries of a document for the optional scorers, {@code 0} for no limit</li>
+ * <li>{@code opennlp.geoentitylinker.score.weight.<key>}: the weight of a score
+ * in the ranking, see {@link CandidateRanker}</li>
+ * </ul>
  */
-public class GeoEntityLinker implements EntityLinker<LinkedSpan<BaseLink>> {
+public class GeoEntityLinker implements EntityLinker<LinkedSpan<BaseLink>>, Closeable {
 
-  private static Integer topN = 2;
+  private static final String DEFAULT_SCORERS = "ProvinceProximityScorer,GeoHashBinningScorer,"
+      + "CountryProximityScorer,ModelBasedScorer,FuzzyStringMatchScorer,PlacetypeScorer";
+  private static final String DEFAULT_OPTIONAL_SCORERS = "ModelBasedScorer";
+
+  private int topN = 2;
   private AdminBoundaryContextGenerator countryContext;
   private EntityLinkerProperties linkerProperties;
-  private GazetteerSearcher gazetteerSearcher;
+  private Gazetteer gazetteer;
   private final List<LinkedEntityScorer<? extends BaseLink, AdminBoundaryContext>> scorers = new ArrayList<>();
+  private ScorerPipeline scorerPipeline;
+  private CandidateRanker candidateRanker;
 
   @Override
   public List<LinkedSpan<BaseLink>> find(String doctext, Span[] sentences,
                                          Span[][] tokensBySentence, Span[][] namesBySentence) {
+    long start = System.nanoTime();
     List<LinkedSpan<BaseLink>> spans = new ArrayList<>();
     //countryMentions = countryContext.regexfind(doctext);
     AdminBoundaryContext context = countryContext.getContext(doctext);
+    /*
+     * collect the names of the whole document first, so the gazetteer can resolve them in one batch
+     */
+    String[][] matchesBySentence = new String[sentences.length][];
+    Set<String> documentNames = new LinkedHashSet<>();
     for (int s = 0; s < sentences.length; s++) {
-      Span[] names = namesBySentence[s];
       Span[] tokenSpans = tokensBySentence[s];
       String[] tokens = Span.spansToStrings(tokenSpans, sentences[s].getCoveredText(doctext));
-      String[] matches = Span.spansToStrings(names, tokens);
+      matchesBySentence[s] = Span.spansToStrings(namesBySentence[s], tokens);
+      documentNames.addAll(Arrays.asList(matchesBySentence[s]));
+    }
+    List<String> whereClauses = new ArrayList<>(context.getWhereClauses());
+    if (whereClauses.isEmpty()) {
+      //this means there were no where clauses generated so the where clause will default to look at the entire index
+      whereClauses.add(" gazsource:usgs geonames region ");
+    }
+    Map<String, List<GazetteerHit>> hitsByName = gazetteer.findAllHits(documentNames, topN, whereClauses);
+
+    for (int s = 0; s < sentences.length; s++) {
+      Span[] names = namesBySentence[s];
+      String[] matches = matchesBySentence[s];
 
       for (int i = 0; i < matches.length; i++) {
 
+        /*
+         * each mention gets its own entries, the scorers score them in the context of the mention
+         */
         ArrayList<BaseLink> geoNamesEntries = new ArrayList<>();
-        if (!context.getWhereClauses().isEmpty()) {
-          for (String whereclause : context.getWhereClauses()) {
-            List<GazetteerEntry> find = gazetteerSearcher.find(matches[i], topN, whereclause);
-            for (GazetteerEntry gazetteerEntry : find) {
-              if (!geoNamesEntries.contains(gazetteerEntry)) {
-                geoNamesEntries.add(gazetteerEntry);
-              }
-            }
-          }
-        } else { //this means there were no where clauses generated so the where clause will default to look at the entire index
-          List<GazetteerEntry> find = gazetteerSearcher.find(matches[i], topN, " gaztype:usgs geonames regions ");
-          for (GazetteerEntry gazetteerEntry : find) {
-            if (!geoNamesEntries.contains(gazetteerEntry)) {
-              geoNamesEntries.add(gazetteerEntry);
-            }
-          }
+        for (GazetteerHit hit : hitsByName.getOrDefault(matches[i], List.of())) {
+          geoNamesEntries.add(hit.toEntry());
         }
         if (geoNamesEntries.isEmpty()) {
           continue;
@@ -92,15 +128,14 @@ public class GeoEntityLinker implements EntityLinker<LinkedSpan<BaseLink>> {
 
           double maxscore = 0d;
           for (BaseLink gazetteerEntry : geoNamesEntries) {
-            Double deNormScore = gazetteerEntry.getScoreMap().get("lucene");
-            if (deNormScore.compareTo(maxscore) > 0) {
+            double deNormScore = ScoreRegistry.get(gazetteerEntry, ScoreRegistry.LUCENE, 0d);
+            if (Double.compare(deNormScore, maxscore) > 0) {
               maxscore = deNormScore;
             }
           }
           for (BaseLink gazetteerEntry : geoNamesEntries) {
-            Double deNormScore = gazetteerEntry.getScoreMap().get("lucene");
-            Double normalize = normalize(deNormScore, 0d, maxscore);
-            gazetteerEntry.getScoreMap().put("normlucene", normalize);
+            double deNormScore = ScoreRegistry.get(gazetteerEntry, ScoreRegistry.LUCENE, 0d);
+            ScoreRegistry.put(gazetteerEntry, ScoreRegistry.NORMLUCENE, normalize(deNormScore, 0d, maxscore));
           }
         }
         LinkedSpan<BaseLink> newspan = new LinkedSpan<>(geoNamesEntries, names[i], 0);
@@ -111,51 +146,13 @@ public class GeoEntityLinker implements EntityLinker<LinkedSpan<BaseLink>> {
       }
     }
 
-    if (!scorers.isEmpty()) {
-      for (LinkedEntityScorer<? extends BaseLink, AdminBoundaryContext> scorer : scorers) {
-        LinkedEntityScorer<BaseLink, AdminBoundaryContext> s = (LinkedEntityScorer) scorer;
-        s.score(spans, doctext, sentences, linkerProperties, context);
-      }
-    }
+    scorerPipeline.score(spans, doctext, sentences, linkerProperties, context, start);
     
     /*
-     * sort the data with the best score on top based on the sum of the scores
-     * below from the score map for each BaseLink object
+     * keep the topN entries of each span, the one with the best total score on top
      */
     for (LinkedSpan<? extends BaseLink> s : spans) {
-      ArrayList<? extends BaseLink> linkedData = s.getLinkedEntries();
-      linkedData.sort(Collections.reverseOrder((o1, o2) -> {
-        Map<String, Double> o1scoreMap = o1.getScoreMap();
-        Map<String, Double> o2scoreMap = o2.getScoreMap();
-        if (o1scoreMap.size() != o2scoreMap.size()) {
-          return 0;
-        }
-        double sumo1 = 0d;
-        double sumo2 = 0d;
-        for (String object : o1scoreMap.keySet()) {
-          if (object.equals("typescore")
-                  || object.equals("countrycontext")
-                  || object.equals("placenamedicecoef")
-                  || object.equals("provincecontext")
-                  || object.equals("geohashbin")
-                  || object.equals("normlucene")) {
-            sumo1 += o1scoreMap.get(object);
-            sumo2 += o2scoreMap.get(object);
-          }
-        }
-
-        return Double.compare(sumo1, sumo2);
-      }));
-      //prune the list to topN
-      Iterator<? extends BaseLink> iterator = linkedData.iterator();
-      int n = 0;
-      while (iterator.hasNext()) {
-        if (n >= topN) {
-          iterator.remove();
-        }
-        iterator.next();
-        n++;
-      }
+      candidateRanker.rank(s.getLinkedEntries(), topN);
     }
 
     return spans;
@@ -170,30 +167,71 @@ public class GeoEntityLinker implements EntityLinker<LinkedSpan<BaseLink>> {
    * @param maximum the max of the set to be transposed
    * @return The value of the normalized distance.
    */
-  private Double normalize(Double valueToNormalize, double minimum, double maximum) {
+  private double normalize(double valueToNormalize, double minimum, double maximum) {
     double d = ((1 - 0) * (valueToNormalize - minimum)) / (maximum - minimum) + 0;
     return Double.isNaN(d) ? 0d : d;
   }
 
-  private void loadScorers() {
+  /**
+   * Loads the scorers named in {@code opennlp.geoentitylinker.scorers}, in that
+   * order. A name without a package is a scorer of the scoring package.
+   *
+   * @return whether each scorer is named in {@code opennlp.geoentitylinker.scorers.optional}
+   */
+  private boolean[] loadScorers() throws IOException {
+    String names = linkerProperties.getProperty("opennlp.geoentitylinker.scorers", DEFAULT_SCORERS);
+    Set<String> optionalNames = new LinkedHashSet<>(Arrays.asList(
+        linkerProperties.getProperty("opennlp.geoentitylinker.scorers.optional", DEFAULT_OPTIONAL_SCORERS)
+            .split("\\s*,\\s*")));
     if (scorers.isEmpty()) {
-      scorers.add(new ProvinceProximityScorer());
-      scorers.add(new GeoHashBinningScorer());
-      scorers.add(new CountryProximityScorer());
-      scorers.add(new ModelBasedScorer());
-      scorers.add(new FuzzyStringMatchScorer());
-      scorers.add(new PlacetypeScorer());
+      for (String name : names.split("\\s*,\\s*")) {
+        if (!name.isBlank()) {
+          scorers.add(newScorer(name.trim()));
+        }
+      }
+    }
+    boolean[] optional = new boolean[scorers.size()];
+    for (int i = 0; i < optional.length; i++) {
+      Class<?> type = scorers.get(i).getClass();
+      optional[i] = optionalNames.contains(type.getSimpleName()) || optionalNames.contains(type.getName());
+    }
+    return optional;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static LinkedEntityScorer<? extends BaseLink, AdminBoundaryContext> newScorer(String name) {
+    String className = name.contains(".") ? name : LinkedEntityScorer.class.getPackageName() + "." + name;
+    try {
+      return (LinkedEntityScorer<? extends BaseLink, AdminBoundaryContext>)
+          Class.forName(className).asSubclass(LinkedEntityScorer.class).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      throw new IllegalArgumentException("Cannot load the scorer " + name, e);
     }
   }
 
+  private static Gazetteer newGazetteer(EntityLinkerProperties properties) throws IOException {
+    String type = properties.getProperty("opennlp.geoentitylinker.gaz.type", "lucene");
+    return switch (type.trim().toLowerCase()) {
+      case "lucene" -> {
+        GazetteerSearcher searcher = new GazetteerSearcher(properties);
+        searcher.start();
+        yield searcher;
+      }
+      case "dictionary" -> new DictionaryGazetteer(properties);
+      default -> throw new IllegalArgumentException("Unknown gazetteer type " + type);
+    };
+  }
+
   @Override
   public void init(EntityLinkerProperties properties) throws IOException {
     if (properties == null) {
       throw new IllegalArgumentException("EntityLinkerProperties cannot be null");
     }
+    // a linker that is initialized again releases the gazetteer and threads of the previous init
+    close();
     this.linkerProperties = properties;
     countryContext = new AdminBoundaryContextGenerator(this.linkerProperties);
-    gazetteerSearcher = new GazetteerSearcher(this.linkerProperties);
+    gazetteer = newGazetteer(this.linkerProperties);
     String rowsRetStr = this.linkerProperties.getProperty("opennlp.geoentitylinker.gaz.rowsreturned", "2");
     int rws;
     try {
@@ -202,7 +240,40 @@ public class GeoEntityLinker implements EntityLinker<LinkedSpan<BaseLink>> {
       rws = 2;
     }
     topN = rws;
-    loadScorers();
+    boolean[] optional = loadScorers();
+    for (LinkedEntityScorer<? extends BaseLink, AdminBoundaryContext> scorer : scorers) {
+      scorer.init(this.linkerProperties);
+    }
+    /*
+     * with scorer threads the independent scorers of a document run at the same time
+     */
+    int scorerThreads = Integer.parseInt(
+        this.linkerProperties.getProperty("opennlp.geoentitylinker.scorers.threads", "0"));
+    long budgetMillis = Long.parseLong(
+        this.linkerProperties.getProperty("opennlp.geoentitylinker.scorers.budget.ms", "0"));
+    int candidateBudget = Integer.parseInt(
+        this.linkerProperties.getProperty("opennlp.geoentitylinker.scorers.budget.candidates", "0"));
+    scorerPipeline = new ScorerPipeline(scorers, optional, scorerThreads, budgetMillis, candidateBudget);
+    candidateRanker = new CandidateRanker(this.linkerProperties);
+  }
+
+  /**
+   * Shuts down the scorer threads and closes the gazetteer. Documents must not
+   * be linked anymore afterwards, unless the linker is initialized again.
+   *
+   * @throws IOException Thrown if the gazetteer could not be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (scorerPipeline != null) {
+      scorerPipeline.close();
+      scorerPipeline = null;
+    }
+    if (gazetteer != null) {
+      Gazetteer closing = gazetteer;
+      gazetteer = null;
+      closing.close();
+    }
   }
 
   @Override
@@ -0,0 +1,32 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker;
+
+import opennlp.tools.util.Span;
+
+/**
+ * A document with its sentences, tokens and names, the arguments of
+ * {@link GeoEntityLinker#find(String, Span[], Span[][], Span[][])}.
+ *
+ * @param text the full text of the document
+ * @param sentences the sentence spans of the text
+ * @param tokensBySentence the token spans of each sentence, relative to the sentence
+ * @param namesBySentence the name spans of each sentence, relative to its tokens
+ */
+public record LinkableDocument(String text, Span[] sentences, Span[][] tokensBySentence,
+                               Span[][] namesBySentence) {
+}
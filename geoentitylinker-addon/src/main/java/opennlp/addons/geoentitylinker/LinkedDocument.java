@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker;
+
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import opennlp.tools.entitylinker.BaseLink;
+import opennlp.tools.entitylinker.LinkedSpan;
+
+/**
+ * The result of linking one document with a {@link ParallelDocumentLinker}.
+ *
+ * @param index the position of the document in the input, counted from 0
+ * @param document the document
+ * @param spans the linked spans, empty if linking failed
+ * @param failure why linking failed, {@code null} if it succeeded
+ */
+public record LinkedDocument(long index, LinkableDocument document, List<LinkedSpan<BaseLink>> spans,
+                             Throwable failure) {
+
+  /**
+   * @return {@code true} if the document was linked
+   */
+  public boolean succeeded() {
+    return failure == null;
+  }
+
+  /**
+   * @return {@code true} if linking took longer than the timeout
+   */
+  public boolean timedOut() {
+    return failure instanceof TimeoutException;
+  }
+}
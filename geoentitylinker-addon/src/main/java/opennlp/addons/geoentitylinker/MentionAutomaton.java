@@ -0,0 +1,338 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An Aho-Corasick automaton over the literal names of all admin boundaries.
+ * A single pass over a document finds every occurrence of every name, also
+ * overlapping ones. Like the {@code CASE_INSENSITIVE} regexes it replaces,
+ * only US-ASCII letters are matched case-insensitively.
+ */
+final class MentionAutomaton {
+
+  /**
+   * The most alternatives a name may expand to, e.g. through character classes.
+   */
+  private static final int MAX_ALTERNATIVES = 64;
+
+  private final char[][] labels;
+  private final int[][] targets;
+  private final int[] failure;
+  private final int[] outputLink;
+  private final int[][] outputs;
+  private final int[] lengths;
+
+  /**
+   * @param patterns the literal patterns, the index of a pattern is its id
+   */
+  MentionAutomaton(List<String> patterns) {
+    List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+    List<List<Integer>> nodeOutputs = new ArrayList<>();
+    trie.add(new TreeMap<>());
+    nodeOutputs.add(new ArrayList<>());
+    lengths = new int[patterns.size()];
+    for (int id = 0; id < patterns.size(); id++) {
+      String pattern = patterns.get(id);
+      lengths[id] = pattern.length();
+      int node = 0;
+      for (int i = 0; i < pattern.length(); i++) {
+        char c = fold(pattern.charAt(i));
+        Integer next = trie.get(node).get(c);
+        if (next == null) {
+          next = trie.size();
+          trie.add(new TreeMap<>());
+          nodeOutputs.add(new ArrayList<>());
+          trie.get(node).put(c, next);
+        }
+        node = next;
+      }
+      nodeOutputs.get(node).add(id);
+    }
+
+    int size = trie.size();
+    labels = new char[size][];
+    targets = new int[size][];
+    outputs = new int[size][];
+    for (int node = 0; node < size; node++) {
+      TreeMap<Character, Integer> edges = trie.get(node);
+      labels[node] = new char[edges.size()];
+      targets[node] = new int[edges.size()];
+      int i = 0;
+      for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+        labels[node][i] = edge.getKey();
+        targets[node][i++] = edge.getValue();
+      }
+      outputs[node] = nodeOutputs.get(node).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // breadth first, so the failure links of shorter prefixes are known
+    failure = new int[size];
+    outputLink = new int[size];
+    Arrays.fill(outputLink, -1);
+    ArrayDeque<Integer> queue = new ArrayDeque<>();
+    for (int child : targets[0]) {
+      queue.add(child);
+    }
+    while (!queue.isEmpty()) {
+      int node = queue.poll();
+      for (int i = 0; i < labels[node].length; i++) {
+        char c = labels[node][i];
+        int child = targets[node][i];
+        int f = failure[node];
+        while (f != 0 && next(f, c) < 0) {
+          f = failure[f];
+        }
+        int fallback = next(f, c);
+        failure[child] = fallback >= 0 && fallback != child ? fallback : 0;
+        int link = failure[child];
+        outputLink[child] = outputs[link].length > 0 ? link : outputLink[link];
+        queue.add(child);
+      }
+    }
+  }
+
+  private int next(int node, char c) {
+    int i = Arrays.binarySearch(labels[node], c);
+    return i >= 0 ? targets[node][i] : -1;
+  }
+
+  /**
+   * Finds all occurrences of all patterns.
+   *
+   * @param text the document text
+   * @return the start offsets of each pattern that occurs in the text
+   */
+  Occurrences scan(CharSequence text) {
+    char[] folded = new char[text.length()];
+    Occurrences occurrences = new Occurrences(folded);
+    int node = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = fold(text.charAt(i));
+      folded[i] = c;
+      int next = next(node, c);
+      while (next < 0 && node != 0) {
+        node = failure[node];
+        next = next(node, c);
+      }
+      node = Math.max(next, 0);
+      for (int out = outputs[node].length > 0 ? node : outputLink[node]; out > 0; out = outputLink[out]) {
+        for (int pattern : outputs[out]) {
+          occurrences.add(pattern, i + 1 - lengths[pattern]);
+        }
+      }
+    }
+    return occurrences;
+  }
+
+  /**
+   * Collects the names of admin boundaries and builds the automaton over all
+   * names that are literal.
+   */
+  static final class Builder {
+
+    private final Map<String, Integer> ids = new LinkedHashMap<>();
+
+    /**
+     * @param name the name or regex of an admin boundary, as it is put between the boundary groups
+     * @return the pattern that finds the name, backed by the automaton if the name is literal
+     */
+    MentionPattern add(String name) {
+      List<String> alternatives = literalAlternatives(name);
+      if (alternatives == null) {
+        return new MentionPattern(name, null, null);
+      }
+      int[] literals = new int[alternatives.size()];
+      int[] lengths = new int[alternatives.size()];
+      for (int i = 0; i < literals.length; i++) {
+        String literal = alternatives.get(i);
+        literals[i] = ids.computeIfAbsent(literal, l -> ids.size());
+        lengths[i] = literal.length();
+      }
+      return new MentionPattern(name, literals, lengths);
+    }
+
+    MentionAutomaton build() {
+      return new MentionAutomaton(new ArrayList<>(ids.keySet()));
+    }
+  }
+
+  /**
+   * Folds US-ASCII upper case letters only, like {@link java.util.regex.Pattern#CASE_INSENSITIVE}
+   * without {@link java.util.regex.Pattern#UNICODE_CASE}.
+   */
+  static char fold(char c) {
+    return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+  }
+
+  /**
+   * Expands a regex into the literal strings it matches, if it is one of the
+   * simple forms found in country context files: a literal name, or a group of
+   * literal alternatives like {@code (u\.s\.[ $]|united states)}. Escaped
+   * punctuation and character classes of literal characters are supported.
+   *
+   * @param regex the regex of an admin boundary name
+   * @return the literal alternatives in the order the regex tries them, or
+   *         {@code null} if the regex uses any other syntax
+   */
+  static List<String> literalAlternatives(String regex) {
+    String body = regex;
+    boolean grouped = body.length() >= 2 && body.charAt(0) == '(' && body.charAt(body.length() - 1) == ')';
+    if (grouped) {
+      body = body.substring(1, body.length() - 1);
+    }
+    Set<String> alternatives = new LinkedHashSet<>();
+    List<StringBuilder> current = new ArrayList<>(List.of(new StringBuilder()));
+    for (int i = 0; i < body.length(); i++) {
+      char c = body.charAt(i);
+      if (c == '\\') {
+        if (i + 1 >= body.length() || Character.isLetterOrDigit(body.charAt(i + 1))) {
+          return null;
+        }
+        char escaped = fold(body.charAt(++i));
+        current.forEach(sb -> sb.append(escaped));
+      } else if (c == '|') {
+        // without the group, the alternation would split the boundary regex around the name
+        if (!grouped || !finish(current, alternatives)) {
+          return null;
+        }
+        current = new ArrayList<>(List.of(new StringBuilder()));
+      } else if (c == '[') {
+        int end = body.indexOf(']', i + 1);
+        if (end < 0) {
+          return null;
+        }
+        String members = body.substring(i + 1, end);
+        if (members.isEmpty() || members.charAt(0) == '^' || members.indexOf('-') >= 0
+            || members.indexOf('\\') >= 0 || members.indexOf('[') >= 0) {
+          return null;
+        }
+        List<StringBuilder> expanded = new ArrayList<>();
+        for (StringBuilder prefix : current) {
+          for (char member : new LinkedHashSet<>(toList(members))) {
+            expanded.add(new StringBuilder(prefix).append(fold(member)));
+          }
+        }
+        if (expanded.size() > MAX_ALTERNATIVES) {
+          return null;
+        }
+        current = expanded;
+        i = end;
+      } else if ("^$.?*+(){}]".indexOf(c) >= 0) {
+        return null;
+      } else {
+        current.forEach(sb -> sb.append(fold(c)));
+      }
+    }
+    if (!finish(current, alternatives) || alternatives.size() > MAX_ALTERNATIVES) {
+      return null;
+    }
+    return new ArrayList<>(alternatives);
+  }
+
+  private static boolean finish(List<StringBuilder> current, Set<String> alternatives) {
+    for (StringBuilder sb : current) {
+      if (sb.length() == 0) {
+        return false;
+      }
+      alternatives.add(sb.toString());
+    }
+    return true;
+  }
+
+  private static List<Character> toList(String chars) {
+    List<Character> list = new ArrayList<>(chars.length());
+    for (char c : chars.toCharArray()) {
+      list.add(c);
+    }
+    return list;
+  }
+
+  /**
+   * The start offsets of the patterns found in one text, in ascending order per pattern.
+   */
+  static final class Occurrences {
+
+    private final Map<Integer, Starts> starts = new HashMap<>();
+    private final char[] folded;
+    private String foldedText;
+
+    private Occurrences(char[] folded) {
+      this.folded = folded;
+    }
+
+    /**
+     * @return the text with US-ASCII letters in lower case, for regexes to check for their anchors
+     */
+    String foldedText() {
+      if (foldedText == null) {
+        foldedText = new String(folded);
+      }
+      return foldedText;
+    }
+
+    private void add(int pattern, int start) {
+      starts.computeIfAbsent(pattern, p -> new Starts()).add(start);
+    }
+
+    /**
+     * @param pattern the id of a pattern
+     * @return the start offsets of the pattern, in ascending order
+     */
+    int[] starts(int pattern) {
+      Starts s = starts.get(pattern);
+      return s == null ? new int[0] : Arrays.copyOf(s.offsets, s.size);
+    }
+
+    /**
+     * @param pattern the id of a pattern
+     * @param start an offset in the text
+     * @return {@code true} if the pattern occurs at the offset
+     */
+    boolean contains(int pattern, int start) {
+      Starts s = starts.get(pattern);
+      return s != null && Arrays.binarySearch(s.offsets, 0, s.size, start) >= 0;
+    }
+
+    boolean contains(int pattern) {
+      return starts.containsKey(pattern);
+    }
+  }
+
+  private static final class Starts {
+
+    private int[] offsets = new int[4];
+    private int size;
+
+    private void add(int start) {
+      if (size == offsets.length) {
+        offsets = Arrays.copyOf(offsets, size * 2);
+      }
+      offsets[size++] = start;
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The offsets of the admin boundary mentions of a document, per code, in sorted
+ * {@code int[]} arrays with their prefix sums. The nearest and the farthest
+ * mention of a code from a position are found by a binary search, and the sum
+ * of the distances to all its mentions in constant time, without iterating
+ * over the mentions.
+ */
+public final class MentionIndex {
+
+  private static final MentionIndex EMPTY = new MentionIndex(new String[0], new int[0][], new long[0][]);
+
+  private final String[] codes;
+  private final int[][] offsets;
+  private final long[][] prefixSums;
+  private final Map<String, Integer> indexes;
+
+  private MentionIndex(String[] codes, int[][] offsets, long[][] prefixSums) {
+    this.codes = codes;
+    this.offsets = offsets;
+    this.prefixSums = prefixSums;
+    this.indexes = new HashMap<>();
+    for (int i = 0; i < codes.length; i++) {
+      indexes.put(codes[i], i);
+    }
+  }
+
+  /**
+   * @param mentions the offsets of the mentions of each code, codes without mentions are left out
+   * @return the index of the mentions, with the codes in the iteration order of the map
+   */
+  public static MentionIndex of(Map<String, ? extends Collection<Integer>> mentions) {
+    if (mentions.isEmpty()) {
+      return EMPTY;
+    }
+    String[] codes = new String[mentions.size()];
+    int[][] offsets = new int[mentions.size()][];
+    long[][] prefixSums = new long[mentions.size()][];
+    int n = 0;
+    for (Map.Entry<String, ? extends Collection<Integer>> entry : mentions.entrySet()) {
+      if (entry.getValue().isEmpty()) {
+        continue;
+      }
+      int[] sorted = entry.getValue().stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+      long[] sums = new long[sorted.length + 1];
+      for (int i = 0; i < sorted.length; i++) {
+        sums[i + 1] = sums[i] + sorted[i];
+      }
+      codes[n] = entry.getKey();
+      offsets[n] = sorted;
+      prefixSums[n] = sums;
+      n++;
+    }
+    return new MentionIndex(Arrays.copyOf(codes, n), Arrays.copyOf(offsets, n), Arrays.copyOf(prefixSums, n));
+  }
+
+  /**
+   * @return the number of codes with mentions
+   */
+  public int size() {
+    return codes.length;
+  }
+
+  /**
+   * @param code a code
+   * @return the index of the code, {@code -1} if it has no mentions
+   */
+  public int indexOf(String code) {
+    Integer index = indexes.get(code);
+    return index != null ? index : -1;
+  }
+
+  /**
+   * @return the code at the index
+   */
+  public String code(int index) {
+    return codes[index];
+  }
+
+  /**
+   * @return the number of mentions of the code at the index
+   */
+  public int mentions(int index) {
+    return offsets[index].length;
+  }
+
+  /**
+   * @return the code with the most mentions, the first of them if several
+   * have as many, {@code ""} if there are no mentions
+   */
+  public String dominantCode() {
+    String dominantCode = "";
+    int hits = -1;
+    for (int i = 0; i < codes.length; i++) {
+      if (offsets[i].length > hits) {
+        hits = offsets[i].length;
+        dominantCode = codes[i];
+      }
+    }
+    return dominantCode;
+  }
+
+  /**
+   * @return the number of mentions of the code at the index that are at or before the position
+   */
+  private int before(int index, int position) {
+    int[] sorted = offsets[index];
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sorted[mid] <= position) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return the distance from the position to the nearest mention of the code at the index
+   */
+  public int nearestDistance(int index, int position) {
+    int[] sorted = offsets[index];
+    int before = before(index, position);
+    int nearest = Integer.MAX_VALUE;
+    if (before > 0) {
+      nearest = position - sorted[before - 1];
+    }
+    if (before < sorted.length) {
+      nearest = Math.min(nearest, sorted[before] - position);
+    }
+    return nearest;
+  }
+
+  /**
+   * @return the distance from the position to the farthest mention of the code at the index
+   */
+  public int farthestDistance(int index, int position) {
+    int[] sorted = offsets[index];
+    return Math.max(Math.abs(position - sorted[0]), Math.abs(sorted[sorted.length - 1] - position));
+  }
+
+  /**
+   * @return the sum of the distances from the position to all mentions of the code at the index
+   */
+  public long distanceSum(int index, int position) {
+    long[] sums = prefixSums[index];
+    int count = offsets[index].length;
+    int before = before(index, position);
+    long left = (long) before * position - sums[before];
+    long right = (sums[count] - sums[before]) - (long) (count - before) * position;
+    return left + right;
+  }
+}
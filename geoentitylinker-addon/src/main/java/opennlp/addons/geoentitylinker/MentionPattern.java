@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the mentions of one admin boundary name in a document, with the same
+ * results as searching the regex
+ * {@code (^|[^\p{L}\p{Nd}])name([^\p{L}\p{Nd}]|$)} case-insensitively. The
+ * start of a mention is the start of the regex match, so it includes the
+ * leading boundary character, and mentions never overlap.
+ * <p>
+ * Names that are literal are looked up in the occurrences of a
+ * {@link MentionAutomaton} scan instead of searching the text again. Only
+ * names with other regex syntax are still matched with the regex, which is
+ * compiled once. It is skipped if the longest literal text it requires is not
+ * in the document.
+ */
+final class MentionPattern {
+
+  /**
+   * Receives the mentions in the order they appear in the text.
+   */
+  @FunctionalInterface
+  interface MentionHandler {
+
+    /**
+     * @param start the start of the match, including the leading boundary character
+     * @param end the end of the match, including the trailing boundary character
+     */
+    void onMention(int start, int end);
+  }
+
+  private static final Comparator<int[]> CANDIDATE_ORDER =
+      Comparator.<int[]>comparingInt(c -> c[0]).thenComparingInt(c -> c[1]).thenComparingInt(c -> c[2]);
+
+  private final String name;
+  private final int[] literals;
+  private final int[] lengths;
+  private final Pattern pattern;
+  private final String anchor;
+
+  /**
+   * @param name the name or regex of the admin boundary
+   * @param literals the automaton ids of the literal alternatives in the order
+   *                 the regex tries them, {@code null} if the name is no literal
+   * @param lengths the lengths of the literal alternatives
+   */
+  MentionPattern(String name, int[] literals, int[] lengths) {
+    this.name = name;
+    this.literals = literals;
+    this.lengths = lengths;
+    this.pattern = literals == null ? Pattern.compile(regex(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL) : null;
+    this.anchor = literals == null ? literalAnchor(name) : null;
+  }
+
+  /**
+   * @return {@code true} if the mentions are found by the automaton
+   */
+  boolean isLiteral() {
+    return literals != null;
+  }
+
+  /**
+   * @return the regex that finds the mentions of the name
+   */
+  String regex() {
+    return "(^|[^\\p{L}\\p{Nd}])" + name + "([^\\p{L}\\p{Nd}]|$)";
+  }
+
+  /**
+   * Finds all mentions of the name.
+   *
+   * @param text the document text
+   * @param occurrences the result of scanning the text with the automaton the pattern was added to
+   * @param handler receives the mentions
+   */
+  void find(String text, MentionAutomaton.Occurrences occurrences, MentionHandler handler) {
+    if (literals == null) {
+      if (anchor != null && occurrences.foldedText().indexOf(anchor) < 0) {
+        return;
+      }
+      Matcher rs = pattern.matcher(text);
+      while (rs.find()) {
+        handler.onMention(rs.start(), rs.end());
+      }
+      return;
+    }
+
+    // where the regex would start for each occurrence of the name: {start, rank, name start}
+    List<int[]> candidates = new ArrayList<>();
+    for (int literal : literals) {
+      for (int n : occurrences.starts(literal)) {
+        addCandidates(text, n, candidates);
+      }
+    }
+    if (candidates.isEmpty()) {
+      return;
+    }
+    candidates.sort(CANDIDATE_ORDER);
+
+    // like Matcher.find(), the next search starts where the last match ended
+    int from = 0;
+    int[] last = null;
+    for (int[] candidate : candidates) {
+      if (candidate[0] < from || (last != null && last[0] == candidate[0] && last[2] == candidate[2])) {
+        continue;
+      }
+      last = candidate;
+      int end = matchAt(text, candidate[2], occurrences);
+      if (end >= 0) {
+        handler.onMention(candidate[0], end);
+        from = end;
+      }
+    }
+  }
+
+  /**
+   * Adds the offsets from which the leading boundary group reaches the name at {@code n}.
+   * The regex tries them by offset, and at offset 0 it tries {@code ^} before the boundary character.
+   */
+  private void addCandidates(String text, int n, List<int[]> candidates) {
+    if (n == 0) {
+      candidates.add(new int[] {0, 0, n});
+      return;
+    }
+    char before = text.charAt(n - 1);
+    if (n < text.length() && Character.isHighSurrogate(before) && Character.isLowSurrogate(text.charAt(n))) {
+      // the boundary group would consume the whole pair
+      return;
+    }
+    if (Character.isLowSurrogate(before) && n >= 2 && Character.isHighSurrogate(text.charAt(n - 2))) {
+      // the regex never starts inside a pair
+      if (isBoundary(Character.toCodePoint(text.charAt(n - 2), before))) {
+        candidates.add(new int[] {n - 2, 1, n});
+      }
+    } else if (isBoundary(before)) {
+      candidates.add(new int[] {n - 1, 1, n});
+    }
+  }
+
+  /**
+   * @return the end of the match if one of the alternatives starts at {@code n}
+   *         and is followed by a boundary, {@code -1} otherwise
+   */
+  private int matchAt(String text, int n, MentionAutomaton.Occurrences occurrences) {
+    for (int i = 0; i < literals.length; i++) {
+      if (!occurrences.contains(literals[i], n)) {
+        continue;
+      }
+      int e = n + lengths[i];
+      if (e == text.length()) {
+        return e;
+      }
+      int cp = Character.codePointAt(text, e);
+      if (isBoundary(cp)) {
+        return e + Character.charCount(cp);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Finds the longest literal text that every match of a regex contains. Only
+   * the part of the regex before the first group, character class or escape
+   * sequence is considered, and regexes with alternatives have no anchor.
+   *
+   * @param regex the regex of an admin boundary name
+   * @return the anchor, folded like the text of {@link MentionAutomaton.Occurrences#foldedText()},
+   *         or {@code null} if there is none
+   */
+  static String literalAnchor(String regex) {
+    if (regex.indexOf('|') >= 0) {
+      return null;
+    }
+    String best = "";
+    StringBuilder run = new StringBuilder();
+    for (int i = 0; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (c == '\\' && i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+        run.append(MentionAutomaton.fold(regex.charAt(++i)));
+        continue;
+      }
+      if (c == '?' || c == '*' || c == '{') {
+        // the last character is optional
+        if (run.length() > 0) {
+          run.setLength(run.length() - 1);
+        }
+      } else if (c != '\\' && c != '(' && c != '[' && "^$.+)]}".indexOf(c) < 0) {
+        run.append(MentionAutomaton.fold(c));
+        continue;
+      }
+      if (run.length() > best.length()) {
+        best = run.toString();
+      }
+      run.setLength(0);
+      if (c == '\\' || c == '(' || c == '[') {
+        break;
+      }
+      if (c == '{') {
+        // the bounds of the quantifier are no literal text
+        i = regex.indexOf('}', i);
+        if (i < 0) {
+          break;
+        }
+      }
+    }
+    if (run.length() > best.length()) {
+      best = run.toString();
+    }
+    return best.isEmpty() ? null : best;
+  }
+
+  private static boolean isBoundary(int cp) {
+    return !Character.isLetter(cp) && Character.getType(cp) != Character.DECIMAL_DIGIT_NUMBER;
+  }
+}
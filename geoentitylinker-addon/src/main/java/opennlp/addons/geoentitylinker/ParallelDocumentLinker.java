@@ -0,0 +1,333 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import opennlp.tools.entitylinker.BaseLink;
+import opennlp.tools.entitylinker.EntityLinker;
+import opennlp.tools.entitylinker.EntityLinkerProperties;
+import opennlp.tools.entitylinker.LinkedSpan;
+
+/**
+ * Links many documents in parallel with one shared, thread-safe linker such as
+ * the {@link GeoEntityLinker}. The documents are pulled from the input only as
+ * fast as they are linked: no more than {@code maxInFlight} documents are
+ * submitted and either not yet returned or still being linked at any time, so
+ * a slow consumer holds back the input instead of filling the memory.
+ * <p>
+ * The results are returned either in the order of the input or as soon as each
+ * document is done. A document that is not linked within the timeout, counted
+ * from its submission and so including the wait for a thread, is returned as
+ * {@link LinkedDocument#timedOut() timed out}. Linking is not interruptible, so
+ * a document that timed out keeps its slot until its linking finishes, and a
+ * document that timed out before it started is not linked at all. A failure is
+ * returned with its document and does not stop the others.
+ * <p>
+ * The executor can be configured in the entitylinker properties:
+ * <ul>
+ * <li>{@code opennlp.geoentitylinker.parallel.threads}: the number of threads,
+ * one per processor by default</li>
+ * <li>{@code opennlp.geoentitylinker.parallel.virtualthreads}: {@code true} to
+ * link each document in a virtual thread</li>
+ * <li>{@code opennlp.geoentitylinker.parallel.inflight}: the most documents in
+ * flight, twice the number of threads by default</li>
+ * <li>{@code opennlp.geoentitylinker.parallel.ordered}: {@code false} to return
+ * documents as they are done</li>
+ * <li>{@code opennlp.geoentitylinker.parallel.timeout.ms}: the timeout per
+ * document, {@code 0} for none</li>
+ * </ul>
+ */
+public class ParallelDocumentLinker implements Closeable {
+
+  private final EntityLinker<LinkedSpan<BaseLink>> linker;
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private final ScheduledExecutorService watchdog;
+  private final int maxInFlight;
+  private final boolean ordered;
+  private final long timeoutMillis;
+
+  /**
+   * Creates a linker with its own executor, configured by the properties.
+   *
+   * @param linker an initialized, thread-safe linker
+   * @param properties the entitylinker properties
+   * @throws IOException Thrown if the properties cannot be read.
+   */
+  public ParallelDocumentLinker(EntityLinker<LinkedSpan<BaseLink>> linker, EntityLinkerProperties properties)
+      throws IOException {
+    this(linker, newExecutor(properties), true,
+        Integer.parseInt(properties.getProperty("opennlp.geoentitylinker.parallel.inflight",
+            String.valueOf(2 * threads(properties)))),
+        Boolean.parseBoolean(properties.getProperty("opennlp.geoentitylinker.parallel.ordered", "true")),
+        Long.parseLong(properties.getProperty("opennlp.geoentitylinker.parallel.timeout.ms", "0")));
+  }
+
+  /**
+   * Creates a linker that runs on the given executor. The executor is not shut
+   * down by {@link #close()}.
+   *
+   * @param linker an initialized, thread-safe linker
+   * @param executor runs the linking of each document
+   * @param maxInFlight the most documents that are submitted and not yet returned, at least one
+   * @param ordered {@code true} to return the documents in the order of the input
+   * @param timeoutMillis the timeout per document in milliseconds, {@code 0} for none
+   */
+  public ParallelDocumentLinker(EntityLinker<LinkedSpan<BaseLink>> linker, ExecutorService executor,
+                                int maxInFlight, boolean ordered, long timeoutMillis) {
+    this(linker, executor, false, maxInFlight, ordered, timeoutMillis);
+  }
+
+  private ParallelDocumentLinker(EntityLinker<LinkedSpan<BaseLink>> linker, ExecutorService executor,
+                                 boolean ownsExecutor, int maxInFlight, boolean ordered, long timeoutMillis) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be at least 1");
+    }
+    if (timeoutMillis < 0) {
+      throw new IllegalArgumentException("timeoutMillis must not be negative");
+    }
+    this.linker = linker;
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.maxInFlight = maxInFlight;
+    this.ordered = ordered;
+    this.timeoutMillis = timeoutMillis;
+    if (timeoutMillis > 0) {
+      watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "geoentitylinker-watchdog");
+        t.setDaemon(true);
+        return t;
+      });
+    } else {
+      watchdog = null;
+    }
+  }
+
+  private static int threads(EntityLinkerProperties properties) throws IOException {
+    return Integer.parseInt(properties.getProperty("opennlp.geoentitylinker.parallel.threads",
+        String.valueOf(Runtime.getRuntime().availableProcessors())));
+  }
+
+  private static ExecutorService newExecutor(EntityLinkerProperties properties) throws IOException {
+    if (Boolean.parseBoolean(properties.getProperty("opennlp.geoentitylinker.parallel.virtualthreads", "false"))) {
+      return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("geoentitylinker-", 0).factory());
+    }
+    AtomicInteger count = new AtomicInteger();
+    return Executors.newFixedThreadPool(threads(properties), r -> {
+      Thread t = new Thread(r, "geoentitylinker-" + count.getAndIncrement());
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /**
+   * Links the documents in parallel. The documents are read from the input
+   * while the results are consumed, from the thread that consumes them.
+   *
+   * @param documents the documents to link
+   * @return the linked documents, one for each input document
+   */
+  public Iterator<LinkedDocument> linkAll(Iterator<LinkableDocument> documents) {
+    return new LinkingIterator(documents);
+  }
+
+  /**
+   * Links the documents in parallel, like {@link #linkAll(Iterator)}. Closing
+   * the returned stream closes the input stream.
+   *
+   * @param documents the documents to link
+   * @return the linked documents, one for each input document
+   */
+  public Stream<LinkedDocument> linkAll(Stream<LinkableDocument> documents) {
+    int characteristics = Spliterator.NONNULL | (ordered ? Spliterator.ORDERED : 0);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(linkAll(documents.iterator()), characteristics),
+        false).onClose(documents::close);
+  }
+
+  /**
+   * Shuts down the executor if it was created by this linker. Documents that
+   * are still being linked are not interrupted.
+   */
+  @Override
+  public void close() {
+    if (ownsExecutor) {
+      executor.shutdown();
+    }
+    if (watchdog != null) {
+      watchdog.shutdownNow();
+    }
+  }
+
+  /**
+   * One submitted document. Its slot is released once the document was
+   * returned and its linking finished, whichever happens last.
+   */
+  private final class Task implements Runnable {
+
+    private final long index;
+    private final LinkableDocument document;
+    private final Semaphore slots;
+    private final CompletableFuture<LinkedDocument> result = new CompletableFuture<>();
+    private final AtomicInteger holds = new AtomicInteger(2);
+    private volatile ScheduledFuture<?> timeout;
+
+    private Task(long index, LinkableDocument document, Semaphore slots) {
+      this.index = index;
+      this.document = document;
+      this.slots = slots;
+    }
+
+    private void submit() {
+      if (watchdog != null) {
+        timeout = watchdog.schedule(() -> result.complete(new LinkedDocument(index, document, List.of(),
+            new TimeoutException("Linking took longer than " + timeoutMillis + " ms"))),
+            timeoutMillis, TimeUnit.MILLISECONDS);
+      }
+      try {
+        executor.execute(this);
+      } catch (RejectedExecutionException ex) {
+        finish(new LinkedDocument(index, document, List.of(), ex));
+      }
+    }
+
+    @Override
+    public void run() {
+      if (result.isDone()) {
+        // timed out while it waited for a thread
+        release();
+        return;
+      }
+      try {
+        List<LinkedSpan<BaseLink>> spans = linker.find(document.text(), document.sentences(),
+            document.tokensBySentence(), document.namesBySentence());
+        finish(new LinkedDocument(index, document, spans, null));
+      } catch (Throwable t) {
+        finish(new LinkedDocument(index, document, List.of(), t));
+      }
+    }
+
+    private void finish(LinkedDocument linked) {
+      ScheduledFuture<?> scheduled = timeout;
+      if (scheduled != null) {
+        scheduled.cancel(false);
+      }
+      result.complete(linked);
+      release();
+    }
+
+    /**
+     * Called once when the document was returned and once when its linking
+     * finished.
+     */
+    private void release() {
+      if (holds.decrementAndGet() == 0) {
+        slots.release();
+      }
+    }
+  }
+
+  /**
+   * Submits documents while fewer than {@code maxInFlight} are in flight.
+   */
+  private final class LinkingIterator implements Iterator<LinkedDocument> {
+
+    private final Iterator<LinkableDocument> documents;
+    private final Semaphore slots = new Semaphore(maxInFlight);
+    private final ArrayDeque<Task> pending = new ArrayDeque<>();
+    private final BlockingQueue<Task> done = new LinkedBlockingQueue<>();
+    private int inFlight;
+    private long index;
+
+    private LinkingIterator(Iterator<LinkableDocument> documents) {
+      this.documents = documents;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (inFlight < maxInFlight && documents.hasNext()) {
+        // only wait for the slot of a timed out document if there is nothing else to return
+        if (inFlight == 0) {
+          acquireSlot();
+        } else if (!slots.tryAcquire()) {
+          break;
+        }
+        Task task = new Task(index++, documents.next(), slots);
+        if (ordered) {
+          pending.add(task);
+        } else {
+          task.result.thenRun(() -> done.add(task));
+        }
+        task.submit();
+        inFlight++;
+      }
+      return inFlight > 0;
+    }
+
+    @Override
+    public LinkedDocument next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Task task;
+      if (ordered) {
+        task = pending.poll();
+      } else {
+        try {
+          task = done.take();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while waiting for a linked document", ex);
+        }
+      }
+      LinkedDocument linked = task.result.join();
+      inFlight--;
+      task.release();
+      return linked;
+    }
+
+    private void acquireSlot() {
+      try {
+        slots.acquire();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for a free slot", ex);
+      }
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorable;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+
+/**
+ * Collects the top N documents of each of several filters from a single
+ * search. The search query has to match the union of the filters, e.g. a
+ * place name query restricted to all detected countries of a document. Each
+ * collected document is offered to the top N of every filter that it matches,
+ * so the result per filter is the same as searching the place name with that
+ * filter alone: same documents, same scores and the same tie-breaking by
+ * document id as {@link org.apache.lucene.search.TopScoreDocCollector}.
+ * <p>
+ * The filters are evaluated through {@link IndexSearcher#createWeight}, so
+ * they are served from the query cache of the searcher like any other
+ * where clause filter.
+ */
+final class PerFilterTopDocsCollector implements Collector {
+
+  /**
+   * The worst hit first: the lowest score, and among equal scores the highest document id.
+   */
+  private static final Comparator<ScoreDoc> WORST_FIRST =
+      Comparator.<ScoreDoc>comparingDouble(sd -> sd.score).thenComparing(sd -> -sd.doc);
+
+  private final List<Weight> filterWeights;
+  private final List<PriorityQueue<ScoreDoc>> queues;
+  private final int numHits;
+
+  /**
+   * @param searcher the searcher that runs the query
+   * @param filters the filters to collect the top documents for, already rewritten
+   * @param numHits how many documents to keep per filter
+   * @throws IOException Thrown if a filter weight cannot be created.
+   */
+  PerFilterTopDocsCollector(IndexSearcher searcher, List<Query> filters, int numHits) throws IOException {
+    this.numHits = numHits;
+    this.filterWeights = new ArrayList<>(filters.size());
+    this.queues = new ArrayList<>(filters.size());
+    for (Query filter : filters) {
+      // a null weight matches all documents
+      filterWeights.add(filter instanceof MatchAllDocsQuery ? null
+          : searcher.createWeight(filter, ScoreMode.COMPLETE_NO_SCORES, 1f));
+      queues.add(new PriorityQueue<>(Math.max(1, numHits), WORST_FIRST));
+    }
+  }
+
+  @Override
+  public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+    int filterCount = filterWeights.size();
+    DocIdSetIterator[] iterators = new DocIdSetIterator[filterCount];
+    boolean[] matchAll = new boolean[filterCount];
+    for (int i = 0; i < filterCount; i++) {
+      Weight weight = filterWeights.get(i);
+      if (weight == null) {
+        matchAll[i] = true;
+      } else {
+        Scorer scorer = weight.scorer(context);
+        iterators[i] = scorer == null ? null : scorer.iterator();
+      }
+    }
+    int docBase = context.docBase;
+    return new LeafCollector() {
+
+      private Scorable scorer;
+
+      @Override
+      public void setScorer(Scorable scorer) {
+        this.scorer = scorer;
+      }
+
+      @Override
+      public void collect(int doc) throws IOException {
+        float score = scorer.score();
+        for (int i = 0; i < filterCount; i++) {
+          if (matchAll[i] || matches(iterators[i], doc)) {
+            offer(queues.get(i), new ScoreDoc(docBase + doc, score));
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Documents are collected in order, so each filter iterator only moves forward.
+   */
+  private static boolean matches(DocIdSetIterator iterator, int doc) throws IOException {
+    if (iterator == null) {
+      return false;
+    }
+    int current = iterator.docID();
+    if (current < doc) {
+      current = iterator.advance(doc);
+    }
+    return current == doc;
+  }
+
+  private void offer(PriorityQueue<ScoreDoc> queue, ScoreDoc hit) {
+    if (numHits <= 0) {
+      return;
+    }
+    if (queue.size() < numHits) {
+      queue.add(hit);
+    } else if (WORST_FIRST.compare(hit, queue.peek()) > 0) {
+      queue.poll();
+      queue.add(hit);
+    }
+  }
+
+  /**
+   * @param filter the index of the filter in the list passed to the constructor
+   * @return the top documents of the filter, best first
+   */
+  ScoreDoc[] topDocs(int filter) {
+    List<ScoreDoc> hits = new ArrayList<>(queues.get(filter));
+    hits.sort(WORST_FIRST.reversed());
+    return hits.toArray(new ScoreDoc[0]);
+  }
+
+  @Override
+  public ScoreMode scoreMode() {
+    // every filter has its own top N, so no document can be skipped by score
+    return ScoreMode.COMPLETE;
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import opennlp.addons.geoentitylinker.scoring.LinkedEntityScorer;
+import opennlp.addons.geoentitylinker.scoring.SlotScoreMap;
+import opennlp.tools.entitylinker.BaseLink;
+import opennlp.tools.entitylinker.EntityLinkerProperties;
+import opennlp.tools.entitylinker.LinkedSpan;
+import opennlp.tools.util.Span;
+
+/**
+ * Runs the scorers of the {@link GeoEntityLinker} over the spans of a document.
+ * Each scorer writes its own keys into the score maps of the entries and
+ * reads none of the others, so they are independent of each other. With an
+ * executor, all scorers run at the same time: the score maps of the entries
+ * that are not {@link SlotScoreMap}s, which synchronize their writes, are
+ * replaced by concurrent maps first, the calling thread runs one scorer
+ * itself, and {@link #score} returns once all of them are done, so sorting by
+ * the scores only starts after the last scorer.
+ * <p>
+ * Optional scorers, usually the costly ones, are skipped once a document is
+ * over budget: when more time than the time budget has passed since linking of
+ * the document started, or when it has more entries than the candidate budget.
+ * The other scorers always run. A skipped scorer writes no scores, which rank
+ * as 0.
+ */
+final class ScorerPipeline implements Closeable {
+
+  private final List<LinkedEntityScorer<BaseLink, AdminBoundaryContext>> scorers;
+  private final boolean[] optional;
+  private final long budgetNanos;
+  private final int candidateBudget;
+  private final ExecutorService executor;
+
+  /**
+   * Creates a pipeline without optional scorers.
+   *
+   * @param scorers the scorers, in the order they run without an executor
+   * @param threads the number of threads to run the scorers in parallel, {@code 0} to run them one after another
+   */
+  ScorerPipeline(List<LinkedEntityScorer<? extends BaseLink, AdminBoundaryContext>> scorers, int threads) {
+    this(scorers, new boolean[scorers.size()], threads, 0, 0);
+  }
+
+  /**
+   * @param scorers the scorers, in the order they run without an executor
+   * @param optional whether each scorer is skipped when a document is over budget
+   * @param threads the number of threads to run the scorers in parallel, {@code 0} to run them one after another
+   * @param budgetMillis the time budget per document in milliseconds, {@code 0} for none
+   * @param candidateBudget the most entries of a document for the optional scorers, {@code 0} for no limit
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  ScorerPipeline(List<LinkedEntityScorer<? extends BaseLink, AdminBoundaryContext>> scorers, boolean[] optional,
+                 int threads, long budgetMillis, int candidateBudget) {
+    if (optional.length != scorers.size()) {
+      throw new IllegalArgumentException("optional must have one flag per scorer");
+    }
+    this.scorers = new ArrayList<>();
+    for (LinkedEntityScorer<? extends BaseLink, AdminBoundaryContext> scorer : scorers) {
+      this.scorers.add((LinkedEntityScorer) scorer);
+    }
+    this.optional = optional.clone();
+    this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    this.candidateBudget = candidateBudget;
+    if (threads > 0 && scorers.size() > 1) {
+      AtomicInteger count = new AtomicInteger();
+      executor = Executors.newFixedThreadPool(threads, r -> {
+        Thread t = new Thread(r, "geoentitylinker-scorer-" + count.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+      });
+    } else {
+      executor = null;
+    }
+  }
+
+  /**
+   * @return {@code true} if the scorers run in parallel
+   */
+  boolean isParallel() {
+    return executor != null;
+  }
+
+  /**
+   * Scores the entries of all spans with all scorers, the time budget starts now.
+   *
+   * @throws RuntimeException Thrown if a scorer failed, the first failure in the order of the scorers.
+   */
+  void score(List<LinkedSpan<BaseLink>> spans, String docText, Span[] sentences,
+             EntityLinkerProperties properties, AdminBoundaryContext context) {
+    score(spans, docText, sentences, properties, context, System.nanoTime());
+  }
+
+  /**
+   * Scores the entries of all spans with all scorers that fit the budget.
+   *
+   * @param startNanos the {@link System#nanoTime()} when linking of the document started
+   * @throws RuntimeException Thrown if a scorer failed, the first failure in the order of the scorers.
+   */
+  void score(List<LinkedSpan<BaseLink>> spans, String docText, Span[] sentences,
+             EntityLinkerProperties properties, AdminBoundaryContext context, long startNanos) {
+    int candidates = 0;
+    if (candidateBudget > 0) {
+      for (LinkedSpan<BaseLink> span : spans) {
+        candidates += span.getLinkedEntries().size();
+      }
+    }
+    if (executor == null) {
+      for (int i = 0; i < scorers.size(); i++) {
+        if (!optional[i] || !overBudget(startNanos, candidates)) {
+          scorers.get(i).score(spans, docText, sentences, properties, context);
+        }
+      }
+      return;
+    }
+
+    for (LinkedSpan<BaseLink> span : spans) {
+      for (BaseLink link : span.getLinkedEntries()) {
+        if (!(link.getScoreMap() instanceof SlotScoreMap)) {
+          link.setScoreMap(new ConcurrentHashMap<>(link.getScoreMap()));
+        }
+      }
+    }
+    List<LinkedEntityScorer<BaseLink, AdminBoundaryContext>> selected = new ArrayList<>(scorers.size());
+    for (int i = 0; i < scorers.size(); i++) {
+      if (!optional[i] || !overBudget(startNanos, candidates)) {
+        selected.add(scorers.get(i));
+      }
+    }
+    if (selected.isEmpty()) {
+      return;
+    }
+    List<CompletableFuture<Void>> running = new ArrayList<>(selected.size());
+    for (LinkedEntityScorer<BaseLink, AdminBoundaryContext> scorer : selected.subList(1, selected.size())) {
+      running.add(CompletableFuture.runAsync(
+          () -> scorer.score(spans, docText, sentences, properties, context), executor));
+    }
+    RuntimeException failure = null;
+    try {
+      selected.get(0).score(spans, docText, sentences, properties, context);
+    } catch (RuntimeException ex) {
+      failure = ex;
+    }
+    for (CompletableFuture<Void> scorer : running) {
+      try {
+        scorer.join();
+      } catch (CompletionException ex) {
+        if (failure == null) {
+          failure = ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private boolean overBudget(long startNanos, int candidates) {
+    return (candidateBudget > 0 && candidates > candidateBudget)
+        || (budgetNanos > 0 && System.nanoTime() - startNanos > budgetNanos);
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * A parsed where clause as generated by {@link AdminBoundaryContext}, for
+ * instance {@code countrycode:us AND gazsource:usgs}. The supported syntax is
+ * a conjunction of {@code field:value} restrictions, where a field may list
+ * several alternative values separated by spaces, e.g.
+ * {@code gazsource:usgs geonames region}. Values are matched exactly, as the
+ * restricted fields are indexed as keywords.
+ */
+final class WhereClause {
+
+  private final Map<String, Set<String>> terms;
+
+  private WhereClause(Map<String, Set<String>> terms) {
+    this.terms = terms;
+  }
+
+  /**
+   * @param whereClause the where clause to parse, blank clauses do not restrict anything
+   * @return the parsed clause
+   * @throws IllegalArgumentException Thrown if the clause uses syntax beyond
+   *         {@code field:value} restrictions joined by {@code AND}.
+   */
+  static WhereClause parse(String whereClause) {
+    Map<String, Set<String>> terms = new LinkedHashMap<>();
+    String field = null;
+    for (String token : whereClause.trim().split("\\s+")) {
+      if (token.isEmpty() || token.equals("AND") || token.equals("&&")) {
+        continue;
+      }
+      if (token.equals("OR") || token.equals("NOT") || token.equals("||")
+          || token.matches(".*[()\"\\[\\]{}*?~^+!\\-].*")) {
+        throw new IllegalArgumentException("Unsupported where clause syntax: " + whereClause);
+      }
+      int colon = token.indexOf(':');
+      String value = token;
+      if (colon >= 0) {
+        field = token.substring(0, colon);
+        value = token.substring(colon + 1);
+      } else if (field == null) {
+        throw new IllegalArgumentException("Value without field in where clause: " + whereClause);
+      }
+      Set<String> values = terms.computeIfAbsent(field, k -> new LinkedHashSet<>());
+      if (!value.isEmpty()) {
+        values.add(value);
+      }
+    }
+    terms.values().removeIf(Set::isEmpty);
+    return new WhereClause(Collections.unmodifiableMap(terms));
+  }
+
+  /**
+   * @return the allowed values by field name
+   */
+  Map<String, Set<String>> terms() {
+    return terms;
+  }
+
+  /**
+   * Builds a non-scoring filter with one {@link TermInSetQuery} per restricted
+   * field. If there are several fields, each of them is a required
+   * {@link BooleanClause.Occur#FILTER} clause.
+   *
+   * @return the filter, a {@link MatchAllDocsQuery} if the clause does not restrict anything
+   */
+  Query toFilter() {
+    if (terms.isEmpty()) {
+      return new MatchAllDocsQuery();
+    }
+    if (terms.size() == 1) {
+      Map.Entry<String, Set<String>> restriction = terms.entrySet().iterator().next();
+      return termsFilter(restriction.getKey(), restriction.getValue());
+    }
+    BooleanQuery.Builder filter = new BooleanQuery.Builder();
+    for (Map.Entry<String, Set<String>> restriction : terms.entrySet()) {
+      filter.add(termsFilter(restriction.getKey(), restriction.getValue()), BooleanClause.Occur.FILTER);
+    }
+    return filter.build();
+  }
+
+  /**
+   * Evaluates the clause against the fields of a single entry, for gazetteers
+   * that are not searched with lucene queries.
+   *
+   * @param fieldValues the value of an entry's field by field name, {@code null} if the entry does not have it
+   * @return {@code true} if every restricted field has one of its allowed values
+   */
+  boolean matches(Function<String, String> fieldValues) {
+    for (Map.Entry<String, Set<String>> restriction : terms.entrySet()) {
+      String value = fieldValues.apply(restriction.getKey());
+      if (value == null || !restriction.getValue().contains(value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Query termsFilter(String field, Set<String> values) {
+    List<BytesRef> refs = new ArrayList<>(values.size());
+    for (String value : values) {
+      refs.add(new BytesRef(value));
+    }
+    return new TermInSetQuery(field, refs);
+  }
+
+  @Override
+  public String toString() {
+    return "WhereClause" + terms;
+  }
+}
@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker.indexing;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiBits;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+
+/**
+ * Writes the gazetteer dictionary that the
+ * {@link opennlp.addons.geoentitylinker.DictionaryGazetteer} reads. The
+ * dictionary is built from the lucene index that the indexing processors
+ * wrote, so it has the same entries, and maps the {@link #normalize(String)
+ * normalized} place names and aliases of each entry to packed records. Aliases
+ * are the {@code name} and {@code alternatenames} of the geonames entries.
+ * <p>
+ * The file consists of, in this order:
+ * <ul>
+ * <li>a {@link CodecUtil} header</li>
+ * <li>the records, one per entry: the ordinals of the country code, admin code,
+ * location type and source in the string table, latitude, longitude, population,
+ * place name, hierarchy and location id</li>
+ * <li>the file pointer of each record, as fixed width longs</li>
+ * <li>the postings, per name the number of its records and their ordinals,
+ * most populous first</li>
+ * <li>the string table of the codes</li>
+ * <li>an {@link FST} from each name to the offset of its postings</li>
+ * <li>the start of each section and a {@link CodecUtil} footer</li>
+ * </ul>
+ * The names and their postings are collected in memory before they are written.
+ */
+public class GazetteerDictionaryWriter {
+
+  public static final String CODEC = "GeoEntityLinkerGazetteerDictionary";
+  public static final int VERSION = 0;
+  /**
+   * The number of longs in the trailer before the footer.
+   */
+  public static final int TRAILER_LONGS = 5;
+
+  private static final Pattern NOISE = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+  private static final Set<String> FIELDS = Set.of("placename", "hierarchy", "locid", "latitude", "longitude",
+      "countrycode", "admincode", "loctype", "gazsource", "population", "name", "alternatenames");
+
+  private GazetteerDictionaryWriter() {
+  }
+
+  /**
+   * Normalizes a place name the way it is looked up: noise chars become single
+   * spaces, as in the query strings of the searcher, and the name is lower cased.
+   *
+   * @param name the place name
+   * @return the normalized name, empty if it has no letters or digits
+   */
+  public static String normalize(String name) {
+    return NOISE.matcher(name).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Writes the dictionary of a gazetteer index.
+   *
+   * @param indexDir the lucene index built by the {@link GazetteerIndexer}
+   * @param dictionaryFile the dictionary file to write, replaced if it exists
+   * @return the number of records written
+   * @throws IOException Thrown if the index cannot be read or the file cannot be written.
+   */
+  public static long write(Path indexDir, Path dictionaryFile) throws IOException {
+    try (Directory dir = new MMapDirectory(indexDir);
+         IndexReader reader = DirectoryReader.open(dir)) {
+      return write(reader, dictionaryFile);
+    }
+  }
+
+  /**
+   * Writes the dictionary of all live documents of a gazetteer index. Documents
+   * without numeric coordinates are skipped.
+   *
+   * @param reader a reader of the lucene index built by the {@link GazetteerIndexer}
+   * @param dictionaryFile the dictionary file to write, replaced if it exists
+   * @return the number of records written
+   * @throws IOException Thrown if the index cannot be read or the file cannot be written.
+   */
+  public static long write(IndexReader reader, Path dictionaryFile) throws IOException {
+    Path parent = dictionaryFile.toAbsolutePath().getParent();
+    String fileName = dictionaryFile.getFileName().toString();
+    Map<String, Integer> stringOrds = new HashMap<>();
+    List<String> strings = new ArrayList<>();
+    Map<String, Postings> postingsByName = new HashMap<>();
+    long[] recordPointers = new long[Math.max(16, reader.numDocs())];
+    long[] populations = new long[recordPointers.length];
+    int records = 0;
+    int skipped = 0;
+
+    Files.deleteIfExists(dictionaryFile);
+    try (Directory dir = new MMapDirectory(parent);
+         IndexOutput out = dir.createOutput(fileName, IOContext.DEFAULT)) {
+      CodecUtil.writeHeader(out, CODEC, VERSION);
+
+      /*
+       * the records, in index order
+       */
+      Bits liveDocs = MultiBits.getLiveDocs(reader);
+      for (int docId = 0; docId < reader.maxDoc(); docId++) {
+        if (liveDocs != null && !liveDocs.get(docId)) {
+          continue;
+        }
+        Document doc = reader.document(docId, FIELDS);
+        double lat;
+        double lon;
+        try {
+          lat = Double.parseDouble(value(doc, "latitude").trim());
+          lon = Double.parseDouble(value(doc, "longitude").trim());
+        } catch (NumberFormatException ex) {
+          skipped++;
+          continue;
+        }
+        long population = 0;
+        try {
+          population = Long.parseLong(value(doc, "population").trim());
+        } catch (NumberFormatException ex) {
+          // no population for this entry
+        }
+        if (records == recordPointers.length) {
+          recordPointers = Arrays.copyOf(recordPointers, records * 2);
+          populations = Arrays.copyOf(populations, records * 2);
+        }
+        recordPointers[records] = out.getFilePointer();
+        populations[records] = Math.max(0, population);
+
+        out.writeVInt(ord(stringOrds, strings, value(doc, "countrycode").toLowerCase(Locale.ROOT)));
+        out.writeVInt(ord(stringOrds, strings, value(doc, "admincode")));
+        out.writeVInt(ord(stringOrds, strings, value(doc, "loctype")));
+        out.writeVInt(ord(stringOrds, strings, value(doc, "gazsource")));
+        out.writeLong(Double.doubleToLongBits(lat));
+        out.writeLong(Double.doubleToLongBits(lon));
+        out.writeVLong(populations[records]);
+        out.writeString(value(doc, "placename"));
+        out.writeString(value(doc, "hierarchy"));
+        out.writeString(value(doc, "locid"));
+
+        for (String name : names(doc)) {
+          postingsByName.computeIfAbsent(name, k -> new Postings()).add(records);
+        }
+        records++;
+        if (records % 1_000_000 == 0) {
+          System.out.printf("dictionary: %,d records written%n", records);
+        }
+      }
+
+      long offsetsStart = out.getFilePointer();
+      for (int i = 0; i < records; i++) {
+        out.writeLong(recordPointers[i]);
+      }
+
+      /*
+       * the postings, in the order of the names in the fst
+       */
+      BytesRef[] names = new BytesRef[postingsByName.size()];
+      int n = 0;
+      for (String name : postingsByName.keySet()) {
+        names[n++] = new BytesRef(name);
+      }
+      Arrays.sort(names);
+      long postingsStart = out.getFilePointer();
+      Builder<Long> fstBuilder = new Builder<>(FST.INPUT_TYPE.BYTE1, PositiveIntOutputs.getSingleton());
+      IntsRefBuilder scratch = new IntsRefBuilder();
+      for (BytesRef name : names) {
+        Postings postings = postingsByName.get(name.utf8ToString());
+        fstBuilder.add(Util.toIntsRef(name, scratch), out.getFilePointer() - postingsStart);
+        int[] ords = postings.byPopulation(populations);
+        out.writeVInt(ords.length);
+        for (int ord : ords) {
+          out.writeVInt(ord);
+        }
+      }
+
+      long stringsStart = out.getFilePointer();
+      out.writeVInt(strings.size());
+      for (String string : strings) {
+        out.writeString(string);
+      }
+
+      long fstStart = out.getFilePointer();
+      FST<Long> fst = fstBuilder.finish();
+      out.writeByte((byte) (fst == null ? 0 : 1));
+      if (fst != null) {
+        fst.save(out, out);
+      }
+
+      out.writeLong(records);
+      out.writeLong(offsetsStart);
+      out.writeLong(postingsStart);
+      out.writeLong(stringsStart);
+      out.writeLong(fstStart);
+      CodecUtil.writeFooter(out);
+      System.out.printf("dictionary: %,d records and %,d names written to %s, %,d entries without coordinates "
+          + "skipped%n", records, names.length, dictionaryFile, skipped);
+    }
+    return records;
+  }
+
+  private static String value(Document doc, String field) {
+    String value = doc.get(field);
+    return value == null ? "" : value;
+  }
+
+  private static int ord(Map<String, Integer> stringOrds, List<String> strings, String value) {
+    return stringOrds.computeIfAbsent(value, k -> {
+      strings.add(k);
+      return strings.size() - 1;
+    });
+  }
+
+  /**
+   * @return the distinct normalized place name and aliases of an entry
+   */
+  private static Set<String> names(Document doc) {
+    Set<String> names = new LinkedHashSet<>();
+    addName(names, doc.get("placename"));
+    addName(names, doc.get("name"));
+    String alternateNames = doc.get("alternatenames");
+    if (alternateNames != null) {
+      for (String alias : alternateNames.split(",")) {
+        addName(names, alias);
+      }
+    }
+    return names;
+  }
+
+  private static void addName(Set<String> names, String name) {
+    if (name != null) {
+      String normalized = normalize(name);
+      if (!normalized.isEmpty()) {
+        names.add(normalized);
+      }
+    }
+  }
+
+  /**
+   * The record ordinals of a name, in the order they were added.
+   */
+  private static final class Postings {
+
+    private int[] ords = new int[1];
+    private int size;
+
+    void add(int ord) {
+      if (size == ords.length) {
+        ords = Arrays.copyOf(ords, size * 2);
+      }
+      ords[size++] = ord;
+    }
+
+    /**
+     * @return the ordinals, most populous first and in index order among equals
+     */
+    int[] byPopulation(long[] populations) {
+      // population descending in the high bits, the ordinal ascending in the low 31 bits
+      long[] keys = new long[size];
+      for (int i = 0; i < size; i++) {
+        long population = Math.min(populations[ords[i]], 0xFFFFFFFFL);
+        keys[i] = ((0xFFFFFFFFL - population) << 31) | ords[i];
+      }
+      Arrays.sort(keys);
+      int[] sorted = new int[size];
+      for (int i = 0; i < size; i++) {
+        sorted[i] = (int) (keys[i] & Integer.MAX_VALUE);
+      }
+      return sorted;
+    }
+  }
+
+  public static void main(String[] args) {
+    if (args.length != 2) {
+      System.out.println("Usage: GazetteerDictionaryWriter indexDir dictionaryFile");
+      System.out.println();
+      System.out.println("indexDir is the opennlp_geoentitylinker_gazetteer index written by the GazetteerIndexer.");
+      return;
+    }
+    try {
+      write(Paths.get(args[0]), Paths.get(args[1]));
+    } catch (Exception ex) {
+      ex.printStackTrace();
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker.indexing;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Adds the column-stride copies of the standard gazetteer fields to a
+ * document. The stored fields stay as they are, the doc values let the
+ * {@link opennlp.addons.geoentitylinker.GazetteerSearcher} read coordinates
+ * and codes of a hit without loading and parsing the stored document.
+ */
+public final class GazetteerDocValues {
+
+  public static final String LATITUDE = "latitude";
+  public static final String LONGITUDE = "longitude";
+  public static final String COUNTRY_CODE = "countrycode";
+  public static final String ADMIN_CODE = "admincode";
+  public static final String LOC_TYPE = "loctype";
+  public static final String SOURCE = "gazsource";
+
+  private GazetteerDocValues() {
+  }
+
+  /**
+   * Adds the doc values of a gazetteer entry. Coordinates that are not numeric
+   * are skipped, the searcher falls back to the stored fields for them.
+   *
+   * @param doc the document to add the doc values to
+   * @param lat the latitude as found in the gazetteer file
+   * @param lon the longitude as found in the gazetteer file
+   * @param countryCode the country code, as indexed
+   * @param adminCode the admin code, as indexed
+   * @param locType the location type, as indexed
+   * @param source the gazetteer source, as indexed
+   */
+  public static void add(Document doc, String lat, String lon, String countryCode, String adminCode,
+                         String locType, String source) {
+    try {
+      double latitude = Double.parseDouble(lat.trim());
+      double longitude = Double.parseDouble(lon.trim());
+      doc.add(new DoubleDocValuesField(LATITUDE, latitude));
+      doc.add(new DoubleDocValuesField(LONGITUDE, longitude));
+    } catch (NumberFormatException ex) {
+      // no numeric coordinates for this entry
+    }
+    doc.add(new SortedDocValuesField(COUNTRY_CODE, new BytesRef(countryCode)));
+    doc.add(new SortedDocValuesField(ADMIN_CODE, new BytesRef(adminCode)));
+    doc.add(new SortedDocValuesField(LOC_TYPE, new BytesRef(locType)));
+    doc.add(new SortedDocValuesField(SOURCE, new BytesRef(source)));
+  }
+}
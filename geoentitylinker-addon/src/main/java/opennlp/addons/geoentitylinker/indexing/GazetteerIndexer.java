@@ -28,8 +28,10 @@ import org.apache.lucene.analysis.CharArraySet;
 import org.apache.lucene.analysis.core.KeywordAnalyzer;
 import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.MMapDirectory;
 
@@ -42,9 +44,97 @@ import opennlp.addons.geoentitylinker.GeoEntityLinker;
  */
 public class GazetteerIndexer {
 
+  /**
+   * The RAM buffer of the bulk-load mode, large enough to flush few and big segments.
+   */
+  public static final double BULK_RAM_BUFFER_SIZE_MB = 1024;
+
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private int batchSize = 1000;
+  private double ramBufferSizeMB = IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB;
+  private MergePolicy mergePolicy;
+  private int maxSegments = 0;
+  private boolean checkpoints = false;
+  private long checkpointInterval = 1_000_000;
+  private File dictionaryFile;
+
   public GazetteerIndexer() {
   }
 
+  /**
+   * @param threads the number of threads that build and add documents, see {@link IndexingPipeline}
+   */
+  public void setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be at least 1");
+    }
+    this.threads = threads;
+  }
+
+  /**
+   * @param batchSize the number of lines handed to a builder thread at once
+   */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @param ramBufferSizeMB the RAM the index writer buffers documents in before it flushes a segment
+   */
+  public void setRamBufferSizeMB(double ramBufferSizeMB) {
+    this.ramBufferSizeMB = ramBufferSizeMB;
+  }
+
+  /**
+   * @param mergePolicy the merge policy of the index writer, {@code null} for the lucene default
+   */
+  public void setMergePolicy(MergePolicy mergePolicy) {
+    this.mergePolicy = mergePolicy;
+  }
+
+  /**
+   * Switches to the bulk-load mode: a RAM buffer of {@link #BULK_RAM_BUFFER_SIZE_MB}
+   * and a force merge down to one segment after the load. Both can be changed
+   * afterwards. The index is committed once at the end in any mode, unless
+   * checkpoints are enabled.
+   */
+  public void setBulkLoad() {
+    this.ramBufferSizeMB = Math.max(ramBufferSizeMB, BULK_RAM_BUFFER_SIZE_MB);
+    this.maxSegments = 1;
+  }
+
+  /**
+   * @param maxSegments force merge the index down to this many segments after the load,
+   *                    {@code 0} to leave merging to the merge policy
+   */
+  public void setMaxSegments(int maxSegments) {
+    this.maxSegments = maxSegments;
+  }
+
+  /**
+   * Enables checkpoints, see {@link IndexCheckpoint}. A build that stopped is
+   * resumed from its last checkpoint when it is started again on the same
+   * output directory: completed gazetteers are skipped, the gazetteer in
+   * progress continues after its last committed row.
+   *
+   * @param checkpointInterval commit a checkpoint after this many rows of a gazetteer file
+   */
+  public void setCheckpoints(long checkpointInterval) {
+    this.checkpoints = true;
+    this.checkpointInterval = checkpointInterval;
+  }
+
+  /**
+   * Also writes a gazetteer dictionary for the
+   * {@link opennlp.addons.geoentitylinker.DictionaryGazetteer} once the index
+   * is complete, see {@link GazetteerDictionaryWriter}.
+   *
+   * @param dictionaryFile the dictionary file, outside the index directory, {@code null} for none
+   */
+  public void setDictionaryFile(File dictionaryFile) {
+    this.dictionaryFile = dictionaryFile;
+  }
+
   public interface Separable {
 
     String getSeparator();
@@ -155,17 +245,52 @@ public class GazetteerIndexer {
 
     final PerFieldAnalyzerWrapper aWrapper = new PerFieldAnalyzerWrapper(a, analyMap);
     final IndexWriterConfig config = new IndexWriterConfig(aWrapper);
+    config.setRAMBufferSizeMB(ramBufferSizeMB);
+    if (mergePolicy != null) {
+      config.setMergePolicy(mergePolicy);
+    }
     try (IndexWriter w = new IndexWriter(index, config)) {
+      IndexingPipeline pipeline = new IndexingPipeline(w, threads);
+      pipeline.setBatchSize(batchSize);
+      IndexCheckpoint checkpoint = null;
+      if (checkpoints) {
+        checkpoint = IndexCheckpoint.load(w);
+        pipeline.setCheckpoint(checkpoint, checkpointInterval);
+      }
       //write the column headers for the countryContextFile
       try (FileWriter writer = new FileWriter(outputCountryContextFile, false)) {
         String colNamesForCountryContextFile = "countrycode\tprovcode\tcountycode\tcountryname\tprovincename\tcountyname\tcountryregex\tprovregex\tcountyregex\n";
         writer.write(colNamesForCountryContextFile);
         writer.flush();
       }
-      USGSProcessor.process(usgsGovUnitsFile, usgsDataFile, outputCountryContextFile, w);
-      GeonamesProcessor.process(geoNamesCountryInfo, geonamesAdmin1CodesASCII, geonamesData, outputCountryContextFile, w);
-      RegionProcessor.process(regionsFile, outputCountryContextFile, w);
+      /*
+       * the country context file is written from scratch, completed stages only add their context entries
+       */
+      boolean done = checkpoint != null && checkpoint.isCompleted(USGSProcessor.STAGE);
+      USGSProcessor.process(usgsGovUnitsFile, usgsDataFile, outputCountryContextFile, done ? null : pipeline);
+      completed(checkpoint, USGSProcessor.STAGE, done);
+
+      done = checkpoint != null && checkpoint.isCompleted(GeonamesProcessor.STAGE);
+      GeonamesProcessor.process(geoNamesCountryInfo, geonamesAdmin1CodesASCII, geonamesData, outputCountryContextFile,
+          done ? null : pipeline);
+      completed(checkpoint, GeonamesProcessor.STAGE, done);
+
+      done = checkpoint != null && checkpoint.isCompleted(RegionProcessor.STAGE);
+      RegionProcessor.process(regionsFile, outputCountryContextFile, done ? null : w);
+      completed(checkpoint, RegionProcessor.STAGE, done);
+
       w.commit();
+      if (maxSegments > 0) {
+        System.out.println("merging the index down to " + maxSegments + " segment(s)...........");
+        w.forceMerge(maxSegments);
+        w.commit();
+      }
+      if (dictionaryFile != null) {
+        System.out.println("writing the gazetteer dictionary...........");
+        try (DirectoryReader reader = DirectoryReader.open(w)) {
+          GazetteerDictionaryWriter.write(reader, dictionaryFile.toPath());
+        }
+      }
     }
 
     System.out.println("\nIndexing complete. Be sure to add '" + indexloc + "' and context file '" +
@@ -173,6 +298,12 @@ public class GazetteerIndexer {
   }
 
 
+  private static void completed(IndexCheckpoint checkpoint, String stage, boolean skipped) throws IOException {
+    if (checkpoint != null && !skipped) {
+      checkpoint.commitCompleted(stage);
+    }
+  }
+
   public static void main(String[] args) {
 
     if (args.length != 8) {
@@ -37,6 +37,11 @@ import opennlp.addons.geoentitylinker.AdminBoundary;
 
 public class GeonamesProcessor {
 
+  /**
+   * The name of the geonames stage in progress reports and checkpoints.
+   */
+  public static final String STAGE = "Geonames";
+
   private static final String REGEX_NUMBERS = "[0-9].*";
   private static final String TAB = "\t";
   
@@ -50,13 +55,21 @@ public class GeonamesProcessor {
 
   public static void process(File countryCodesLookup, File adm1CodesLookup,
                              File geonamesGazetteer, File outputCountryContext, IndexWriter w) throws IOException {
+    process(countryCodesLookup, adm1CodesLookup, geonamesGazetteer, outputCountryContext, new IndexingPipeline(w));
+  }
+
+  public static void process(File countryCodesLookup, File adm1CodesLookup, File geonamesGazetteer,
+                             File outputCountryContext, IndexingPipeline pipeline) throws IOException {
     Map<String, String> countryCodes = getCountryCodes(countryCodesLookup);
 
     Map<String, AdminBoundary> adm1s = getProvData(adm1CodesLookup, countryCodes);
     //  List<AdminBoundary> adm2s = getCountryContextFromFile(new File("C:\\temp\\gazetteers\\geonamesdata\\admin2Codes.txt"));
     //admin2Codes.txt
 
-    readFile(geonamesGazetteer, GazetteerIndexer.GazType.GEONAMES, adm1s, countryCodes, w);
+    // without a pipeline only the country context is written, like the RegionProcessor does without a writer
+    if (pipeline != null) {
+      readFile(geonamesGazetteer, GazetteerIndexer.GazType.GEONAMES, adm1s, countryCodes, pipeline);
+    }
     //now append to the country context file
     writeCountryContextFile(outputCountryContext, adm1s);
 
@@ -177,6 +190,18 @@ public class GeonamesProcessor {
   public static void readFile(File gazateerInputData, GazetteerIndexer.GazType type,
                               Map<String, AdminBoundary> adms, Map<String, String> countrycodes,
                               IndexWriter w) throws IOException {
+    readFile(gazateerInputData, type, adms, countrycodes, new IndexingPipeline(w));
+  }
+
+  /**
+   * Same as {@link #readFile(File, GazetteerIndexer.GazType, Map, Map, IndexWriter)},
+   * with the documents built and added by the given pipeline.
+   *
+   * @throws IOException Thrown if IO errors occurred.
+   */
+  public static void readFile(File gazateerInputData, GazetteerIndexer.GazType type,
+                              Map<String, AdminBoundary> adms, Map<String, String> countrycodes,
+                              IndexingPipeline pipeline) throws IOException {
 
     final Map<String, Float> boostMap = new HashMap<>();
     for (String boost : BOOSTS) {
@@ -187,12 +212,10 @@ public class GeonamesProcessor {
             "admin1_code", "admin2_code", "admin3_code", "admin4_code", "population",
             "elevation", "dem ", "timezone", "modification_date");
 
-    int counter = 0;
     System.out.println("reading gazetteer data from file...........");
-    String line;
 
     try (BufferedReader reader = new BufferedReader(new FileReader(gazateerInputData))) {
-      while ((line = reader.readLine()) != null) {
+      pipeline.run(reader, line -> {
         String[] values = line.split(type.getSeparator());
 
         Document doc = new Document();
@@ -257,15 +280,11 @@ public class GeonamesProcessor {
           System.out.println(placeName);
         }
         doc.add(new StringField("gazsource", "geonames", Field.Store.YES));
+        GazetteerDocValues.add(doc, lat, lon, ccode.toLowerCase(), (ccode + "." + admincode).toLowerCase(),
+            dsg, "geonames");
 
-        w.addDocument(doc);
-
-        counter++;
-        if (counter % 100000 == 0) {
-          w.commit();
-          System.out.println(counter + " .........Geonames entries committed to index..............");
-        }
-      }
+        return doc;
+      }, STAGE);
     }
     System.out.println("Completed indexing geonames gaz! index name is: " + type.toString());
   }
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker.indexing;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.index.IndexWriter;
+
+/**
+ * The progress of a gazetteer build, stored in the user data of the index
+ * commits. Every checkpoint commits the documents of all rows read so far
+ * together with the stage and the number of rows, so a build that crashed can
+ * be resumed from the last checkpoint instead of from scratch. A stage is a
+ * single gazetteer file, e.g. {@code usgs} or {@code geonames}.
+ */
+public class IndexCheckpoint {
+
+  static final String COMPLETED = "opennlp.gazetteer.completed";
+  static final String STAGE = "opennlp.gazetteer.stage";
+  static final String ROWS = "opennlp.gazetteer.rows";
+
+  private final IndexWriter writer;
+  private final Set<String> completed = new LinkedHashSet<>();
+  private String stage;
+  private long rows;
+
+  private IndexCheckpoint(IndexWriter writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * Reads the checkpoint of the last commit of the writer's index.
+   *
+   * @param writer the writer of the index that is built
+   * @return the checkpoint, without any progress if the index has no checkpoint yet
+   */
+  public static IndexCheckpoint load(IndexWriter writer) {
+    IndexCheckpoint checkpoint = new IndexCheckpoint(writer);
+    Iterable<Map.Entry<String, String>> data = writer.getLiveCommitData();
+    if (data != null) {
+      for (Map.Entry<String, String> entry : data) {
+        switch (entry.getKey()) {
+          case COMPLETED:
+            for (String done : entry.getValue().split(",")) {
+              if (!done.isEmpty()) {
+                checkpoint.completed.add(done);
+              }
+            }
+            break;
+          case STAGE:
+            checkpoint.stage = entry.getValue();
+            break;
+          case ROWS:
+            checkpoint.rows = Long.parseLong(entry.getValue());
+            break;
+          default:
+            break;
+        }
+      }
+    }
+    return checkpoint;
+  }
+
+  /**
+   * @param stage the name of a stage
+   * @return {@code true} if all documents of the stage are committed
+   */
+  public boolean isCompleted(String stage) {
+    return completed.contains(stage);
+  }
+
+  /**
+   * @param stage the name of a stage
+   * @return the number of rows of the stage whose documents are committed
+   */
+  public long getCommittedRows(String stage) {
+    return stage.equals(this.stage) ? rows : 0;
+  }
+
+  /**
+   * Commits all documents added so far as the progress of a stage. The caller
+   * has to make sure that the documents of exactly the first {@code rows} rows
+   * have been added.
+   *
+   * @param stage the name of the stage in progress
+   * @param rows the number of rows of the stage that are indexed
+   * @throws IOException Thrown if the commit failed.
+   */
+  public synchronized void commitProgress(String stage, long rows) throws IOException {
+    this.stage = stage;
+    this.rows = rows;
+    commit();
+  }
+
+  /**
+   * Commits all documents added so far and marks the stage as completed.
+   *
+   * @param stage the name of the completed stage
+   * @throws IOException Thrown if the commit failed.
+   */
+  public synchronized void commitCompleted(String stage) throws IOException {
+    completed.add(stage);
+    this.stage = null;
+    this.rows = 0;
+    commit();
+    System.out.println("checkpoint: " + stage + " completed");
+  }
+
+  private void commit() throws IOException {
+    Map<String, String> data = new HashMap<>();
+    data.put(COMPLETED, String.join(",", completed));
+    if (stage != null) {
+      data.put(STAGE, stage);
+      data.put(ROWS, String.valueOf(rows));
+    }
+    writer.setLiveCommitData(data.entrySet());
+    writer.commit();
+  }
+}
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker.indexing;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+
+/**
+ * Indexes the lines of a gazetteer file with several threads. The calling
+ * thread reads the file and hands batches of lines through a bounded queue to
+ * a pool of builder threads. Each builder turns its lines into documents and
+ * adds them to the shared {@link IndexWriter}, which is thread-safe, so
+ * parsing and analysis run in parallel while the reader never gets more than
+ * a few batches ahead. The order of the documents in the index is not the
+ * order of the lines.
+ * <p>
+ * The pipeline does not commit, unless an {@link IndexCheckpoint} is set. Then
+ * it waits for the builders to finish all rows read so far every
+ * {@code checkpointInterval} rows and commits them as a checkpoint. When a
+ * stage is resumed, the rows that are committed already are still passed to
+ * the builder, so builders that aggregate over all rows see them, but their
+ * documents are not added again.
+ */
+public class IndexingPipeline {
+
+  /**
+   * Builds the document of one line of a gazetteer file. Builders are called
+   * from several threads at once, so any state they share must be thread-safe.
+   */
+  @FunctionalInterface
+  public interface DocumentBuilder {
+
+    /**
+     * @param line a line of the gazetteer file
+     * @return the document to index, or {@code null} to skip the line
+     * @throws IOException Thrown if the line cannot be indexed, stops the pipeline.
+     */
+    Document build(String line) throws IOException;
+  }
+
+  private static final Batch END = new Batch(0, List.of());
+
+  private final IndexWriter writer;
+  private final int threads;
+  private int batchSize = 1000;
+  private long progressInterval = 100_000;
+  private IndexCheckpoint checkpoint;
+  private long checkpointInterval = 1_000_000;
+
+  /**
+   * Creates a pipeline with one builder thread per available processor.
+   *
+   * @param writer the writer to add the documents to
+   */
+  public IndexingPipeline(IndexWriter writer) {
+    this(writer, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param writer the writer to add the documents to
+   * @param threads the number of builder threads, at least one
+   */
+  public IndexingPipeline(IndexWriter writer, int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be at least 1");
+    }
+    this.writer = writer;
+    this.threads = threads;
+  }
+
+  public IndexWriter getWriter() {
+    return writer;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * @param batchSize the number of lines handed to a builder at once
+   */
+  public void setBatchSize(int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be at least 1");
+    }
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @param checkpoint the checkpoint to resume from and to commit the progress to,
+   *                   {@code null} to leave committing to the caller
+   * @param checkpointInterval commit a checkpoint after this many lines
+   */
+  public void setCheckpoint(IndexCheckpoint checkpoint, long checkpointInterval) {
+    if (checkpoint != null && checkpointInterval < 1) {
+      throw new IllegalArgumentException("checkpointInterval must be at least 1");
+    }
+    this.checkpoint = checkpoint;
+    this.checkpointInterval = checkpointInterval;
+  }
+
+  public IndexCheckpoint getCheckpoint() {
+    return checkpoint;
+  }
+
+  /**
+   * @param progressInterval report the throughput after this many lines, {@code 0} for no reports
+   */
+  public void setProgressInterval(long progressInterval) {
+    this.progressInterval = progressInterval;
+  }
+
+  /**
+   * Indexes all remaining lines of the reader. Header lines have to be read
+   * by the caller before.
+   *
+   * @param reader the gazetteer file
+   * @param builder builds the document of each line
+   * @param name the name of the gazetteer for the progress reports, also the
+   *             stage of the checkpoint
+   * @return the number of lines read
+   * @throws IOException Thrown if reading, building or indexing failed. The
+   *                     documents that were added until then are not rolled back.
+   */
+  public long run(BufferedReader reader, DocumentBuilder builder, String name) throws IOException {
+    BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(threads * 4);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    AtomicLong indexed = new AtomicLong();
+    Progress progress = new Progress();
+    long committedRows = checkpoint != null ? checkpoint.getCommittedRows(name) : 0;
+    if (committedRows > 0) {
+      System.out.printf("%s: resuming after %,d committed rows%n", name, committedRows);
+    }
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService builders = Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, "gazetteer-indexer-" + threadCount.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    for (int i = 0; i < threads; i++) {
+      builders.execute(() -> build(queue, builder, committedRows, indexed, progress, failure));
+    }
+
+    long start = System.nanoTime();
+    long rows = 0;
+    try {
+      List<String> batch = new ArrayList<>(batchSize);
+      String line;
+      while ((line = reader.readLine()) != null && failure.get() == null) {
+        batch.add(line);
+        rows++;
+        boolean checkpointDue = checkpoint != null && rows > committedRows && rows % checkpointInterval == 0;
+        if (batch.size() == batchSize || checkpointDue) {
+          hand(queue, new Batch(rows - batch.size(), batch), failure);
+          batch = new ArrayList<>(batchSize);
+        }
+        if (checkpointDue && progress.awaitRows(rows, failure)) {
+          checkpoint.commitProgress(name, rows);
+        }
+        if (progressInterval > 0 && rows % progressInterval == 0) {
+          report(name, rows, indexed.get(), start);
+        }
+      }
+      if (!batch.isEmpty()) {
+        hand(queue, new Batch(rows - batch.size(), batch), failure);
+      }
+      for (int i = 0; i < threads; i++) {
+        hand(queue, END, failure);
+      }
+      builders.shutdown();
+      while (!builders.awaitTermination(1, TimeUnit.SECONDS)) {
+        if (failure.get() != null) {
+          break;
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Indexing " + name + " was interrupted");
+    } finally {
+      builders.shutdownNow();
+    }
+
+    Throwable cause = failure.get();
+    if (cause instanceof IOException) {
+      throw (IOException) cause;
+    } else if (cause != null) {
+      throw new IOException("Indexing " + name + " failed", cause);
+    }
+    report(name, rows, indexed.get(), start);
+    return rows;
+  }
+
+  /**
+   * Puts a batch into the queue, unless the builders have failed and stopped taking batches.
+   */
+  private void hand(BlockingQueue<Batch> queue, Batch batch, AtomicReference<Throwable> failure)
+      throws InterruptedException {
+    while (failure.get() == null) {
+      if (queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+        return;
+      }
+    }
+  }
+
+  private void build(BlockingQueue<Batch> queue, DocumentBuilder builder, long committedRows, AtomicLong indexed,
+                     Progress progress, AtomicReference<Throwable> failure) {
+    try {
+      while (true) {
+        Batch batch = queue.take();
+        if (batch == END) {
+          return;
+        }
+        long row = batch.firstRow();
+        for (String line : batch.lines()) {
+          Document doc = builder.build(line);
+          // rows are counted from 1, the first committedRows are in the index already
+          row++;
+          if (doc != null && row > committedRows) {
+            writer.addDocument(doc);
+            indexed.incrementAndGet();
+          }
+        }
+        progress.add(batch.lines().size());
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable t) {
+      failure.compareAndSet(null, t);
+    }
+  }
+
+  /**
+   * Lines of a file, numbered from {@code firstRow + 1}.
+   */
+  private record Batch(long firstRow, List<String> lines) {
+  }
+
+  /**
+   * Counts the rows the builders have finished, so checkpoints can wait for them.
+   */
+  private static final class Progress {
+
+    private long rows;
+
+    synchronized void add(long count) {
+      rows += count;
+      notifyAll();
+    }
+
+    /**
+     * @return {@code true} once {@code target} rows are finished, {@code false} if the builders failed
+     */
+    synchronized boolean awaitRows(long target, AtomicReference<Throwable> failure) throws InterruptedException {
+      while (rows < target) {
+        if (failure.get() != null) {
+          return false;
+        }
+        wait(100);
+      }
+      return true;
+    }
+  }
+
+  private void report(String name, long rows, long indexed, long start) {
+    double seconds = Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+    System.out.printf("%s: %,d rows read, %,d documents indexed, %,.0f rows/sec%n",
+        name, rows, indexed, rows / seconds);
+  }
+}
@@ -32,6 +32,11 @@ import org.apache.lucene.index.IndexWriter;
 
 public class RegionProcessor {
 
+  /**
+   * The name of the regions stage in checkpoints.
+   */
+  public static final String STAGE = "Regions";
+
   public static void main(String[] args) {
     RegionProcessor.process(
             new File("C:\\temp\\gazetteers\\regions.txt"),
@@ -91,6 +96,7 @@ public class RegionProcessor {
 
           doc.add(new StringField("locid", id, Field.Store.YES));
           doc.add(new StringField("gazsource", "region", Field.Store.YES));
+          GazetteerDocValues.add(doc, lat, lon, id, "", dsg, "region");
           //countrycontext file format
           // US	KY	131	United States	Kentucky	Leslie
 
@@ -103,9 +109,6 @@ public class RegionProcessor {
         counter++;
 
       }
-      if (w != null) {
-        w.commit();
-      }
     }
 
     try (BufferedWriter bw = new BufferedWriter(new FileWriter(outputCountryContextfile, true))) {
@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,12 +39,17 @@ import opennlp.addons.geoentitylinker.AdminBoundary;
 
 public class USGSProcessor {
 
+  /**
+   * The name of the USGS stage in progress reports and checkpoints.
+   */
+  public static final String STAGE = "USGS";
+
   private static final String TAB = "\t";
 
   public static void main(String[] args) {
     try {
       Map<String, AdminBoundary> provData = getProvData(new File("C:\\temp\\gazetteers\\usgsdata\\GOVT_UNITS_20140601.txt"), GazetteerIndexer.GazType.USGS);
-      process(new File("C:\\temp\\gazetteers\\usgsdata\\GOVT_UNITS_20140601.txt"), new File("C:\\temp\\gazetteers\\usgsdata\\NationalFile_20140601.txt"), null, null);
+      process(new File("C:\\temp\\gazetteers\\usgsdata\\GOVT_UNITS_20140601.txt"), new File("C:\\temp\\gazetteers\\usgsdata\\NationalFile_20140601.txt"), null, (IndexWriter) null);
     } catch (Exception ex) {
       Logger.getLogger(USGSProcessor.class.getName()).log(Level.SEVERE, null, ex);
     }
@@ -51,96 +57,99 @@ public class USGSProcessor {
 
   public static void process(File lookupData, File usgsGazDataFile,
                              File outputCountryContextfile, IndexWriter w) throws IOException {
+    process(lookupData, usgsGazDataFile, outputCountryContextfile, new IndexingPipeline(w));
+  }
+
+  public static void process(File lookupData, File usgsGazDataFile,
+                             File outputCountryContextfile, IndexingPipeline pipeline) throws IOException {
     Map<String, AdminBoundary> provData = getProvData(lookupData, GazetteerIndexer.GazType.USGS);
-    readFile(usgsGazDataFile, w, GazetteerIndexer.GazType.USGS, provData);
+    // without a pipeline only the country context is written, like the RegionProcessor does without a writer
+    if (pipeline != null) {
+      readFile(usgsGazDataFile, pipeline, GazetteerIndexer.GazType.USGS, provData);
+    }
     writeCountryContextFile(outputCountryContextfile, provData);
   }
 
   public static void readFile(File gazetteerInput, IndexWriter w, GazetteerIndexer.GazType type,
                               Map<String, AdminBoundary> lookupMap) throws IOException {
+    readFile(gazetteerInput, new IndexingPipeline(w), type, lookupMap);
+  }
 
-    Map<String, StateCentroid> states = new HashMap<>();
+  public static void readFile(File gazetteerInput, IndexingPipeline pipeline, GazetteerIndexer.GazType type,
+                              Map<String, AdminBoundary> lookupMap) throws IOException {
+
+    Map<String, StateCentroid> states = new ConcurrentHashMap<>();
     try (BufferedReader reader = new BufferedReader(new FileReader(gazetteerInput))) {
 
       List<String> fields = new ArrayList<>();
-      int counter = 0;
       System.out.println("reading gazetteer data from USGS file...........");
-      String line;
-      while ((line = reader.readLine()) != null) {
-
+      String header = reader.readLine();
+      if (header != null) {
+        for (String columnName : header.split(type.getSeparator())) {
+          fields.add(columnName.replace("»¿", "").trim());
+        }
+      }
+      pipeline.run(reader, line -> {
         String[] values = line.split(type.getSeparator());
-        if (counter == 0) {
-          for (String columnName : values) {
-            fields.add(columnName.replace("»¿", "").trim());
-          }
-
-        } else {
-          Document doc = new Document();
-          for (int i = 0; i < fields.size() - 1; i++) {
-            doc.add(new TextField(fields.get(i), values[i].trim(), Field.Store.YES));
-          }
-          String placeName = values[1];
-          String lat = values[9];
-          String lon = values[10];
-          String dsg = values[2];
-          String id = values[0];
-
-          String ccode = values[6];
-          String admincode = values[3];
-          AdminBoundary get = lookupMap.get(admincode + "." + ccode);
-          String countyname = "";
-          if (get == null) {
-            System.out.println("null...continuing to index" + " ccode: " + ccode + " , admincode: " + admincode + " , placename: " + placeName);
-            continue;
-
-          }
-          String countyCode = get.countyCode();
+        Document doc = new Document();
+        for (int i = 0; i < fields.size() - 1; i++) {
+          doc.add(new TextField(fields.get(i), values[i].trim(), Field.Store.YES));
+        }
+        String placeName = values[1];
+        String lat = values[9];
+        String lon = values[10];
+        String dsg = values[2];
+        String id = values[0];
+
+        String ccode = values[6];
+        String admincode = values[3];
+        AdminBoundary get = lookupMap.get(admincode + "." + ccode);
+        String countyname = "";
+        if (get == null) {
+          System.out.println("null...continuing to index" + " ccode: " + ccode + " , admincode: " + admincode + " , placename: " + placeName);
+          return null;
 
-          if (!get.countyName().equals("NO_DATA_FOUND_VALUE")) {
-            countyname = get.countyName();
-          }
-          if (!get.countyCode().equals("NO_DATA_FOUND_VALUE")) {
-            countyCode = get.countyCode();
-          }
-          String hierarchy = get.countryName() + ", " + get.provinceName() + ", " + countyname + ", " + placeName;
-
-          if (states.containsKey(get.provinceName())) {
-            StateCentroid entry = states.get(get.provinceName());
-            entry.count++;
-            entry.latSum += Double.parseDouble(lat);
-            entry.longSum += Double.parseDouble(lon);
-          } else {
-            StateCentroid centroid = new StateCentroid();
-            centroid.statecode = get.getProvCode();
-            centroid.count = 1;
-            centroid.latSum = Double.parseDouble(lat);
-            centroid.longSum = Double.parseDouble(lon);
-            states.put(get.provinceName(), centroid);
-          }
+        }
+        String countyCode = get.countyCode();
 
-          doc.add(new TextField("hierarchy", hierarchy, Field.Store.YES));
-          doc.add(new TextField("placename", placeName, Field.Store.YES));
-          doc.add(new TextField("latitude", lat, Field.Store.YES));
-          doc.add(new TextField("longitude", lon, Field.Store.YES));
-          doc.add(new StringField("loctype", dsg, Field.Store.YES));
-          doc.add(new StringField("admincode", (get.countryCode() + "." + get.getProvCode()).toLowerCase(), Field.Store.YES));
-          doc.add(new StringField("countrycode", get.countryCode().toLowerCase(), Field.Store.YES));
-          doc.add(new StringField("countycode", (get.countryCode() + "." + get.getProvCode() + "." + countyCode).toLowerCase(), Field.Store.YES));
-
-          doc.add(new StringField("locid", id, Field.Store.YES));
-          doc.add(new StringField("gazsource", "usgs", Field.Store.YES));
-          w.addDocument(doc);
+        if (!get.countyName().equals("NO_DATA_FOUND_VALUE")) {
+          countyname = get.countyName();
         }
-        counter++;
-        if (counter % 100000 == 0) {
-          w.commit();
-          System.out.println(counter + " .........USGS entries committed to index..............");
+        if (!get.countyCode().equals("NO_DATA_FOUND_VALUE")) {
+          countyCode = get.countyCode();
         }
+        String hierarchy = get.countryName() + ", " + get.provinceName() + ", " + countyname + ", " + placeName;
 
-      }
+        // builders run concurrently, compute() updates each state atomically
+        states.compute(get.provinceName(), (province, entry) -> {
+          if (entry == null) {
+            entry = new StateCentroid();
+            entry.statecode = get.getProvCode();
+          }
+          entry.count++;
+          entry.latSum += Double.parseDouble(lat);
+          entry.longSum += Double.parseDouble(lon);
+          return entry;
+        });
+
+        doc.add(new TextField("hierarchy", hierarchy, Field.Store.YES));
+        doc.add(new TextField("placename", placeName, Field.Store.YES));
+        doc.add(new TextField("latitude", lat, Field.Store.YES));
+        doc.add(new TextField("longitude", lon, Field.Store.YES));
+        doc.add(new StringField("loctype", dsg, Field.Store.YES));
+        doc.add(new StringField("admincode", (get.countryCode() + "." + get.getProvCode()).toLowerCase(), Field.Store.YES));
+        doc.add(new StringField("countrycode", get.countryCode().toLowerCase(), Field.Store.YES));
+        doc.add(new StringField("countycode", (get.countryCode() + "." + get.getProvCode() + "." + countyCode).toLowerCase(), Field.Store.YES));
+
+        doc.add(new StringField("locid", id, Field.Store.YES));
+        doc.add(new StringField("gazsource", "usgs", Field.Store.YES));
+        GazetteerDocValues.add(doc, lat, lon, get.countryCode().toLowerCase(),
+            (get.countryCode() + "." + get.getProvCode()).toLowerCase(), dsg, "usgs");
+        return doc;
+      }, STAGE);
     }
 
-
+    IndexWriter w = pipeline.getWriter();
     for (String state : states.keySet()) {
       StateCentroid get = states.get(state);
       Document doc = new Document();
@@ -156,6 +165,8 @@ public class USGSProcessor {
 
       doc.add(new StringField("locid", "us_state:" + state, Field.Store.YES));
       doc.add(new StringField("gazsource", "usgs", Field.Store.YES));
+      GazetteerDocValues.add(doc, (get.latSum / get.count) + "", (get.longSum / get.count) + "", "us",
+          get.statecode, "adm1", "usgs");
       w.addDocument(doc);
 
       // System.out.println(get.statecode + "," + (get.latSum / get.count) + "," + (get.longSum / get.count));
@@ -173,10 +184,10 @@ public class USGSProcessor {
 
     doc.add(new StringField("locid", "us_centroid" + "unitedstates", Field.Store.YES));
     doc.add(new StringField("gazsource", "usgs", Field.Store.YES));
+    GazetteerDocValues.add(doc, 39.0 + "", -103.0 + "", "us", "", "pcli", "usgs");
     //System.out.println("uscentroid," + (sumofLatSums / sumOfCounts) + "," + (sumofLonSums / sumOfCounts));
 
     w.addDocument(doc);
-    w.commit();
 
     System.out.println("Completed indexing USGS gaz!");
   }
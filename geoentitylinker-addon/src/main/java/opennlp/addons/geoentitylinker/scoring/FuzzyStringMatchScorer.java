@@ -15,10 +15,8 @@
  */
 package opennlp.addons.geoentitylinker.scoring;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 import opennlp.addons.geoentitylinker.AdminBoundaryContext;
 import opennlp.addons.geoentitylinker.GazetteerEntry;
@@ -29,90 +27,297 @@ import opennlp.tools.util.Span;
 
 /**
  * Generates scores based on string comparisons Levenshtein and Dice.
+ * <p>
+ * The distances are computed in buffers that each thread reuses, so scoring
+ * a candidate allocates nothing. Strings of up to 64 chars are compared with
+ * the bit-parallel algorithm of Myers, longer ones with two rows of the
+ * distance matrix.
  */
 public class FuzzyStringMatchScorer implements LinkedEntityScorer<GazetteerEntry, AdminBoundaryContext> {
 
+  private static final int BIT_PARALLEL_LIMIT = Long.SIZE;
+  private static final int FAR = Integer.MAX_VALUE / 2;
+
+  private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
   @Override
   public void score(List<LinkedSpan<GazetteerEntry>> linkedSpans, String docText, Span[] sentenceSpans, EntityLinkerProperties properties, AdminBoundaryContext additionalContext) {
 
     for (LinkedSpan<GazetteerEntry> linkedSpan : linkedSpans) {
+      String searchTerm = linkedSpan.getSearchTerm().toLowerCase();
       for (BaseLink link : linkedSpan.getLinkedEntries()) {
         if (link instanceof GazetteerEntry entry) {
           String hierarchy = entry.getHierarchy();
           if (hierarchy != null) {
-            Double dice = getDiceCoefficient(linkedSpan.getSearchTerm().toLowerCase(), hierarchy.toLowerCase(), 2);
-            link.getScoreMap().put("hierarchydicecoef", dice);
-            Double ld = (double) getLevenshteinDistance(linkedSpan.getSearchTerm().toLowerCase(), hierarchy.toLowerCase());
-            link.getScoreMap().put("hierarchylevenshtein", ld);
+            hierarchy = hierarchy.toLowerCase();
+            ScoreRegistry.put(link, ScoreRegistry.HIERARCHYDICECOEF, getDiceCoefficient(searchTerm, hierarchy, 2));
+            ScoreRegistry.put(link, ScoreRegistry.HIERARCHYLEVENSHTEIN, getLevenshteinDistance(searchTerm, hierarchy));
           }
           String placename = entry.getItemName().toLowerCase();
-           if (placename != null) {
-            Double dice = getDiceCoefficient(linkedSpan.getSearchTerm().toLowerCase(), placename, 2);
-            link.getScoreMap().put("placenamedicecoef", dice);
-          }
+          ScoreRegistry.put(link, ScoreRegistry.PLACENAMEDICECOEF, getDiceCoefficient(searchTerm, placename, 2));
         }
       }
     }
   }
 
   /**
-   * Generates a score based on an overlap of nGrams between two strings using
-   * the DiceCoefficient technique.
+   * Generates a score based on the overlap of the tokens of two strings using
+   * the DiceCoefficient technique. The tokens are separated by spaces and
+   * commas, tokens of only whitespace are ignored. The tokens are compared by
+   * their hashes first, without creating a string for each token.
    *
    * @param s1 first string
    * @param s2 second string
-   * @param nGrams number of chars in each gram
-   * @return
+   * @param nGrams number of chars in each gram, not used
+   * @return twice the number of distinct tokens in both strings divided by
+   * the number of tokens of both strings
    */
   public double getDiceCoefficient(String s1, String s2, int nGrams) {
     if (s1.isEmpty() || s2.isEmpty()) {
       return 0d;
     }
-    List<String> s1Grams = new ArrayList<>();
-    List<String> s2Grams = new ArrayList<>();
-    String[] split1 = s1.split("[ ,]");
-    for (String token : split1) {
-      if (token.trim().isEmpty()) {
-        continue;
+    Buffers buffers = BUFFERS.get();
+    int n1 = buffers.tokenize(s1, 0);
+    int n2 = buffers.tokenize(s2, n1) - n1;
+
+    int overlap = 0;
+    tokens:
+    for (int i = 0; i < n1; i++) {
+      for (int k = 0; k < i; k++) {
+        if (buffers.sameToken(s1, i, s1, k)) {
+          continue tokens;
+        }
       }
-      s1Grams.add(token);
-    }
-    String[] split2 = s2.split("[ ,]");
-    for (String token : split2) {
-      if (token.trim().isEmpty()) {
-        continue;
+      for (int k = n1; k < n1 + n2; k++) {
+        if (buffers.sameToken(s1, i, s2, k)) {
+          overlap++;
+          break;
+        }
       }
-      s2Grams.add(token);
     }
 
-    Set<String> overlap = new HashSet<>(s1Grams);
-    overlap.retainAll(s2Grams);
-    double totcombigrams = overlap.size();
+    return (2d * overlap) / (n1 + n2);
+  }
 
-    return (2 * totcombigrams) / (s1Grams.size() + s2Grams.size());
+  /**
+   * @return the Levenshtein distance of the two strings
+   */
+  public int getLevenshteinDistance(CharSequence str1, CharSequence str2) {
+    CharSequence shorter = str1.length() <= str2.length() ? str1 : str2;
+    CharSequence longer = shorter == str1 ? str2 : str1;
+    if (shorter.isEmpty()) {
+      return longer.length();
+    }
+    if (shorter.length() <= BIT_PARALLEL_LIMIT) {
+      return bitParallelDistance(shorter, longer, BUFFERS.get());
+    }
+    return twoRowDistance(shorter, longer, BUFFERS.get());
   }
 
-  private int minimum(int a, int b, int c) {
-    return Math.min(Math.min(a, b), c);
+  /**
+   * Computes the Levenshtein distance only as far as it is at most
+   * {@code threshold}, in a band of {@code 2 * threshold + 1} cells around
+   * the diagonal. Stops as soon as every cell of a row is over the threshold.
+   *
+   * @param threshold the largest distance of interest
+   * @return the Levenshtein distance of the two strings, {@code -1} if it is
+   * larger than {@code threshold}
+   */
+  public int getLevenshteinDistance(CharSequence str1, CharSequence str2, int threshold) {
+    if (threshold < 0) {
+      throw new IllegalArgumentException("threshold must not be negative");
+    }
+    CharSequence shorter = str1.length() <= str2.length() ? str1 : str2;
+    CharSequence longer = shorter == str1 ? str2 : str1;
+    int n = shorter.length();
+    int m = longer.length();
+    if (m - n > threshold) {
+      return -1;
+    }
+    if (n == 0) {
+      return m;
+    }
+
+    Buffers buffers = BUFFERS.get();
+    int[] previous = buffers.row(0, n + 1);
+    int[] current = buffers.row(1, n + 1);
+    int boundary = Math.min(n, threshold) + 1;
+    for (int i = 0; i < boundary; i++) {
+      previous[i] = i;
+    }
+    Arrays.fill(previous, boundary, n + 1, FAR);
+    Arrays.fill(current, 0, n + 1, FAR);
+
+    for (int j = 1; j <= m; j++) {
+      char c = longer.charAt(j - 1);
+      current[0] = j;
+      int from = Math.max(1, j - threshold);
+      int to = Math.min(n, j + threshold);
+      if (from > 1) {
+        current[from - 1] = FAR;
+      }
+      int lowest = FAR;
+      for (int i = from; i <= to; i++) {
+        if (shorter.charAt(i - 1) == c) {
+          current[i] = previous[i - 1];
+        } else {
+          current[i] = 1 + Math.min(Math.min(current[i - 1], previous[i]), previous[i - 1]);
+        }
+        lowest = Math.min(lowest, current[i]);
+      }
+      if (lowest > threshold) {
+        return -1;
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[n] <= threshold ? previous[n] : -1;
   }
 
-  public int getLevenshteinDistance(CharSequence str1, CharSequence str2) {
-    int[][] distance = new int[str1.length() + 1][str2.length() + 1];
+  /**
+   * Keeps only the previous and the current row of the distance matrix.
+   */
+  private static int twoRowDistance(CharSequence shorter, CharSequence longer, Buffers buffers) {
+    int n = shorter.length();
+    int[] previous = buffers.row(0, n + 1);
+    int[] current = buffers.row(1, n + 1);
+    for (int i = 0; i <= n; i++) {
+      previous[i] = i;
+    }
+    for (int j = 1; j <= longer.length(); j++) {
+      char c = longer.charAt(j - 1);
+      current[0] = j;
+      for (int i = 1; i <= n; i++) {
+        int cost = shorter.charAt(i - 1) == c ? 0 : 1;
+        current[i] = Math.min(Math.min(current[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[n];
+  }
+
+  /**
+   * Myers' bit-parallel algorithm in the formulation of Hyyrö, one bit per char
+   * of the shorter string encodes the vertical differences of a column.
+   */
+  private static int bitParallelDistance(CharSequence shorter, CharSequence longer, Buffers buffers) {
+    int n = shorter.length();
+    buffers.clearPeq();
+    for (int i = 0; i < n; i++) {
+      buffers.addPeq(shorter.charAt(i), 1L << i);
+    }
+    long last = 1L << (n - 1);
+    long pv = -1L;
+    long mv = 0L;
+    int distance = n;
+    for (int j = 0; j < longer.length(); j++) {
+      long eq = buffers.peq(longer.charAt(j));
+      long xv = eq | mv;
+      long xh = (((eq & pv) + pv) ^ pv) | eq;
+      long ph = mv | ~(xh | pv);
+      long mh = pv & xh;
+      if ((ph & last) != 0) {
+        distance++;
+      } else if ((mh & last) != 0) {
+        distance--;
+      }
+      ph = (ph << 1) | 1L;
+      mh = mh << 1;
+      pv = mh | ~(xv | ph);
+      mv = ph & xv;
+    }
+    return distance;
+  }
+
+  /**
+   * The buffers of one thread.
+   */
+  private static final class Buffers {
+
+    private final int[][] rows = {new int[64], new int[64]};
 
-    for (int i = 0; i <= str1.length(); i++) {
-      distance[i][0] = i;
+    /*
+     * the match masks of the chars of the shorter string, open addressing with
+     * twice as many slots as the string can have distinct chars
+     */
+    private final char[] peqChars = new char[2 * BIT_PARALLEL_LIMIT];
+    private final long[] peqMasks = new long[2 * BIT_PARALLEL_LIMIT];
+
+    private int[] tokenStarts = new int[16];
+    private int[] tokenEnds = new int[16];
+    private int[] tokenHashes = new int[16];
+
+    int[] row(int index, int length) {
+      if (rows[index].length < length) {
+        rows[index] = new int[Math.max(length, 2 * rows[index].length)];
+      }
+      return rows[index];
     }
-    for (int j = 1; j <= str2.length(); j++) {
-      distance[0][j] = j;
+
+    void clearPeq() {
+      Arrays.fill(peqMasks, 0L);
     }
 
-    for (int i = 1; i <= str1.length(); i++) {
-      for (int j = 1; j <= str2.length(); j++) {
-        distance[i][j] = minimum(distance[i - 1][j] + 1, distance[i][j - 1] + 1,
-                distance[i - 1][j - 1] + ((str1.charAt(i - 1) == str2.charAt(j - 1)) ? 0 : 1));
+    private int peqSlot(char c) {
+      int mask = peqChars.length - 1;
+      int slot = (c * 0x9E37) & mask;
+      while (peqMasks[slot] != 0L && peqChars[slot] != c) {
+        slot = (slot + 1) & mask;
       }
+      return slot;
+    }
+
+    void addPeq(char c, long bit) {
+      int slot = peqSlot(c);
+      peqChars[slot] = c;
+      peqMasks[slot] |= bit;
+    }
+
+    long peq(char c) {
+      return peqMasks[peqSlot(c)];
     }
 
-    return distance[str1.length()][str2.length()];
+    /**
+     * Adds the tokens of the text after the first {@code count} tokens.
+     *
+     * @return the number of tokens afterwards
+     */
+    int tokenize(String text, int count) {
+      int start = 0;
+      for (int i = 0; i <= text.length(); i++) {
+        if (i == text.length() || text.charAt(i) == ' ' || text.charAt(i) == ',') {
+          int hash = 0;
+          boolean blank = true;
+          for (int k = start; k < i; k++) {
+            char c = text.charAt(k);
+            hash = 31 * hash + c;
+            blank &= c <= ' ';
+          }
+          if (!blank) {
+            if (count == tokenStarts.length) {
+              tokenStarts = Arrays.copyOf(tokenStarts, 2 * count);
+              tokenEnds = Arrays.copyOf(tokenEnds, 2 * count);
+              tokenHashes = Arrays.copyOf(tokenHashes, 2 * count);
+            }
+            tokenStarts[count] = start;
+            tokenEnds[count] = i;
+            tokenHashes[count] = hash;
+            count++;
+          }
+          start = i + 1;
+        }
+      }
+      return count;
+    }
+
+    boolean sameToken(String text1, int token1, String text2, int token2) {
+      int length = tokenEnds[token1] - tokenStarts[token1];
+      return tokenHashes[token1] == tokenHashes[token2]
+          && length == tokenEnds[token2] - tokenStarts[token2]
+          && text1.regionMatches(tokenStarts[token1], text2, tokenStarts[token2], length);
+    }
   }
 }
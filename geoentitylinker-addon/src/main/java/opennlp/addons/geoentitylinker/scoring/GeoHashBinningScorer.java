@@ -17,7 +17,6 @@ package opennlp.addons.geoentitylinker.scoring;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import opennlp.addons.geoentitylinker.AdminBoundaryContext;
 import opennlp.addons.geoentitylinker.GazetteerEntry;
@@ -49,8 +48,7 @@ public class GeoHashBinningScorer implements LinkedEntityScorer<GazetteerEntry,
     /*
      * use the point clustering to score each hit
      */
-    Map<String, List<GazetteerEntry>> cluster = CLUSTERER.cluster(allGazEntries, PRECISION);
-    CLUSTERER.scoreClusters(cluster);
+    CLUSTERER.scoreClusters(allGazEntries, PRECISION);
   }
 
 }
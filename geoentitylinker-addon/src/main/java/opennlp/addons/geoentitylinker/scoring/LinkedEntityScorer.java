@@ -15,6 +15,7 @@
  */
 package opennlp.addons.geoentitylinker.scoring;
 
+import java.io.IOException;
 import java.util.List;
 
 import opennlp.tools.entitylinker.BaseLink;
@@ -25,7 +26,13 @@ import opennlp.tools.util.Span;
 /**
  * Structure for scoring linked entities. The Map logically represents a pair :
  * "Score type" to the "actual Score."
- * 
+ * <p>
+ * The GeoEntityLinker calls one instance of each scorer for all documents,
+ * also from several threads at once, so implementations must not keep the
+ * state of a document in fields. The scorers of one document may also run at
+ * the same time, so a scorer must only write its own keys into the score maps
+ * and must not read the keys of other scorers.
+ *
  * @param <L> A template type for the {@link LinkedSpan} type.
  * @param <T> A template type for providing additional context.
  */
@@ -42,4 +49,15 @@ public interface LinkedEntityScorer<L extends BaseLink, T> {
    */
   void score(List<LinkedSpan<L>> linkedSpans, String docText, Span[] sentenceSpans,
              EntityLinkerProperties properties, T additionalContext);
+
+  /**
+   * Loads what the scorer needs before the first document is scored, so the
+   * first document does not pay for it. Called once by the GeoEntityLinker
+   * when it is initialized.
+   *
+   * @param properties the entitylinker properties config file
+   * @throws IOException Thrown if a resource of the scorer cannot be loaded.
+   */
+  default void init(EntityLinkerProperties properties) throws IOException {
+  }
 }
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker.scoring;
+
+import java.util.Arrays;
+
+/**
+ * A map from {@code long} to {@code int} with open addressing, without boxing
+ * the keys or the values and without an object per entry.
+ */
+final class LongIntHashMap {
+
+  private long[] keys;
+  private int[] values;
+  private boolean[] used;
+  private int size;
+  private int shift;
+
+  /**
+   * @param expectedSize the number of keys the map holds without growing
+   */
+  LongIntHashMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+    allocate(capacity);
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    used = new boolean[capacity];
+    shift = Long.numberOfLeadingZeros(capacity - 1);
+  }
+
+  private int slot(long key) {
+    int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    int mask = keys.length - 1;
+    while (used[slot] && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * @return the value of the key, {@code defaultValue} if the key is not in the map
+   */
+  int get(long key, int defaultValue) {
+    int slot = slot(key);
+    return used[slot] ? values[slot] : defaultValue;
+  }
+
+  /**
+   * Adds to the value of the key, a key that is not in the map has the value 0.
+   *
+   * @return the new value of the key
+   */
+  int addTo(long key, int delta) {
+    int slot = slot(key);
+    if (!used[slot]) {
+      if (2 * (size + 1) > keys.length) {
+        grow();
+        slot = slot(key);
+      }
+      used[slot] = true;
+      keys[slot] = key;
+      size++;
+    }
+    values[slot] += delta;
+    return values[slot];
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    Arrays.fill(used, false);
+    Arrays.fill(values, 0);
+    size = 0;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    boolean[] oldUsed = used;
+    allocate(keys.length * 2);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldUsed[i]) {
+        int slot = slot(oldKeys[i]);
+        used[slot] = true;
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker.scoring;
+
+import opennlp.addons.geoentitylinker.MentionIndex;
+
+/**
+ * Scores how close the mentions of each code are to a position in the text,
+ * for the {@link CountryProximityScorer} and the {@link ProvinceProximityScorer}.
+ * <p>
+ * The distances to the mentions are normalized over the nearest and the
+ * farthest mention of all codes and reversed, so closer is better. The score
+ * of a code is the average of the averages of each two neighboring distances,
+ * so one distant outlier does not kill the score for an obviously good hit,
+ * or the plain average for fewer than three mentions. Since the normalized
+ * distances are a linear function of the distances, both averages only need
+ * the number of mentions, the sum of their distances and the nearest and the
+ * farthest of them, which the {@link MentionIndex} finds without iterating
+ * over the mentions.
+ */
+final class MentionProximity {
+
+  private MentionProximity() {
+  }
+
+  /**
+   * @param mentions the mentions of the document
+   * @param position the offset in the text
+   * @return the score of each code of the index
+   */
+  static double[] scores(MentionIndex mentions, int position) {
+    int codes = mentions.size();
+    double[] scores = new double[codes];
+    if (codes == 0) {
+      return scores;
+    }
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (int i = 0; i < codes; i++) {
+      min = Math.min(min, mentions.nearestDistance(i, position));
+      max = Math.max(max, mentions.farthestDistance(i, position));
+    }
+    if (min == max) {
+      min = 0;
+    }
+    double range = max - min;
+    for (int i = 0; i < codes; i++) {
+      int count = mentions.mentions(i);
+      double nearest = 1 - (mentions.nearestDistance(i, position) - min) / range;
+      double farthest = 1 - (mentions.farthestDistance(i, position) - min) / range;
+      double sum = count - (mentions.distanceSum(i, position) - (double) count * min) / range;
+      if (count < 3) {
+        scores[i] = sum / count;
+      } else {
+        // each inner distance is in two windows, the nearest and the farthest in one
+        scores[i] = (2 * sum - nearest - farthest) / (2 * (count - 1));
+      }
+    }
+    return scores;
+  }
+}
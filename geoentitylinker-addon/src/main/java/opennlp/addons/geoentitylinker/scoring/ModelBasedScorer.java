@@ -16,6 +16,7 @@
 package opennlp.addons.geoentitylinker.scoring;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.HashMap;
 import java.util.List;
@@ -34,38 +35,61 @@ import opennlp.tools.util.Span;
 
 /**
  * Utilizes a doccat model to score toponyms based on surrounding context
+ * <p>
+ * The model is loaded once and shared, each thread categorizes with its own
+ * {@link DocumentCategorizerME}, so one scorer can score several documents at once.
+ * The model is loaded when the linker is initialized, and the text chunk around
+ * the sentence of a span is categorized once for all spans of the sentence.
  */
 public class ModelBasedScorer implements LinkedEntityScorer<BaseLink, AdminBoundaryContext> {
 
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   
-  DocumentCategorizerME documentCategorizerME;
-  DoccatModel doccatModel;
+  volatile DoccatModel doccatModel;
+  /*
+   * the index of each category of the model, written before the model is published
+   */
+  private volatile Map<String, Integer> categoryIndex = Map.of();
+  private final ThreadLocal<DocumentCategorizerME> documentCategorizerME =
+      ThreadLocal.withInitial(() -> new DocumentCategorizerME(doccatModel));
   public static final int RADIUS = 200;
-  boolean modelexists = false;
+  volatile boolean modelexists = false;
+
+  /**
+   * Loads the model, if one is configured, so it is shared before the first
+   * document is scored.
+   */
+  @Override
+  public void init(EntityLinkerProperties properties) throws IOException {
+    loadModel(properties);
+  }
 
   @Override
   public void score(List<LinkedSpan<BaseLink>> linkedSpans, String docText, Span[] sentenceSpans,
                     EntityLinkerProperties properties, AdminBoundaryContext additionalContext) {
     try {
-      if (doccatModel == null) {
-        String path = properties.getProperty("opennlp.geoentitylinker.modelbasedscorer.modelpath", "");
-        if (path.isEmpty()) {
-          return;
-        }
-        modelexists = true;
-        doccatModel = new DoccatModel(new File(path));
-        documentCategorizerME = new DocumentCategorizerME(doccatModel);
+      if (loadModel(properties) == null) {
+        return;
       }
-      Map<Integer, String> proximalFeatures = generateProximalFeatures(linkedSpans, sentenceSpans, docText, RADIUS);
-      for (Map.Entry<Integer, String> entry : proximalFeatures.entrySet()) {
-        Map<String, Double> scores = this.getScore(entry.getValue());
-        for (BaseLink link : linkedSpans.get(entry.getKey()).getLinkedEntries()) {
-          double score = 0d;
-          if (scores.containsKey(link.getItemParentID())) {
-            score = scores.get(link.getItemParentID());
-          }
-          link.getScoreMap().put("countrymodel", score);
+      Map<String, Integer> categories = categoryIndex;
+      /*
+       * the chunk of a span only depends on the start of its sentence, so the
+       * spans of a sentence are categorized once
+       */
+      Map<Integer, double[]> scoresBySentenceStart = new HashMap<>();
+      for (LinkedSpan<BaseLink> span : linkedSpans) {
+        if (span.getLinkedEntries().isEmpty()) {
+          continue;
+        }
+        int mentionIdx = sentenceSpans[span.getSentenceid()].getStart();
+        double[] scores = scoresBySentenceStart.get(mentionIdx);
+        if (scores == null) {
+          scores = categorize(getTextChunk(mentionIdx, docText, RADIUS));
+          scoresBySentenceStart.put(mentionIdx, scores);
+        }
+        for (BaseLink link : span.getLinkedEntries()) {
+          Integer category = categories.get(link.getItemParentID());
+          ScoreRegistry.put(link, ScoreRegistry.COUNTRYMODEL, category != null ? scores[category] : 0d);
         }
       }
 
@@ -74,6 +98,37 @@ public class ModelBasedScorer implements LinkedEntityScorer<BaseLink, AdminBound
     }
   }
 
+  /**
+   * Loads the model on first use. Threads that score at the same time wait for
+   * the first one to load it.
+   *
+   * @return the model, or {@code null} if no model is configured
+   */
+  private DoccatModel loadModel(EntityLinkerProperties properties) throws IOException {
+    DoccatModel model = doccatModel;
+    if (model == null) {
+      synchronized (this) {
+        model = doccatModel;
+        if (model == null) {
+          String path = properties.getProperty("opennlp.geoentitylinker.modelbasedscorer.modelpath", "");
+          if (path.isEmpty()) {
+            return null;
+          }
+          modelexists = true;
+          model = new DoccatModel(new File(path));
+          DocumentCategorizerME categorizer = new DocumentCategorizerME(model);
+          Map<String, Integer> categories = new HashMap<>();
+          for (int i = 0; i < categorizer.getNumberOfCategories(); i++) {
+            categories.put(categorizer.getCategory(i), i);
+          }
+          categoryIndex = Map.copyOf(categories);
+          doccatModel = model;
+        }
+      }
+    }
+    return model;
+  }
+
   /**
    * generates features using a BagOfWordsfeatureGenerator that are within the
    * radius of a mention within the doctext
@@ -147,14 +202,10 @@ public class ModelBasedScorer implements LinkedEntityScorer<BaseLink, AdminBound
     return chunk;
   }
 
-  private Map<String, Double> getScore(String text) {
-    Map<String, Double> scoreMap = new HashMap<>();
-    double[] categorize = documentCategorizerME.categorize(List.of(text).toArray(new String[0]));
-    int catSize = documentCategorizerME.getNumberOfCategories();
-    for (int i = 0; i < catSize; i++) {
-      String category = documentCategorizerME.getCategory(i);
-      scoreMap.put(category, categorize[documentCategorizerME.getIndex(category)]);
-    }
-    return scoreMap;
+  /**
+   * @return the probability of each category of the model for the text chunk
+   */
+  private double[] categorize(String text) {
+    return documentCategorizerME.get().categorize(new String[] {text});
   }
 }
@@ -53,7 +53,7 @@ public class PlacetypeScorer implements LinkedEntityScorer<GazetteerEntry, Admin
         if (score == null) {
           score = 0d;
         }
-        gazetteerEntry.getScoreMap().put("typescore", score);
+        ScoreRegistry.put(gazetteerEntry, ScoreRegistry.TYPESCORE, score);
       }
     }
   }
@@ -27,9 +27,22 @@ import opennlp.addons.geoentitylinker.GazetteerEntry;
 /**
  *
  * Clusters a list of lat long points using a simple geohashing/boxing approach
+ * <p>
+ * Besides the string geohashes of Spatial4j, the geohashes can be encoded in a
+ * {@code long}: the 60 bits of a 12 char geohash, the bits of longitude and
+ * latitude interleaved like in the string. The first {@code p} chars of the
+ * geohash are the top {@code 5 * p} of these bits, so one encoded value gives
+ * the bins of every precision, and the bins are counted in a primitive map.
  */
 public class PointClustering {
 
+  /**
+   * the number of chars of the geohash encoded in a {@code long}
+   */
+  public static final int MAX_PRECISION = 12;
+
+  private static final char[] BASE_32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
   /**
    * Clusters a set of points from the gazetteers. The idea is that locations
    * that matched a name that are closer to each other, the more likely the
@@ -57,6 +70,131 @@ public class PointClustering {
     return map;
   }
 
+  /**
+   * Scores each entry by the size of its geohash bin, relative to the largest
+   * bin, like {@link #scoreClusters(Map)} scores the clusters of
+   * {@link #cluster(List, int)}. Entries without a point are not scored.
+   *
+   * @param entries the entries to score
+   * @param precision the number of geohash chars of a bin, at most {@link #MAX_PRECISION}
+   */
+  public void scoreClusters(List<GazetteerEntry> entries, int precision) {
+    long[] geohashes = geoHashes(entries);
+    int[] sizes = binSizes(geohashes, precision);
+    int max = 0;
+    for (int size : sizes) {
+      max = Math.max(max, size);
+    }
+    for (int i = 0; i < sizes.length; i++) {
+      if (sizes[i] > 0) {
+        ScoreRegistry.put(entries.get(i), ScoreRegistry.GEOHASHBIN, normalize((double) sizes[i], 0d, max));
+      }
+    }
+  }
+
+  /**
+   * @param entries the entries to encode
+   * @return the {@link #geoHashLong(double, double) encoded geohash} of each
+   * entry, {@code -1} for entries without a point
+   */
+  public long[] geoHashes(List<GazetteerEntry> entries) {
+    long[] geohashes = new long[entries.size()];
+    for (int i = 0; i < geohashes.length; i++) {
+      GazetteerEntry entry = entries.get(i);
+      Double lat = entry.getLatitude();
+      Double lon = entry.getLongitude();
+      geohashes[i] = lat == null || lon == null ? -1L : geoHashLong(lat, lon);
+    }
+    return geohashes;
+  }
+
+  /**
+   * Bins encoded geohashes by their first {@code precision} chars. Can be
+   * called with several precisions for the same geohashes.
+   *
+   * @param geohashes encoded geohashes, {@code -1} for none
+   * @param precision the number of geohash chars of a bin, at most {@link #MAX_PRECISION}
+   * @return the size of the bin of each geohash, {@code 0} for none
+   */
+  public int[] binSizes(long[] geohashes, int precision) {
+    if (precision < 0 || precision > MAX_PRECISION) {
+      throw new IllegalArgumentException("precision must be between 0 and " + MAX_PRECISION);
+    }
+    LongIntHashMap bins = new LongIntHashMap(geohashes.length);
+    for (long geohash : geohashes) {
+      if (geohash >= 0) {
+        bins.addTo(prefix(geohash, precision), 1);
+      }
+    }
+    int[] sizes = new int[geohashes.length];
+    for (int i = 0; i < geohashes.length; i++) {
+      if (geohashes[i] >= 0) {
+        sizes[i] = bins.get(prefix(geohashes[i], precision), 0);
+      }
+    }
+    return sizes;
+  }
+
+  /**
+   * @param geohash an encoded geohash
+   * @param precision the number of chars to keep
+   * @return the bits of the first {@code precision} chars of the geohash
+   */
+  public static long prefix(long geohash, int precision) {
+    return geohash >>> (5 * (MAX_PRECISION - precision));
+  }
+
+  /**
+   * Encodes a point as a geohash of {@link #MAX_PRECISION} chars in a
+   * {@code long}, with the same bisection as
+   * {@link GeohashUtils#encodeLatLon(double, double)}.
+   *
+   * @param lat the latitude Y
+   * @param lon the longitude X
+   * @return the 60 bits of the geohash
+   */
+  public static long geoHashLong(double lat, double lon) {
+    double latMin = -90.0;
+    double latMax = 90.0;
+    double lonMin = -180.0;
+    double lonMax = 180.0;
+    long geohash = 0L;
+    for (int bit = 0; bit < 5 * MAX_PRECISION; bit++) {
+      geohash <<= 1;
+      if ((bit & 1) == 0) {
+        double mid = (lonMin + lonMax) / 2D;
+        if (lon > mid) {
+          geohash |= 1L;
+          lonMin = mid;
+        } else {
+          lonMax = mid;
+        }
+      } else {
+        double mid = (latMin + latMax) / 2D;
+        if (lat > mid) {
+          geohash |= 1L;
+          latMin = mid;
+        } else {
+          latMax = mid;
+        }
+      }
+    }
+    return geohash;
+  }
+
+  /**
+   * @param geohash an encoded geohash
+   * @param precision the number of chars
+   * @return the first {@code precision} chars of the geohash as a string
+   */
+  public static String geoHashString(long geohash, int precision) {
+    char[] chars = new char[precision];
+    for (int i = 0; i < precision; i++) {
+      chars[i] = BASE_32[(int) (geohash >>> (5 * (MAX_PRECISION - 1 - i))) & 31];
+    }
+    return new String(chars);
+  }
+
   public void scoreClusters(Map<String, List<GazetteerEntry>> clusters) {
     double min = 0d;
     double max = -1d;
@@ -70,7 +208,7 @@ public class PointClustering {
       int size = clusters.get(key).size();
       Double score = normalize((double) size, min, max);
       for (GazetteerEntry entry : clusters.get(key)) {
-        entry.getScoreMap().put("geohashbin", score);
+        ScoreRegistry.put(entry, ScoreRegistry.GEOHASHBIN, score);
       }
     }
 
@@ -112,7 +250,7 @@ public class PointClustering {
   }
 
 
-  private Double normalize(Double valueToNormalize, double minimum, double maximum) {
+  private double normalize(double valueToNormalize, double minimum, double maximum) {
     return ((1 - 0) * (valueToNormalize - minimum)) / (maximum - minimum) + 0;
   }
 }
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker.scoring;
+
+/**
+ * A static KD-tree over points in three dimensions that counts the points
+ * within a distance of a query point. The tree is stored implicitly: the
+ * points of a subtree are a range of the coordinate arrays with the root in
+ * the middle. Each subtree has a bounding box, so a subtree that lies
+ * completely within the distance is counted at once and one that lies
+ * completely outside is skipped.
+ * <p>
+ * Building the tree takes O(n log n), the query of a point visits O(log n)
+ * subtrees plus the subtrees on the border of its sphere.
+ */
+final class PointKdTree {
+
+  private final double[][] coords;
+  private final double[][] min;
+  private final double[][] max;
+
+  /**
+   * @param x the x coordinates of the points
+   * @param y the y coordinates of the points
+   * @param z the z coordinates of the points
+   */
+  PointKdTree(double[] x, double[] y, double[] z) {
+    int n = x.length;
+    coords = new double[][] {x.clone(), y.clone(), z.clone()};
+    min = new double[3][n];
+    max = new double[3][n];
+    build(0, n, 0);
+  }
+
+  int size() {
+    return coords[0].length;
+  }
+
+  private void build(int lo, int hi, int axis) {
+    if (lo >= hi) {
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    select(lo, hi - 1, mid, coords[axis]);
+    for (int d = 0; d < 3; d++) {
+      double low = Double.POSITIVE_INFINITY;
+      double high = Double.NEGATIVE_INFINITY;
+      for (int i = lo; i < hi; i++) {
+        low = Math.min(low, coords[d][i]);
+        high = Math.max(high, coords[d][i]);
+      }
+      min[d][mid] = low;
+      max[d][mid] = high;
+    }
+    build(lo, mid, (axis + 1) % 3);
+    build(mid + 1, hi, (axis + 1) % 3);
+  }
+
+  /**
+   * Moves the point with the k-th smallest value on the axis to position k,
+   * smaller ones before it and larger ones after it.
+   */
+  private void select(int left, int right, int k, double[] values) {
+    while (left < right) {
+      double pivot = values[(left + right) >>> 1];
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (values[i] < pivot) {
+          i++;
+        }
+        while (values[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(i++, j--);
+        }
+      }
+      if (k <= j) {
+        right = j;
+      } else if (k >= i) {
+        left = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private void swap(int i, int j) {
+    for (double[] values : coords) {
+      double value = values[i];
+      values[i] = values[j];
+      values[j] = value;
+    }
+  }
+
+  /**
+   * @return the number of points within {@code radius} of the query point, including a point at the query point
+   */
+  int countWithin(double x, double y, double z, double radius) {
+    return count(0, size(), new double[] {x, y, z}, radius * radius);
+  }
+
+  private int count(int lo, int hi, double[] query, double radius2) {
+    if (lo >= hi) {
+      return 0;
+    }
+    int mid = (lo + hi) >>> 1;
+    double nearest = 0d;
+    double farthest = 0d;
+    for (int d = 0; d < 3; d++) {
+      double below = min[d][mid] - query[d];
+      double above = query[d] - max[d][mid];
+      double gap = Math.max(0d, Math.max(below, above));
+      nearest += gap * gap;
+      double span = Math.max(Math.abs(below), Math.abs(above));
+      farthest += span * span;
+    }
+    if (nearest > radius2) {
+      return 0;
+    }
+    if (farthest <= radius2) {
+      return hi - lo;
+    }
+    double distance2 = 0d;
+    for (int d = 0; d < 3; d++) {
+      double delta = coords[d][mid] - query[d];
+      distance2 += delta * delta;
+    }
+    int here = distance2 <= radius2 ? 1 : 0;
+    return here + count(lo, mid, query, radius2) + count(mid + 1, hi, query, radius2);
+  }
+}
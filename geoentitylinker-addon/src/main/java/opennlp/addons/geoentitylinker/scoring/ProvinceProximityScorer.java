@@ -15,17 +15,14 @@
  */
 package opennlp.addons.geoentitylinker.scoring;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.regex.Pattern;
 
 import opennlp.addons.geoentitylinker.AdminBoundaryContext;
 import opennlp.addons.geoentitylinker.GazetteerEntry;
+import opennlp.addons.geoentitylinker.MentionIndex;
 import opennlp.tools.entitylinker.BaseLink;
 import opennlp.tools.entitylinker.EntityLinkerProperties;
 import opennlp.tools.entitylinker.LinkedSpan;
@@ -41,19 +38,15 @@ import opennlp.tools.util.Span;
  */
 public class ProvinceProximityScorer implements LinkedEntityScorer<BaseLink, AdminBoundaryContext> {
 
-  private Map<String, Set<String>> nameCodesMap;
-  String dominantCode = "";
-  private Map<String, String> regexMap = new HashMap<>();
-
   @Override
   public void score(List<LinkedSpan<BaseLink>> linkedSpans, String docText, Span[] sentenceSpans, EntityLinkerProperties properties, AdminBoundaryContext additionalContext) {
     if (!additionalContext.getProvHits().isEmpty()) {
-      regexMap = additionalContext.getProvinceRegexMap();
-      score(linkedSpans, additionalContext.getProvMentions(), additionalContext.getNameCodesMap(), docText, sentenceSpans, 1000);
+      score(linkedSpans, additionalContext.getProvMentionIndex(), additionalContext.getNameCodesMap(),
+          additionalContext.getProvinceRegexMap(), sentenceSpans);
     } else {
       for (LinkedSpan<BaseLink> span : linkedSpans) {
         for (BaseLink link : span.getLinkedEntries()) {
-          link.getScoreMap().put("provincecontext", 0d);
+          ScoreRegistry.put(link, ScoreRegistry.PROVINCECONTEXT, 0d);
         }
       }
     }
@@ -81,27 +74,23 @@ public class ProvinceProximityScorer implements LinkedEntityScorer<BaseLink, Adm
    * @return
    */
   public List<LinkedSpan<BaseLink>> score(List<LinkedSpan<BaseLink>> linkedData, Map<String, Set<Integer>> countryHits, Map<String, Set<String>> nameCodesMap, String docText, Span[] sentences, Integer maxAllowedDist) {
-    this.nameCodesMap = nameCodesMap;
-    setDominantCode(countryHits);
+    return score(linkedData, MentionIndex.of(countryHits), nameCodesMap, Map.of(), sentences);
+  }
+
+  private List<LinkedSpan<BaseLink>> score(List<LinkedSpan<BaseLink>> linkedData, MentionIndex mentions,
+                                           Map<String, Set<String>> nameCodesMap, Map<String, String> regexMap,
+                                           Span[] sentences) {
+    Scoring scoring = new Scoring(nameCodesMap, mentions.dominantCode(), regexMap);
     for (LinkedSpan<BaseLink> linkedspan : linkedData) {
-      linkedspan = simpleProximityAnalysis(sentences, countryHits, linkedspan, maxAllowedDist);
+      linkedspan = simpleProximityAnalysis(sentences, mentions, linkedspan, scoring);
     }
     return linkedData;
   }
 
   /**
-   * sets class level variable to a code based on the number of mentions
-   *
-   * @param countryHits
+   * The context of the document that is scored, so the scorer itself has no state.
    */
-  private void setDominantCode(Map<String, Set<Integer>> countryHits) {
-    int hits = -1;
-    for (String code : countryHits.keySet()) {
-      if (countryHits.get(code).size() > hits) {
-        hits = countryHits.get(code).size();
-        dominantCode = code;
-      }
-    }
+  private record Scoring(Map<String, Set<String>> nameCodesMap, String dominantCode, Map<String, String> regexMap) {
   }
 
   /**
@@ -114,8 +103,8 @@ public class ProvinceProximityScorer implements LinkedEntityScorer<BaseLink, Adm
    * @param span
    * @return
    */
-  private LinkedSpan<BaseLink> simpleProximityAnalysis(Span[] sentences, Map<String, Set<Integer>> countryHits,
-                                                       LinkedSpan<BaseLink> span, Integer maxAllowedDistance) {
+  private LinkedSpan<BaseLink> simpleProximityAnalysis(Span[] sentences, MentionIndex mentions,
+                                                       LinkedSpan<BaseLink> span, Scoring scoring) {
     Double score = 0.0;
     /*
      * get the index of the actual span, beginning of sentence //should generate
@@ -124,66 +113,45 @@ public class ProvinceProximityScorer implements LinkedEntityScorer<BaseLink, Adm
      */
     int sentenceIdx = span.getSentenceid();
     int sentIndexInDoc = sentences[sentenceIdx].getStart();
-    /*
-     * create a map of all the span's proximal country mentions in the document
-     * Map< countrycode, set of <distances from this NamedEntity>>
-     */
-    Map<String, Set<Integer>> distancesFromCodeMap = new HashMap<>();
-    //map = Map<countrycode, Set <of distances this span is from all the mentions of the code>>
-    for (String cCode : countryHits.keySet()) {
-      // iterate over all the regex start values and calculate an offset
-      for (Integer cHit : countryHits.get(cCode)) {
-        int absDist = Math.abs(sentIndexInDoc - cHit);
-        //only include near mentions based on a heuristic
-        //TODO make this a property
-        //  if (absDist < maxAllowedDistance) {
-        if (distancesFromCodeMap.containsKey(cCode)) {
-          distancesFromCodeMap.get(cCode).add(absDist);
-        } else {
-          distancesFromCodeMap.put(cCode, new HashSet<>(absDist));
-        }
-      }
-    }
-    //we now know how far this named entity is from every country mention in the document
 
     /*
      * the gaz matches that have a country code that have mentions in the doc
      * that are closest to the Named Entity should return the best score.
-     * Analyzemap generates a likelihood score that the toponym from the gaz is
-     * referring to one of the countries, i.e, Map<countrycode, prob that this
-     * span is referring to the toponym form this code key>
+     * The scores are the likelihood that the toponym from the gaz is
+     * referring to one of the codes, indexed like the codes of the mentions
      */
-    Map<String, Double> scoreMap = analyzeMap(distancesFromCodeMap, sentences, span);
-    if (scoreMap.isEmpty()) {
+    if (mentions.size() == 0) {
       return span;
     }
+    double[] scores = MentionProximity.scores(mentions, sentIndexInDoc);
     for (BaseLink link : span.getLinkedEntries()) {
       //getItemParentId is the country code
       GazetteerEntry entry = (GazetteerEntry) link;
       String spanCountryCode = entry.getProvinceCode();
-      if (scoreMap.containsKey(spanCountryCode)) {
+      int code = mentions.indexOf(spanCountryCode);
+      if (code >= 0) {
 
-        score = scoreMap.get(spanCountryCode);
+        score = scores[code];
         ///does the name extracted match a province name?
-        if (nameCodesMap.containsKey(link.getItemName().toLowerCase()) || regexMatch(link.getItemName(), link.getItemParentID())) {
+        if (scoring.nameCodesMap().containsKey(link.getItemName().toLowerCase()) || regexMatch(link.getItemName(), link.getItemParentID(), scoring.regexMap())) {
           //if so, is it the correct country code for that name?
-          if (nameCodesMap.get(entry.getItemName().toLowerCase()).contains(entry.getProvinceCode())) {
+          if (scoring.nameCodesMap().get(entry.getItemName().toLowerCase()).contains(entry.getProvinceCode())) {
             //boost the score because it is likely that this is the location in the text, so add 50% to the score or set to 1
             //TODO: make this smarter
             score = (score + .75) > 1.0 ? 1d : (score + .75);
 
-            if (entry.getProvinceCode().equals(dominantCode)) {
+            if (entry.getProvinceCode().equals(scoring.dominantCode())) {
               score = (score + .25) > 1.0 ? 1d : (score + .25);
             }
           }
         }
       }
-      link.getScoreMap().put("provincecontext", score);
+      ScoreRegistry.put(link, ScoreRegistry.PROVINCECONTEXT, score);
     }
     return span;
   }
 
-  private boolean regexMatch(String placeName, String countryCode) {
+  private boolean regexMatch(String placeName, String countryCode, Map<String, String> regexMap) {
     if (regexMap.containsKey(countryCode)) {
       String regexForCountry = regexMap.get(countryCode);
 
@@ -193,97 +161,4 @@ public class ProvinceProximityScorer implements LinkedEntityScorer<BaseLink, Adm
     return false;
   }
 
-  /**
-   * takes a map of distances from the toponym to each province mention and
-   * generates a map of scores for each province code. The map is then
-   * correlated to the code of the BaseLink parentid for retrieval. Then the
-   * score is added to the overall list.
-   *
-   * @param distanceMap
-   * @param sentences
-   * @param span
-   * @return
-   */
-  private Map<String, Double> analyzeMap(Map<String, Set<Integer>> distanceMap,
-                                         Span[] sentences, LinkedSpan<BaseLink> span) {
-
-    Map<String, Double> scoreMap = new HashMap<>();
-    if (distanceMap.isEmpty()) {
-      return scoreMap;
-    }
-    TreeSet<Integer> all = new TreeSet<>();
-    for (String key : distanceMap.keySet()) {
-      all.addAll(distanceMap.get(key));
-    }
-    
-    // get min max for normalization, this could be more efficient
-    int min = all.first();
-    int max = all.last();
-    if (min == max) {
-      min = 0;
-    }
-
-    for (String key : distanceMap.keySet()) {
-      TreeSet<Double> normalizedDistances = new TreeSet<>();
-      for (Integer i : distanceMap.get(key)) {
-        Double norm = normalize(i, min, max);
-        //reverse the normed distance so low numbers (closer) are better
-        //this could be improved with a "decaying " function using an increasing negative exponent
-        Double reverse = Math.abs(norm - 1);
-        normalizedDistances.add(reverse);
-      }
-
-      List<Double> doubles = new ArrayList<>(normalizedDistances);
-      scoreMap.put(key, slidingDistanceAverage(doubles));
-    }
-    return scoreMap;
-  }
-
-  /**
-   * this method is an attempt to make closer clusters of mentions group
-   * together to smooth out the average, so one distant outlier does not kill
-   * the score for an obviously good hit. More elegant solution is possible
-   * using Math.pow, and making the score decay with distance by using an
-   * increasing negative exponent
-   *
-   * @param normDis the normalized and sorted set of distances as a list
-   * @return
-   */
-  private Double slidingDistanceAverage(List<Double> normDis) {
-    List<Double> windowOfAverages = new ArrayList<>();
-
-    if (normDis.size() < 3) {
-      windowOfAverages.addAll(normDis);
-    } else {
-
-      for (int i = 0; i < normDis.size() - 1; i++) {
-        double a = normDis.get(i);
-        double b = normDis.get(i + 1);
-        windowOfAverages.add((a + b) / 2);
-
-      }
-    }
-    double sum = 0d;
-    for (double d : windowOfAverages) {
-      sum += d;
-    }
-    //TODO: ++ prob when large amounts of mentions for a code
-    //System.out.println("avg of window:" + result);
-    return sum / windowOfAverages.size();
-  }
-
-  /**
-   * transposes a value within one range to a relative value in a different
-   * range. Used to normalize distances in this class.
-   *
-   * @param valueToNormalize the value to place within the new range
-   * @param minimum the min of the set to be transposed
-   * @param maximum the max of the set to be transposed
-   * @return
-   */
-  private Double normalize(int valueToNormalize, int minimum, int maximum) {
-    Double d = (double) ((1 - 0) * (valueToNormalize - minimum)) / (maximum - minimum) + 0;
-    d = d == null ? 0d : d;
-    return d;
-  }
 }
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker.scoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import opennlp.tools.entitylinker.BaseLink;
+
+/**
+ * Gives each score key a fixed int slot, so the scores of a link can be stored
+ * in a {@link SlotScoreMap} and read without hashing strings or unboxing. The
+ * keys written by the built-in scorers have constant slots, any other key gets
+ * the next free slot the first time it is seen.
+ */
+public final class ScoreRegistry {
+
+  private static final Map<String, Integer> SLOTS = new ConcurrentHashMap<>();
+  private static final List<String> KEYS = new ArrayList<>();
+  private static volatile int size;
+
+  public static final int LUCENE = register("lucene");
+  public static final int NORMLUCENE = register("normlucene");
+  public static final int TYPESCORE = register("typescore");
+  public static final int COUNTRYCONTEXT = register("countrycontext");
+  public static final int PROVINCECONTEXT = register("provincecontext");
+  public static final int GEOHASHBIN = register("geohashbin");
+  public static final int PLACENAMEDICECOEF = register("placenamedicecoef");
+  public static final int HIERARCHYDICECOEF = register("hierarchydicecoef");
+  public static final int HIERARCHYLEVENSHTEIN = register("hierarchylevenshtein");
+  public static final int COUNTRYMODEL = register("countrymodel");
+  public static final int SPATIALDENSITY = register("spatialdensity");
+
+  private ScoreRegistry() {
+  }
+
+  private static synchronized int register(String key) {
+    Integer slot = SLOTS.get(key);
+    if (slot == null) {
+      slot = KEYS.size();
+      KEYS.add(key);
+      SLOTS.put(key, slot);
+      size = KEYS.size();
+    }
+    return slot;
+  }
+
+  /**
+   * @param key a score key
+   * @return the slot of the key, a new one if the key was not registered yet
+   */
+  public static int slot(String key) {
+    Integer slot = SLOTS.get(key);
+    return slot != null ? slot : register(key);
+  }
+
+  /**
+   * @param key a score key
+   * @return the slot of the key, {@code -1} if the key was never registered
+   */
+  public static int find(String key) {
+    Integer slot = SLOTS.get(key);
+    return slot != null ? slot : -1;
+  }
+
+  /**
+   * @param slot a registered slot
+   * @return the key of the slot
+   */
+  public static synchronized String key(int slot) {
+    return KEYS.get(slot);
+  }
+
+  /**
+   * @return the number of registered slots
+   */
+  public static int size() {
+    return size;
+  }
+
+  /**
+   * Stores a score of a link, into its slot if the link has a {@link SlotScoreMap}.
+   *
+   * @param link the link to score
+   * @param slot the slot of the score
+   * @param score the score
+   */
+  public static void put(BaseLink link, int slot, double score) {
+    if (link.getScoreMap() instanceof SlotScoreMap slots) {
+      slots.put(slot, score);
+    } else {
+      link.getScoreMap().put(key(slot), score);
+    }
+  }
+
+  /**
+   * @param link a scored link
+   * @param slot the slot of the score
+   * @param defaultScore the score if the link has none in the slot
+   * @return the score of the link in the slot
+   */
+  public static double get(BaseLink link, int slot, double defaultScore) {
+    if (link.getScoreMap() instanceof SlotScoreMap slots) {
+      return slots.get(slot, defaultScore);
+    }
+    Double score = link.getScoreMap().get(key(slot));
+    return score != null ? score : defaultScore;
+  }
+}
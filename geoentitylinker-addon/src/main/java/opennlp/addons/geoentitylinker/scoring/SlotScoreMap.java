@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker.scoring;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A score map that stores the scores of a link in a {@code double[]}, indexed
+ * by the slots of the {@link ScoreRegistry}. The scorers and the ranking use
+ * {@link #put(int, double)} and {@link #get(int, double)} directly; the
+ * {@link Map} view keeps {@code getScoreMap().get("typescore")} and the like
+ * working for existing callers. A slot holds a primitive score, so putting a
+ * {@code null} score through the map view removes the score instead.
+ * <p>
+ * Writes are synchronized, so scorers that run in parallel can each write their
+ * own slots into the same map. Reads are not, the scores are read once all
+ * scorers are done. The arrays are replaced together when the map grows, so a
+ * read never sees the scores of one and the presence bits of the other.
+ */
+public final class SlotScoreMap extends AbstractMap<String, Double> {
+
+  private volatile Slots slots;
+
+  public SlotScoreMap() {
+    slots = new Slots(ScoreRegistry.size());
+  }
+
+  /**
+   * @param scores the scores to copy
+   */
+  public SlotScoreMap(Map<String, Double> scores) {
+    this();
+    putAll(scores);
+  }
+
+  /**
+   * @param slot a slot of the {@link ScoreRegistry}
+   * @return {@code true} if there is a score in the slot
+   */
+  public boolean has(int slot) {
+    return slots.has(slot);
+  }
+
+  /**
+   * @param slot a slot of the {@link ScoreRegistry}
+   * @param defaultScore the score if there is none in the slot
+   * @return the score in the slot
+   */
+  public double get(int slot, double defaultScore) {
+    Slots current = slots;
+    return current.has(slot) ? current.scores[slot] : defaultScore;
+  }
+
+  /**
+   * @param slot a slot of the {@link ScoreRegistry}
+   * @param score the score to store in the slot
+   */
+  public synchronized void put(int slot, double score) {
+    Slots current = slots;
+    if (slot >= current.scores.length) {
+      current = new Slots(current, Math.max(slot + 1, ScoreRegistry.size()));
+      slots = current;
+    }
+    current.scores[slot] = score;
+    current.present[slot >>> 6] |= 1L << slot;
+  }
+
+  /**
+   * @param slot a slot of the {@link ScoreRegistry}
+   */
+  public synchronized void remove(int slot) {
+    Slots current = slots;
+    if (current.has(slot)) {
+      current.present[slot >>> 6] &= ~(1L << slot);
+    }
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (long bits : slots.present) {
+      size += Long.bitCount(bits);
+    }
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key instanceof String name && has(ScoreRegistry.find(name));
+  }
+
+  @Override
+  public Double get(Object key) {
+    if (key instanceof String name) {
+      Slots current = slots;
+      int slot = ScoreRegistry.find(name);
+      if (slot >= 0 && current.has(slot)) {
+        return current.scores[slot];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param key the key of the score
+   * @param score the score, {@code null} removes the score of the key
+   * @return the previous score, or {@code null} if there was none
+   */
+  @Override
+  public Double put(String key, Double score) {
+    if (score == null) {
+      return remove(key);
+    }
+    int slot = ScoreRegistry.slot(key);
+    Slots current = slots;
+    Double previous = current.has(slot) ? current.scores[slot] : null;
+    put(slot, score.doubleValue());
+    return previous;
+  }
+
+  @Override
+  public Double remove(Object key) {
+    if (key instanceof String name) {
+      Slots current = slots;
+      int slot = ScoreRegistry.find(name);
+      if (slot >= 0 && current.has(slot)) {
+        Double previous = current.scores[slot];
+        remove(slot);
+        return previous;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public synchronized void clear() {
+    Arrays.fill(slots.present, 0L);
+  }
+
+  @Override
+  public Set<Entry<String, Double>> entrySet() {
+    return new AbstractSet<>() {
+      @Override
+      public Iterator<Entry<String, Double>> iterator() {
+        return new Iterator<>() {
+          private int next = nextSlot(0);
+          private int last = -1;
+
+          @Override
+          public boolean hasNext() {
+            return next >= 0;
+          }
+
+          @Override
+          public Entry<String, Double> next() {
+            if (next < 0) {
+              throw new NoSuchElementException();
+            }
+            last = next;
+            next = nextSlot(next + 1);
+            return new SimpleImmutableEntry<>(ScoreRegistry.key(last), slots.scores[last]);
+          }
+
+          @Override
+          public void remove() {
+            if (last < 0) {
+              throw new IllegalStateException();
+            }
+            SlotScoreMap.this.remove(last);
+            last = -1;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return SlotScoreMap.this.size();
+      }
+    };
+  }
+
+  private int nextSlot(int from) {
+    Slots current = slots;
+    for (int slot = from; slot < current.scores.length; slot++) {
+      if (current.has(slot)) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * The scores and the bits of the slots that hold a score, of the same length.
+   */
+  private static final class Slots {
+
+    private final double[] scores;
+    private final long[] present;
+
+    private Slots(int slots) {
+      scores = new double[slots];
+      present = new long[(slots + 63) >>> 6];
+    }
+
+    private Slots(Slots copy, int slots) {
+      scores = Arrays.copyOf(copy.scores, slots);
+      present = Arrays.copyOf(copy.present, (slots + 63) >>> 6);
+    }
+
+    private boolean has(int slot) {
+      int word = slot >>> 6;
+      return slot >= 0 && slot < scores.length && (present[word] & (1L << slot)) != 0;
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package opennlp.addons.geoentitylinker.scoring;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import opennlp.addons.geoentitylinker.AdminBoundaryContext;
+import opennlp.addons.geoentitylinker.GazetteerEntry;
+import opennlp.tools.entitylinker.EntityLinkerProperties;
+import opennlp.tools.entitylinker.LinkedSpan;
+import opennlp.tools.util.Span;
+
+/**
+ * Scores toponyms by how many of the other candidates of the document lie
+ * within a great-circle radius of them, relative to the candidate with the
+ * most neighbors. Like the {@link GeoHashBinningScorer}, it is based on the
+ * heuristic that docs are generally about a small area, but the neighborhood
+ * is a circle around each point instead of a geohash cell, so points near the
+ * border of a cell are not split apart.
+ * <p>
+ * The points are mapped onto the unit sphere, where a great-circle radius is
+ * a straight-line (chord) distance, and counted with a {@link PointKdTree}, so
+ * scoring takes O(n log n) instead of comparing all pairs.
+ * <p>
+ * The scorer is not in the default chain, add {@code SpatialDensityScorer} to
+ * {@code opennlp.geoentitylinker.scorers} to use it. The radius is configured
+ * with {@code opennlp.geoentitylinker.spatialdensity.radius.km}, 100 km by
+ * default. The score is stored as {@code spatialdensity}.
+ */
+public class SpatialDensityScorer implements LinkedEntityScorer<GazetteerEntry, AdminBoundaryContext> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final double DEFAULT_RADIUS_KM = 100d;
+  private static final double EARTH_RADIUS_KM = 6371.0088;
+
+  @Override
+  public void score(List<LinkedSpan<GazetteerEntry>> linkedSpans, String docText, Span[] sentenceSpans,
+                    EntityLinkerProperties properties, AdminBoundaryContext additionalContext) {
+    List<GazetteerEntry> entries = new ArrayList<>();
+    for (LinkedSpan<GazetteerEntry> ls : linkedSpans) {
+      for (GazetteerEntry entry : ls.getLinkedEntries()) {
+        if (entry.getLatitude() != null && entry.getLongitude() != null) {
+          entries.add(entry);
+        }
+      }
+    }
+    int[] neighbors = countNeighbors(entries, radiusKm(properties));
+    int max = 0;
+    for (int count : neighbors) {
+      max = Math.max(max, count);
+    }
+    for (int i = 0; i < neighbors.length; i++) {
+      ScoreRegistry.put(entries.get(i), ScoreRegistry.SPATIALDENSITY, max == 0 ? 0d : (double) neighbors[i] / max);
+    }
+  }
+
+  private static double radiusKm(EntityLinkerProperties properties) {
+    if (properties == null) {
+      return DEFAULT_RADIUS_KM;
+    }
+    try {
+      return Double.parseDouble(properties.getProperty("opennlp.geoentitylinker.spatialdensity.radius.km",
+          String.valueOf(DEFAULT_RADIUS_KM)));
+    } catch (IOException | NumberFormatException ex) {
+      LOG.error(ex.getLocalizedMessage(), ex);
+      return DEFAULT_RADIUS_KM;
+    }
+  }
+
+  /**
+   * @param entries entries with a point
+   * @param radiusKm the great-circle radius in km
+   * @return for each entry the number of other entries within the radius
+   */
+  public int[] countNeighbors(List<GazetteerEntry> entries, double radiusKm) {
+    int n = entries.size();
+    double[] x = new double[n];
+    double[] y = new double[n];
+    double[] z = new double[n];
+    for (int i = 0; i < n; i++) {
+      double lat = Math.toRadians(entries.get(i).getLatitude());
+      double lon = Math.toRadians(entries.get(i).getLongitude());
+      x[i] = Math.cos(lat) * Math.cos(lon);
+      y[i] = Math.cos(lat) * Math.sin(lon);
+      z[i] = Math.sin(lat);
+    }
+    double chord = chordLength(radiusKm);
+    PointKdTree tree = new PointKdTree(x, y, z);
+    int[] neighbors = new int[n];
+    for (int i = 0; i < n; i++) {
+      neighbors[i] = tree.countWithin(x[i], y[i], z[i], chord) - 1;
+    }
+    return neighbors;
+  }
+
+  /**
+   * @return the straight-line distance between two points on the unit sphere
+   * that are {@code radiusKm} apart on the surface of the earth
+   */
+  static double chordLength(double radiusKm) {
+    double angle = Math.min(Math.PI, radiusKm / EARTH_RADIUS_KM);
+    return 2 * Math.sin(angle / 2);
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import opennlp.tools.entitylinker.EntityLinkerProperties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AdminBoundaryContextGeneratorTest {
+
+  private static final String[] TEXTS = {
+      "This article is about fairfax county virginia in the united states.",
+      "Paris is in France, and Lyon is in France too.",
+      "Richmond, Virginia and Alexandria, Virginia.",
+      "Nothing to see here."
+  };
+
+  @TempDir
+  Path tempDir;
+
+  private AdminBoundaryContextGenerator generator() throws IOException {
+    Path file = tempDir.resolve("countrycontext.txt");
+    Files.write(file, List.of(
+        "cc\tprov\tcounty\tcountry\tprovince\tcountyname\tcountryregex\tprovregex\tcountyregex",
+        "us\tva\t059\tunited states\tvirginia\tfairfax county\t(united states|u\\.s\\.a\\.)\tvirginia\tfairfax county",
+        "us\tmd\tNO_DATA_FOUND\tunited states\tmaryland\tNO_DATA_FOUND\t(united states|u\\.s\\.a\\.)\tmaryland\tNO_DATA_FOUND",
+        "fr\t11\tNO_DATA_FOUND\tfrance\tile-de-france\tNO_DATA_FOUND\t(france)\tile-de-france\tNO_DATA_FOUND"), StandardCharsets.UTF_8);
+    String props = "opennlp.geoentitylinker.countrycontext.filepath=" + file.toString().replace("\\", "/") + "\n";
+    return new AdminBoundaryContextGenerator(
+        new EntityLinkerProperties(new ByteArrayInputStream(props.getBytes(StandardCharsets.UTF_8))));
+  }
+
+  private static List<Object> result(AdminBoundaryContext context) {
+    return List.of(context.getCountryMentions(), context.getProvMentions(), context.getCountyMentions(),
+        context.getCountryHits(), context.getProvHits(), context.getNameCodesMap());
+  }
+
+  @Test
+  public void testFindsMentions() throws IOException {
+    AdminBoundaryContext context = generator().getContext(TEXTS[0]);
+    // a mention starts at the boundary character before the name
+    assertEquals(Map.of("us", Set.of(TEXTS[0].indexOf("united") - 1)), context.getCountryMentions());
+    assertEquals(Map.of("us.va", Set.of(TEXTS[0].indexOf("virginia") - 1)), context.getProvMentions());
+    assertEquals(Map.of("us.va.059", Set.of(TEXTS[0].indexOf("fairfax") - 1)), context.getCountyMentions());
+    assertEquals(Set.of("us"), context.getNameCodesMap().get("united states"));
+    assertThrows(UnsupportedOperationException.class, () -> context.getProvRefMap().get("us").clear());
+  }
+
+  @Test
+  public void testConcurrentDocumentsGetTheirOwnResults() throws Exception {
+    AdminBoundaryContextGenerator generator = generator();
+    List<List<Object>> expected = new ArrayList<>();
+    for (String text : TEXTS) {
+      expected.add(result(generator.getContext(text)));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        int offset = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 200; i++) {
+            int doc = (i + offset) % TEXTS.length;
+            assertEquals(expected.get(doc), result(generator.getContext(TEXTS[doc])));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoundedGazetteerSearchCacheTest {
+
+  @Test
+  public void testGetAndPut() {
+    BoundedGazetteerSearchCache<String> cache = new BoundedGazetteerSearchCache<>(10, 0, TimeUnit.SECONDS);
+    assertNull(cache.get("berlin"));
+    cache.put("berlin", "de");
+    assertEquals("de", cache.get("berlin"));
+
+    GazetteerSearchCache.Stats stats = cache.stats();
+    assertEquals(1, stats.hits());
+    assertEquals(1, stats.misses());
+    assertEquals(0, stats.evictions());
+  }
+
+  @Test
+  public void testSizeBoundKeepsRecentlyUsedEntries() {
+    BoundedGazetteerSearchCache<Integer> cache = new BoundedGazetteerSearchCache<>(100, 0, TimeUnit.SECONDS);
+    for (int i = 0; i < 100; i++) {
+      cache.put("key" + i, i);
+    }
+    // touch the first half, the second half becomes the eviction candidates
+    for (int i = 0; i < 50; i++) {
+      assertNotNull(cache.get("key" + i));
+    }
+    for (int i = 100; i < 150; i++) {
+      cache.put("key" + i, i);
+    }
+    assertTrue(cache.size() <= 100);
+    for (int i = 0; i < 50; i++) {
+      assertEquals(i, cache.get("key" + i));
+    }
+    assertEquals(50, cache.stats().evictions());
+  }
+
+  @Test
+  public void testExpiredEntriesAreMisses() throws InterruptedException {
+    BoundedGazetteerSearchCache<String> cache = new BoundedGazetteerSearchCache<>(10, 1, TimeUnit.MILLISECONDS);
+    cache.put("moscow", "ru");
+    Thread.sleep(5);
+    assertNull(cache.get("moscow"));
+    assertEquals(1, cache.stats().evictions());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testZeroCapacityDisablesCaching() {
+    BoundedGazetteerSearchCache<String> cache = new BoundedGazetteerSearchCache<>(0, 0, TimeUnit.SECONDS);
+    cache.put("atlanta", "us");
+    assertNull(cache.get("atlanta"));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testInvalidateAll() {
+    BoundedGazetteerSearchCache<String> cache = new BoundedGazetteerSearchCache<>(10, 0, TimeUnit.SECONDS);
+    cache.put("fairfax", "us");
+    cache.invalidateAll();
+    assertNull(cache.get("fairfax"));
+    assertEquals(0, cache.size());
+  }
+}
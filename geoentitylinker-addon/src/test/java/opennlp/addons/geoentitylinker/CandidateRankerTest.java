@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import opennlp.addons.geoentitylinker.scoring.LinkedEntityScorer;
+import opennlp.addons.geoentitylinker.scoring.ScoreRegistry;
+import opennlp.tools.entitylinker.BaseLink;
+import opennlp.tools.entitylinker.EntityLinkerProperties;
+import opennlp.tools.entitylinker.LinkedSpan;
+import opennlp.tools.util.Span;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CandidateRankerTest {
+
+  private static CandidateRanker ranker(String props) throws IOException {
+    return new CandidateRanker(
+        new EntityLinkerProperties(new ByteArrayInputStream(props.getBytes(StandardCharsets.UTF_8))));
+  }
+
+  private static GazetteerEntry entry(int id, double typescore, double countrycontext, double lucene) {
+    GazetteerEntry entry = new GazetteerEntry("us", String.valueOf(id), "place " + id, "ppl");
+    entry.setIndexID(String.valueOf(id));
+    entry.getScoreMap().put("typescore", typescore);
+    entry.getScoreMap().put("countrycontext", countrycontext);
+    entry.getScoreMap().put("lucene", lucene);
+    return entry;
+  }
+
+  @Test
+  public void testDefaultWeightsSumTheRankedScores() throws IOException {
+    CandidateRanker ranker = ranker("");
+    // lucene is not ranked by default, only normlucene
+    assertEquals(0.75, ranker.total(entry(0, 0.5, 0.25, 10d)), 1e-12);
+  }
+
+  @Test
+  public void testConfiguredWeights() throws IOException {
+    CandidateRanker ranker = ranker(CandidateRanker.WEIGHT_PREFIX + "typescore=2\n"
+        + CandidateRanker.WEIGHT_PREFIX + "countrycontext=0\n"
+        + CandidateRanker.WEIGHT_PREFIX + "lucene=0.5\n");
+    assertEquals(2 * 0.5 + 0.5 * 10d, ranker.total(entry(0, 0.5, 0.25, 10d)), 1e-12);
+  }
+
+  @Test
+  public void testTopNEqualsFullSortPrefix() throws IOException {
+    CandidateRanker ranker = ranker("");
+    Random random = new Random(42);
+    for (int round = 0; round < 200; round++) {
+      List<GazetteerEntry> entries = new ArrayList<>();
+      int n = random.nextInt(30);
+      for (int i = 0; i < n; i++) {
+        // few distinct values, so there are many ties
+        entries.add(entry(i, random.nextInt(4) / 4d, random.nextInt(3) / 2d, random.nextDouble()));
+      }
+      int topN = random.nextInt(6);
+
+      List<GazetteerEntry> expected = new ArrayList<>(entries);
+      expected.sort(Comparator.comparingDouble(ranker::total).reversed());
+      expected = expected.subList(0, Math.min(topN, n));
+
+      ranker.rank(entries, topN);
+      assertEquals(expected, entries);
+    }
+  }
+
+  @Test
+  public void testRankKeepsAllWhenTopNIsLarger() throws IOException {
+    List<GazetteerEntry> entries = new ArrayList<>(List.of(entry(0, 0, 0, 0), entry(1, 1, 0, 0), entry(2, 0, 0.5, 0)));
+    ranker("").rank(entries, 10);
+    assertEquals(3, entries.size());
+    assertEquals("1", entries.get(0).getItemID());
+    assertEquals("2", entries.get(1).getItemID());
+    assertEquals("0", entries.get(2).getItemID());
+  }
+
+  /**
+   * A custom scorer whose key is only registered when it scores for the first time.
+   */
+  private static final class PopulationScorer implements LinkedEntityScorer<BaseLink, AdminBoundaryContext> {
+
+    @Override
+    public void score(List<LinkedSpan<BaseLink>> linkedSpans, String docText, Span[] sentenceSpans,
+                      EntityLinkerProperties properties, AdminBoundaryContext additionalContext) {
+      for (LinkedSpan<BaseLink> span : linkedSpans) {
+        for (BaseLink link : span.getLinkedEntries()) {
+          link.getScoreMap().put("rankertestpopulation", link.getItemID().equals("0") ? 1d : 0d);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testWeightOfCustomScorerRegisteredAfterTheRanker() throws IOException {
+    CandidateRanker ranker = ranker(CandidateRanker.WEIGHT_PREFIX + "rankertestpopulation=5\n");
+    assertEquals(-1, ScoreRegistry.find("rankertestpopulation"));
+
+    List<BaseLink> entries = new ArrayList<>(List.of(entry(0, 0, 0, 0), entry(1, 1, 0, 0), entry(2, 0, 0.5, 0)));
+    new PopulationScorer().score(List.of(new LinkedSpan<>(new ArrayList<>(entries), 0, 5)), "", new Span[0],
+        null, null);
+    ranker.rank(entries, 2);
+    assertEquals("0", entries.get(0).getItemID());
+    assertEquals("1", entries.get(1).getItemID());
+    assertEquals(5d, ranker.total(entries.get(0)), 1e-12);
+  }
+}
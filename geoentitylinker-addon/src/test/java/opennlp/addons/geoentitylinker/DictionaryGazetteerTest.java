@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import opennlp.addons.geoentitylinker.indexing.GazetteerDictionaryWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DictionaryGazetteerTest {
+
+  private static final String US = " countrycode:us AND gazsource:usgs";
+  private static final String FR = " countrycode:fr AND gazsource:geonames";
+
+  @TempDir
+  Path tempDir;
+
+  private Path dictionary;
+
+  private static void addPlace(IndexWriter writer, String id, String name, String aliases, String countryCode,
+                               String source, String population, String lat) throws IOException {
+    Document doc = new Document();
+    doc.add(new TextField("hierarchy", countryCode + ", " + name, Field.Store.YES));
+    doc.add(new TextField("placename", name, Field.Store.YES));
+    if (aliases != null) {
+      doc.add(new TextField("alternatenames", aliases, Field.Store.YES));
+    }
+    if (population != null) {
+      doc.add(new TextField("population", population, Field.Store.YES));
+    }
+    doc.add(new TextField("latitude", lat, Field.Store.YES));
+    doc.add(new TextField("longitude", "2.0", Field.Store.YES));
+    doc.add(new StringField("loctype", "ppl", Field.Store.YES));
+    doc.add(new StringField("admincode", countryCode + ".01", Field.Store.YES));
+    doc.add(new StringField("countrycode", countryCode, Field.Store.YES));
+    doc.add(new StringField("locid", id, Field.Store.YES));
+    doc.add(new StringField("gazsource", source, Field.Store.YES));
+    writer.addDocument(doc);
+  }
+
+  @BeforeEach
+  public void writeDictionary() throws IOException {
+    Path index = tempDir.resolve("gaz");
+    try (MMapDirectory dir = new MMapDirectory(index);
+         IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()))) {
+      addPlace(writer, "1", "Paris", null, "us", "usgs", null, "33.6");
+      addPlace(writer, "2", "Paris", "Lutetia,Paname", "fr", "geonames", "2138551", "48.8");
+      addPlace(writer, "3", "Paris", null, "us", "usgs", null, "38.2");
+      addPlace(writer, "4", "Saint-Louis", "St. Louis", "us", "usgs", "300000", "38.6");
+      addPlace(writer, "5", "Nowhere", null, "us", "usgs", null, "n/a");
+    }
+    dictionary = tempDir.resolve("gazetteer.dict");
+    assertEquals(4, GazetteerDictionaryWriter.write(index, dictionary));
+  }
+
+  @Test
+  public void testExactAndAliasLookup() throws IOException {
+    try (DictionaryGazetteer gazetteer = new DictionaryGazetteer(dictionary)) {
+      Map<String, List<GazetteerHit>> hits = gazetteer.findAllHits(
+          List.of("Lutetia", "St Louis", "saint louis", "Nowhere", "London"), 5, List.of(US, FR));
+      assertEquals(List.of("Lutetia", "St Louis", "saint louis", "Nowhere", "London"), List.copyOf(hits.keySet()));
+
+      GazetteerHit paris = hits.get("Lutetia").get(0);
+      assertEquals(1, hits.get("Lutetia").size());
+      assertEquals("Paris", paris.placeName());
+      assertEquals("fr", paris.countryCode());
+      assertEquals("fr.01", paris.provinceCode());
+      assertEquals("geonames", paris.source());
+      assertEquals(48.8, paris.latitude());
+      assertEquals(1.0, paris.score());
+      assertEquals(Map.of("locid", "2", "population", "2138551"), paris.indexData(Set.of("locid", "population")));
+
+      assertEquals("4", hits.get("St Louis").get(0).indexData().get("locid"));
+      assertEquals(3, hits.get("St Louis").get(0).docId());
+      assertEquals(3, hits.get("saint louis").get(0).docId());
+      // entries without coordinates are not in the dictionary
+      assertTrue(hits.get("Nowhere").isEmpty());
+      assertTrue(hits.get("London").isEmpty());
+    }
+  }
+
+  @Test
+  public void testWhereClausesAndTopN() throws IOException {
+    try (DictionaryGazetteer gazetteer = new DictionaryGazetteer(dictionary)) {
+      List<GazetteerHit> us = gazetteer.findAllHits(List.of("paris"), 5, List.of(US)).get("paris");
+      assertEquals(2, us.size());
+      assertEquals(33.6, us.get(0).latitude());
+      assertEquals(38.2, us.get(1).latitude());
+
+      // top N per where clause, merged in the order of the clauses
+      List<GazetteerHit> merged = gazetteer.findAllHits(List.of("paris"), 1, List.of(FR, US)).get("paris");
+      assertEquals(2, merged.size());
+      assertEquals("fr", merged.get(0).countryCode());
+      assertEquals(33.6, merged.get(1).latitude());
+
+      // the default clause of the linker matches all sources, the most populous entry first
+      List<GazetteerHit> all = gazetteer.findAllHits(List.of("paris"), 1,
+          List.of(" gazsource:usgs geonames region ")).get("paris");
+      assertEquals("fr", all.get(0).countryCode());
+
+      assertTrue(gazetteer.findAllHits(List.of("paris"), 5, List.of("countrycode:us OR countrycode:fr"))
+          .get("paris").isEmpty());
+    }
+  }
+
+  @Test
+  public void testEntries() throws IOException {
+    try (DictionaryGazetteer gazetteer = new DictionaryGazetteer(dictionary)) {
+      List<GazetteerEntry> entries = gazetteer.findAll(List.of("Paname"), 5, List.of(FR)).get("Paname");
+      assertEquals(1, entries.size());
+      assertEquals("Paris", entries.get(0).getItemName());
+      assertEquals("2", entries.get(0).getIndexData().get("locid"));
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+
+import opennlp.addons.geoentitylinker.indexing.GazetteerDocValues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GazetteerHitReaderTest {
+
+  private static Document place(String name, String lat, String lon, String cc, boolean docValues) {
+    Document doc = new Document();
+    doc.add(new TextField("hierarchy", "united states, virginia, " + name, Field.Store.YES));
+    doc.add(new TextField("placename", name, Field.Store.YES));
+    doc.add(new TextField("latitude", lat, Field.Store.YES));
+    doc.add(new TextField("longitude", lon, Field.Store.YES));
+    doc.add(new StringField("loctype", "ppl", Field.Store.YES));
+    doc.add(new StringField("admincode", cc + ".va", Field.Store.YES));
+    doc.add(new StringField("countrycode", cc, Field.Store.YES));
+    doc.add(new StringField("locid", name, Field.Store.YES));
+    doc.add(new StringField("gazsource", "usgs", Field.Store.YES));
+    if (docValues) {
+      GazetteerDocValues.add(doc, lat, lon, cc, cc + ".va", "ppl", "usgs");
+    }
+    return doc;
+  }
+
+  @Test
+  public void testDocValuesAndStoredFieldsGiveSameHits() throws IOException {
+    try (Directory dir = new ByteBuffersDirectory()) {
+      try (IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()))) {
+        writer.addDocument(place("fairfax", "38.8462", "-77.3064", "us", true));
+        writer.commit();
+        // an older segment without doc values
+        writer.addDocument(place("fairfax", "38.8462", "-77.3064", "us", false));
+      }
+      try (DirectoryReader reader = DirectoryReader.open(dir)) {
+        ScoreDoc[] top = {new ScoreDoc(1, 2f), new ScoreDoc(0, 1f)};
+        List<GazetteerHit> hits = new GazetteerHitReader(reader).read(top);
+
+        assertEquals(2, hits.size());
+        assertEquals(1, hits.get(0).docId());
+        assertEquals(0, hits.get(1).docId());
+        for (GazetteerHit hit : hits) {
+          assertEquals("fairfax", hit.placeName());
+          assertEquals("us", hit.countryCode());
+          assertEquals("us.va", hit.provinceCode());
+          assertEquals("ppl", hit.itemType());
+          assertEquals("usgs", hit.source());
+          assertEquals(38.8462, hit.latitude());
+          assertEquals(-77.3064, hit.longitude());
+          assertEquals(Map.of("locid", "fairfax"), hit.indexData(Set.of("locid", "unknown")));
+          assertEquals(9, hit.indexData().size());
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import opennlp.addons.geoentitylinker.indexing.GazetteerDocValues;
+import opennlp.tools.entitylinker.EntityLinkerProperties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GazetteerSearcherTest {
+
+  private static final String WHERE = " countrycode:us AND gazsource:usgs";
+
+  @TempDir
+  Path tempDir;
+
+  private static void addPlaces(Path index, String... names) throws IOException {
+    try (MMapDirectory dir = new MMapDirectory(index);
+         IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()))) {
+      for (String name : names) {
+        Document doc = new Document();
+        doc.add(new TextField("hierarchy", "united states, " + name, Field.Store.YES));
+        doc.add(new TextField("placename", name, Field.Store.YES));
+        doc.add(new TextField("latitude", "38.0", Field.Store.YES));
+        doc.add(new TextField("longitude", "-77.0", Field.Store.YES));
+        doc.add(new StringField("loctype", "ppl", Field.Store.YES));
+        doc.add(new StringField("admincode", "us.va", Field.Store.YES));
+        doc.add(new StringField("countrycode", "us", Field.Store.YES));
+        doc.add(new StringField("gazsource", "usgs", Field.Store.YES));
+        GazetteerDocValues.add(doc, "38.0", "-77.0", "us", "us.va", "ppl", "usgs");
+        writer.addDocument(doc);
+      }
+    }
+  }
+
+  private static void addPlace(IndexWriter writer, String name, String countryCode, String source)
+      throws IOException {
+    Document doc = new Document();
+    doc.add(new TextField("hierarchy", countryCode + ", " + name, Field.Store.YES));
+    doc.add(new TextField("placename", name, Field.Store.YES));
+    doc.add(new TextField("latitude", "40.0", Field.Store.YES));
+    doc.add(new TextField("longitude", "-80.0", Field.Store.YES));
+    doc.add(new StringField("loctype", "ppl", Field.Store.YES));
+    doc.add(new StringField("admincode", countryCode + ".01", Field.Store.YES));
+    doc.add(new StringField("countrycode", countryCode, Field.Store.YES));
+    doc.add(new StringField("gazsource", source, Field.Store.YES));
+    GazetteerDocValues.add(doc, "40.0", "-80.0", countryCode, countryCode + ".01", "ppl", source);
+    writer.addDocument(doc);
+  }
+
+  /**
+   * Three springfields and a salem in the us, two springfields in canada.
+   */
+  private Path springfields() throws IOException {
+    Path index = tempDir.resolve("springfields");
+    try (MMapDirectory dir = new MMapDirectory(index);
+         IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()))) {
+      for (int i = 0; i < 3; i++) {
+        addPlace(writer, "springfield", "us", "usgs");
+      }
+      addPlace(writer, "salem", "us", "usgs");
+      for (int i = 0; i < 2; i++) {
+        addPlace(writer, "springfield", "ca", "geonames");
+      }
+    }
+    return index;
+  }
+
+  private static EntityLinkerProperties properties(Path index) throws IOException {
+    return properties(index, "");
+  }
+
+  private static EntityLinkerProperties properties(Path index, String more) throws IOException {
+    String props = "opennlp.geoentitylinker.gaz=" + index.toString().replace("\\", "/") + "\n" + more;
+    return new EntityLinkerProperties(new ByteArrayInputStream(props.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static Map<String, List<Integer>> docIds(Map<String, List<GazetteerHit>> hitsByName) {
+    Map<String, List<Integer>> docIds = new LinkedHashMap<>();
+    hitsByName.forEach((name, hits) -> docIds.put(name, hits.stream().map(GazetteerHit::docId).toList()));
+    return docIds;
+  }
+
+  @Test
+  public void testRefreshPicksUpNewDocumentsAndInvalidatesCache() throws IOException {
+    Path index = tempDir.resolve("gaz");
+    addPlaces(index, "fairfax");
+    try (GazetteerSearcher searcher = new GazetteerSearcher(properties(index))) {
+      assertEquals(1, searcher.find("fairfax", 5, WHERE).size());
+      assertEquals(1, searcher.getCache().size());
+      assertFalse(searcher.refresh());
+
+      addPlaces(index, "fairfax station");
+      assertTrue(searcher.refresh());
+      assertEquals(0, searcher.getCache().size());
+      assertEquals(2, searcher.find("fairfax", 5, WHERE).size());
+    }
+  }
+
+  @Test
+  public void testSwapIndex() throws IOException {
+    Path first = tempDir.resolve("first");
+    Path second = tempDir.resolve("second");
+    addPlaces(first, "vienna");
+    addPlaces(second, "vienna", "vienna center");
+    try (GazetteerSearcher searcher = new GazetteerSearcher(properties(first))) {
+      List<GazetteerEntry> before = searcher.find("vienna", 5, WHERE);
+      assertEquals(1, before.size());
+
+      searcher.swapIndex(second);
+      assertEquals(2, searcher.find("vienna", 5, WHERE).size());
+      // entries loaded before the swap keep their data
+      assertEquals("vienna", before.get(0).getItemName());
+    }
+  }
+
+  @Test
+  public void testIndexDataIsReleasedWithItsGeneration() throws IOException {
+    Path first = tempDir.resolve("first");
+    Path second = tempDir.resolve("second");
+    addPlaces(first, "arlington");
+    addPlaces(second, "arlington");
+    try (GazetteerSearcher searcher = new GazetteerSearcher(properties(first))) {
+      GazetteerEntry beforeRefresh = searcher.find("arlington", 5, WHERE).get(0);
+      addPlaces(first, "arlington heights");
+      assertTrue(searcher.refresh());
+      assertThrows(IllegalStateException.class, beforeRefresh::getIndexData);
+      // printing an entry does not load its index data
+      assertTrue(beforeRefresh.toString().contains("indexData=<not loaded>"));
+
+      GazetteerEntry loaded = searcher.find("arlington", 5, WHERE).get(0);
+      assertEquals("arlington", loaded.getIndexData().get("placename"));
+      // another search string, so the hit is not the one that loaded its index data
+      GazetteerEntry beforeSwap = searcher.find("arlington heights", 5, WHERE).get(0);
+      searcher.swapIndex(second);
+      // index data that was loaded is kept
+      assertEquals("us.va", loaded.getIndexData().get("admincode"));
+      assertThrows(IllegalStateException.class, beforeSwap::getIndexData);
+    }
+  }
+
+  @Test
+  public void testFindAllHitsSearchesDuplicateNamesOnce() throws IOException {
+    try (GazetteerSearcher searcher = new GazetteerSearcher(properties(springfields()))) {
+      Map<String, List<GazetteerHit>> hits = searcher.findAllHits(
+          List.of("springfield", "salem", "springfield", "atlantis"), 5, List.of(WHERE));
+      assertEquals(List.of("springfield", "salem", "atlantis"), List.copyOf(hits.keySet()));
+      assertEquals(3, hits.get("springfield").size());
+      assertEquals(1, hits.get("salem").size());
+      assertTrue(hits.get("atlantis").isEmpty());
+      // one query per distinct name and where clause
+      assertEquals(3, searcher.getCache().size());
+    }
+  }
+
+  @Test
+  public void testFindAllHitsMergesTopNPerClauseInClauseOrder() throws IOException {
+    String canada = " countrycode:ca AND gazsource:geonames";
+    String all = " gazsource:usgs geonames region ";
+    try (GazetteerSearcher searcher = new GazetteerSearcher(properties(springfields()))) {
+      List<GazetteerHit> hits = searcher.findAllHits(List.of("springfield"), 2, List.of(canada, WHERE))
+          .get("springfield");
+      assertEquals(List.of("ca", "ca", "us", "us"), hits.stream().map(GazetteerHit::countryCode).toList());
+
+      // the hits of the second clause overlap with the first one, each hit is returned once
+      List<GazetteerHit> overlapping = searcher.findAllHits(List.of("springfield"), 5, List.of(WHERE, all))
+          .get("springfield");
+      assertEquals(5, overlapping.size());
+      assertEquals(5, overlapping.stream().map(GazetteerHit::docId).distinct().count());
+      assertEquals(List.of("us", "us", "us"),
+          overlapping.subList(0, 3).stream().map(GazetteerHit::countryCode).toList());
+    }
+  }
+
+  @Test
+  public void testFindAllHitsIsTheSameWithSearchThreads() throws IOException {
+    Path index = springfields();
+    List<String> names = List.of("springfield", "salem", "springfield", "atlantis");
+    List<String> clauses = List.of(" countrycode:ca AND gazsource:geonames", WHERE, " gazsource:usgs geonames region ");
+    Map<String, List<Integer>> expected;
+    try (GazetteerSearcher searcher = new GazetteerSearcher(properties(index))) {
+      expected = docIds(searcher.findAllHits(names, 2, clauses));
+    }
+    for (String more : List.of("opennlp.geoentitylinker.gaz.search.threads=4\n",
+        "opennlp.geoentitylinker.gaz.search.threads=4\nopennlp.geoentitylinker.gaz.combinedquery=true\n")) {
+      try (GazetteerSearcher searcher = new GazetteerSearcher(properties(index, more))) {
+        assertEquals(expected, docIds(searcher.findAllHits(names, 2, clauses)), more);
+      }
+    }
+  }
+
+  @Test
+  public void testCachedResultsAreNotShared() throws IOException {
+    Path index = tempDir.resolve("gaz");
+    addPlaces(index, "fairfax", "fairfax station");
+    try (GazetteerSearcher searcher = new GazetteerSearcher(properties(index))) {
+      List<GazetteerEntry> first = searcher.find("fairfax", 5, WHERE);
+      assertEquals(2, first.size());
+      double score = first.get(0).getScoreMap().get("lucene");
+      first.get(0).getScoreMap().put("lucene", -1d);
+      first.get(0).getScoreMap().put("typescore", 5d);
+      first.remove(1);
+
+      List<GazetteerEntry> second = searcher.find("fairfax", 5, WHERE);
+      assertEquals(1, searcher.getCache().size());
+      assertEquals(2, second.size());
+      assertEquals(score, second.get(0).getScoreMap().get("lucene"));
+      assertFalse(second.get(0).getScoreMap().containsKey("typescore"));
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MentionPatternTest {
+
+  private static final String[] NAMES = {
+      "virginia",
+      "west virginia",
+      "(u\\.s\\.[ $]|u\\.s\\.a\\.[ $]|united states|the us[ $]|a us[ $])",
+      "(united states)",
+      "st. louis",
+      "sainte?-foy",
+      "fort w.rth",
+      "são paulo",
+      "us",
+      "a"
+  };
+
+  private static final String[] TEXTS = {
+      "Virginia and West Virginia are in the United States.",
+      "virginia,virginia virginia  virginia",
+      "VIRGINIAN virginia1 1virginia _virginia_",
+      "the U.S. and the U.S.A.  and a US  base",
+      "St. Louis and st louis and stXlouis",
+      "Sainte-Foy, Saint-Foy, Fort Worth and fort wirth",
+      "SÃO PAULO, São Paulo and são paulo.",
+      "𝐀virginia 😀virginia virginia𝐀",
+      "us",
+      "a a a aa a.a",
+      ""
+  };
+
+  private static List<String> regexMentions(String name, String text) {
+    List<String> mentions = new ArrayList<>();
+    Matcher rs = Pattern.compile("(^|[^\\p{L}\\p{Nd}])" + name + "([^\\p{L}\\p{Nd}]|$)",
+        Pattern.CASE_INSENSITIVE | Pattern.DOTALL).matcher(text);
+    while (rs.find()) {
+      mentions.add(rs.start() + "-" + rs.end());
+    }
+    return mentions;
+  }
+
+  @Test
+  public void testSameMentionsAsRegex() {
+    MentionAutomaton.Builder builder = new MentionAutomaton.Builder();
+    List<MentionPattern> patterns = new ArrayList<>();
+    for (String name : NAMES) {
+      patterns.add(builder.add(name));
+    }
+    MentionAutomaton automaton = builder.build();
+
+    List<String> texts = new ArrayList<>(List.of(TEXTS));
+    Random random = new Random(42);
+    String alphabet = "aAsuUvV .,-1𝐀";
+    for (int i = 0; i < 500; i++) {
+      StringBuilder sb = new StringBuilder();
+      for (int j = random.nextInt(20); j > 0; j--) {
+        sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      texts.add(sb.toString());
+    }
+
+    for (String text : texts) {
+      MentionAutomaton.Occurrences occurrences = automaton.scan(text);
+      for (int i = 0; i < NAMES.length; i++) {
+        List<String> mentions = new ArrayList<>();
+        patterns.get(i).find(text, occurrences, (start, end) -> mentions.add(start + "-" + end));
+        assertEquals(regexMentions(NAMES[i], text), mentions, NAMES[i] + " in '" + text + "'");
+      }
+    }
+  }
+
+  @Test
+  public void testLiteralAlternatives() {
+    assertEquals(List.of("virginia"), MentionAutomaton.literalAlternatives("virginia"));
+    assertEquals(List.of("u.s. ", "u.s.$", "united states"),
+        MentionAutomaton.literalAlternatives("(u\\.s\\.[ $]|united states)"));
+    assertNull(MentionAutomaton.literalAlternatives("st. louis"));
+    assertNull(MentionAutomaton.literalAlternatives("a|b"));
+    assertNull(MentionAutomaton.literalAlternatives("(a|)"));
+    assertNull(MentionAutomaton.literalAlternatives("colou?r"));
+
+    assertEquals(" louis", MentionPattern.literalAnchor("st. louis"));
+    assertEquals("saint", MentionPattern.literalAnchor("sainte?-foy"));
+    assertEquals("st. ", MentionPattern.literalAnchor("st\\. (louis)"));
+    assertNull(MentionPattern.literalAnchor("(a|b)c"));
+    assertNull(MentionPattern.literalAnchor("\\d+"));
+    assertEquals("a", MentionPattern.literalAnchor("ab{0,2}c"));
+    assertEquals("y", MentionPattern.literalAnchor("x{2}y"));
+
+    MentionAutomaton.Builder builder = new MentionAutomaton.Builder();
+    assertTrue(builder.add("(france|french republic)").isLiteral());
+    assertFalse(builder.add("(fran[^k]e)").isLiteral());
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import opennlp.tools.entitylinker.BaseLink;
+import opennlp.tools.entitylinker.EntityLinker;
+import opennlp.tools.entitylinker.EntityLinkerProperties;
+import opennlp.tools.entitylinker.LinkedSpan;
+import opennlp.tools.util.Span;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelDocumentLinkerTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  /**
+   * Links a document to a single span, the text tells how long to take or whether to fail.
+   */
+  private static final class FakeLinker implements EntityLinker<LinkedSpan<BaseLink>> {
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    @Override
+    public void init(EntityLinkerProperties properties) {
+    }
+
+    @Override
+    public List<LinkedSpan<BaseLink>> find(String doctext, Span[] sentences, Span[][] tokensBySentence,
+                                           Span[][] namesBySentence) {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        if (doctext.startsWith("fail")) {
+          throw new IllegalStateException(doctext);
+        }
+        Thread.sleep(doctext.startsWith("slow") ? 500 : (doctext.length() * 7) % 20);
+        return List.of(new LinkedSpan<>(new ArrayList<>(), 0, doctext.length()));
+      } catch (InterruptedException ex) {
+        throw new IllegalStateException(ex);
+      } finally {
+        running.decrementAndGet();
+      }
+    }
+
+    @Override
+    public List<LinkedSpan<BaseLink>> find(String doctext, Span[] sentences, Span[][] tokensBySentence,
+                                           Span[][] namesBySentence, int sentenceIndex) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static LinkableDocument document(String text) {
+    return new LinkableDocument(text, new Span[0], new Span[0][], new Span[0][]);
+  }
+
+  private static List<LinkableDocument> documents(int count) {
+    return IntStream.range(0, count).mapToObj(i -> document("doc " + i)).collect(Collectors.toList());
+  }
+
+  @AfterEach
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testOrderedOutput() {
+    FakeLinker linker = new FakeLinker();
+    try (ParallelDocumentLinker parallel = new ParallelDocumentLinker(linker, executor, 8, true, 0)) {
+      List<LinkedDocument> linked = parallel.linkAll(documents(50).stream()).collect(Collectors.toList());
+      assertEquals(50, linked.size());
+      for (int i = 0; i < linked.size(); i++) {
+        assertEquals(i, linked.get(i).index());
+        assertEquals("doc " + i, linked.get(i).document().text());
+        assertTrue(linked.get(i).succeeded());
+        assertEquals(1, linked.get(i).spans().size());
+      }
+      assertTrue(linker.maxRunning.get() > 1);
+    }
+  }
+
+  @Test
+  public void testUnorderedOutputReturnsEveryDocument() {
+    try (ParallelDocumentLinker parallel = new ParallelDocumentLinker(new FakeLinker(), executor, 8, false, 0)) {
+      Set<Long> indexes = new HashSet<>();
+      parallel.linkAll(documents(50).iterator()).forEachRemaining(linked -> indexes.add(linked.index()));
+      assertEquals(LongStream.range(0, 50).boxed().collect(Collectors.toSet()), indexes);
+    }
+  }
+
+  @Test
+  public void testInputIsPulledOnlyAsFastAsItIsConsumed() {
+    AtomicInteger pulled = new AtomicInteger();
+    Iterator<LinkableDocument> input = Stream.generate(() -> document("doc " + pulled.incrementAndGet())).iterator();
+    try (ParallelDocumentLinker parallel = new ParallelDocumentLinker(new FakeLinker(), executor, 3, true, 0)) {
+      Iterator<LinkedDocument> linked = parallel.linkAll(input);
+      for (int i = 0; i < 10; i++) {
+        linked.next();
+        assertTrue(pulled.get() <= i + 1 + 3, "pulled " + pulled.get() + " after " + (i + 1));
+      }
+    }
+  }
+
+  @Test
+  public void testTimeoutAndFailureDoNotStopTheOthers() {
+    List<LinkableDocument> input = List.of(document("a"), document("slow"), document("fail"), document("b"));
+    try (ParallelDocumentLinker parallel = new ParallelDocumentLinker(new FakeLinker(), executor, 4, true, 100)) {
+      List<LinkedDocument> linked = new ArrayList<>();
+      parallel.linkAll(input.iterator()).forEachRemaining(linked::add);
+
+      assertEquals(4, linked.size());
+      assertTrue(linked.get(0).succeeded());
+      assertTrue(linked.get(1).timedOut());
+      assertTrue(linked.get(1).spans().isEmpty());
+      assertFalse(linked.get(2).succeeded());
+      assertFalse(linked.get(2).timedOut());
+      assertTrue(linked.get(2).failure() instanceof IllegalStateException);
+      assertTrue(linked.get(3).succeeded());
+    }
+  }
+
+  @Test
+  public void testTimeoutIncludesTheWaitForAThread() {
+    ExecutorService single = Executors.newSingleThreadExecutor();
+    List<LinkableDocument> input = List.of(document("slow"), document("a"), document("b"));
+    try (ParallelDocumentLinker parallel = new ParallelDocumentLinker(new FakeLinker(), single, 3, true, 100)) {
+      long start = System.nanoTime();
+      List<LinkedDocument> linked = new ArrayList<>();
+      parallel.linkAll(input.iterator()).forEachRemaining(linked::add);
+      // the documents behind the slow one time out instead of waiting for it
+      assertTrue(linked.stream().allMatch(LinkedDocument::timedOut));
+      assertTrue(System.nanoTime() - start < 400_000_000L, "took " + (System.nanoTime() - start) + " ns");
+    } finally {
+      single.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testTimedOutDocumentsKeepTheirSlots() {
+    FakeLinker linker = new FakeLinker();
+    List<LinkableDocument> input = List.of(document("slow"), document("slow"), document("slow"), document("slow"));
+    try (ParallelDocumentLinker parallel = new ParallelDocumentLinker(linker, executor, 2, false, 50)) {
+      List<LinkedDocument> linked = new ArrayList<>();
+      parallel.linkAll(input.iterator()).forEachRemaining(linked::add);
+      assertEquals(4, linked.size());
+      assertTrue(linked.stream().allMatch(LinkedDocument::timedOut));
+      assertEquals(2, linker.maxRunning.get());
+    }
+  }
+}
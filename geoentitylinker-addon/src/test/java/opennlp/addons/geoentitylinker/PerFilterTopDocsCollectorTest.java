@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PerFilterTopDocsCollectorTest {
+
+  private static final String[][] PLACES = {
+      {"paris", "us", "usgs"}, {"paris", "fr", "geonames"}, {"paris texas", "us", "usgs"},
+      {"new paris", "us", "usgs"}, {"paris", "ca", "geonames"}, {"port paris", "fr", "geonames"},
+      {"paris", "us", "geonames"}, {"london", "gb", "geonames"}, {"paris hill", "us", "usgs"},
+  };
+
+  @Test
+  public void testSameTopDocsAsSeparateSearches() throws IOException {
+    try (Directory dir = new ByteBuffersDirectory()) {
+      try (IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()))) {
+        for (int i = 0; i < PLACES.length; i++) {
+          Document doc = new Document();
+          doc.add(new TextField("placename", PLACES[i][0], Field.Store.YES));
+          doc.add(new StringField("countrycode", PLACES[i][1], Field.Store.YES));
+          doc.add(new StringField("gazsource", PLACES[i][2], Field.Store.YES));
+          writer.addDocument(doc);
+          if (i % 3 == 2) {
+            // several segments
+            writer.commit();
+          }
+        }
+      }
+      try (DirectoryReader reader = DirectoryReader.open(dir)) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        Query name = new TermQuery(new Term("placename", "paris"));
+        List<Query> filters = List.of(
+            WhereClause.parse(" countrycode:us AND gazsource:usgs").toFilter(),
+            WhereClause.parse(" countrycode:fr AND gazsource:geonames").toFilter(),
+            WhereClause.parse(" countrycode:gb AND gazsource:geonames").toFilter(),
+            new MatchAllDocsQuery());
+
+        PerFilterTopDocsCollector collector = new PerFilterTopDocsCollector(searcher, filters, 2);
+        searcher.search(name, collector);
+
+        for (int i = 0; i < filters.size(); i++) {
+          Query separate = new BooleanQuery.Builder()
+              .add(name, BooleanClause.Occur.MUST)
+              .add(filters.get(i), BooleanClause.Occur.FILTER)
+              .build();
+          ScoreDoc[] expected = searcher.search(separate, 2).scoreDocs;
+          ScoreDoc[] actual = collector.topDocs(i);
+          assertEquals(expected.length, actual.length);
+          for (int j = 0; j < expected.length; j++) {
+            assertEquals(expected[j].doc, actual[j].doc);
+            assertEquals(expected[j].score, actual[j].score);
+          }
+        }
+        assertEquals(0, collector.topDocs(2).length);
+      }
+    }
+  }
+}
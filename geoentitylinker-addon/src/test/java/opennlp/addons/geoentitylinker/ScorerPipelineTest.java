@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import opennlp.addons.geoentitylinker.scoring.LinkedEntityScorer;
+import opennlp.tools.entitylinker.BaseLink;
+import opennlp.tools.entitylinker.LinkedSpan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScorerPipelineTest {
+
+  private static LinkedEntityScorer<BaseLink, AdminBoundaryContext> scorer(String key, double value) {
+    return (spans, docText, sentences, properties, context) -> {
+      for (LinkedSpan<BaseLink> span : spans) {
+        for (BaseLink link : span.getLinkedEntries()) {
+          link.getScoreMap().put(key, value);
+        }
+      }
+    };
+  }
+
+  private static List<LinkedSpan<BaseLink>> spans() {
+    List<LinkedSpan<BaseLink>> spans = new ArrayList<>();
+    for (int s = 0; s < 20; s++) {
+      ArrayList<BaseLink> entries = new ArrayList<>();
+      for (int e = 0; e < 10; e++) {
+        GazetteerEntry entry = new GazetteerEntry("us", s + "." + e, "fairfax", "ppl");
+        entry.getScoreMap().put("lucene", (double) e);
+        entries.add(entry);
+      }
+      spans.add(new LinkedSpan<>(entries, s, s + 1));
+    }
+    return spans;
+  }
+
+  @Test
+  public void testParallelScoresEqualSequentialScores() {
+    List<LinkedEntityScorer<? extends BaseLink, AdminBoundaryContext>> scorers =
+        List.of(scorer("a", 0.1), scorer("b", 0.2), scorer("c", 0.3), scorer("d", 0.4));
+    List<LinkedSpan<BaseLink>> sequential = spans();
+    List<LinkedSpan<BaseLink>> parallel = spans();
+    try (ScorerPipeline one = new ScorerPipeline(scorers, 0);
+         ScorerPipeline many = new ScorerPipeline(scorers, 3)) {
+      assertFalse(one.isParallel());
+      assertTrue(many.isParallel());
+      one.score(sequential, "", null, null, null);
+      many.score(parallel, "", null, null, null);
+    }
+    for (int s = 0; s < sequential.size(); s++) {
+      for (int e = 0; e < sequential.get(s).getLinkedEntries().size(); e++) {
+        Map<String, Double> expected = sequential.get(s).getLinkedEntries().get(e).getScoreMap();
+        assertEquals(5, expected.size());
+        assertEquals(expected, parallel.get(s).getLinkedEntries().get(e).getScoreMap());
+      }
+    }
+  }
+
+  @Test
+  public void testFailureOfAScorerIsRethrown() {
+    LinkedEntityScorer<BaseLink, AdminBoundaryContext> failing = (spans, docText, sentences, properties, context) -> {
+      throw new IllegalStateException("broken scorer");
+    };
+    try (ScorerPipeline pipeline = new ScorerPipeline(List.of(scorer("a", 1), failing), 2)) {
+      IllegalStateException ex = assertThrows(IllegalStateException.class,
+          () -> pipeline.score(spans(), "", null, null, null));
+      assertEquals("broken scorer", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testOptionalScorersAreSkippedOverBudget() {
+    List<LinkedEntityScorer<? extends BaseLink, AdminBoundaryContext>> scorers =
+        List.of(scorer("a", 0.1), scorer("costly", 0.2), scorer("c", 0.3));
+    boolean[] optional = {false, true, false};
+    for (int threads : new int[] {0, 2}) {
+      try (ScorerPipeline candidates = new ScorerPipeline(scorers, optional, threads, 0, 100);
+           ScorerPipeline time = new ScorerPipeline(scorers, optional, threads, 50, 0)) {
+        // 200 entries are over the candidate budget
+        List<LinkedSpan<BaseLink>> spans = spans();
+        candidates.score(spans, "", null, null, null);
+        Map<String, Double> scores = spans.get(0).getLinkedEntries().get(0).getScoreMap();
+        assertTrue(scores.containsKey("a") && scores.containsKey("c"));
+        assertFalse(scores.containsKey("costly"));
+
+        // linking started a second ago
+        spans = spans();
+        time.score(spans, "", null, null, null, System.nanoTime() - 1_000_000_000L);
+        assertFalse(spans.get(0).getLinkedEntries().get(0).getScoreMap().containsKey("costly"));
+
+        spans = spans();
+        time.score(spans, "", null, null, null);
+        assertTrue(spans.get(0).getLinkedEntries().get(0).getScoreMap().containsKey("costly"));
+      }
+    }
+  }
+}
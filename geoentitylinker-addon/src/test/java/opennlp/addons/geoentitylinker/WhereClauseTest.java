@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class WhereClauseTest {
+
+  @Test
+  public void testCountryAndSource() {
+    WhereClause clause = WhereClause.parse(" countrycode:us AND gazsource:usgs");
+    assertEquals(Map.of("countrycode", Set.of("us"), "gazsource", Set.of("usgs")), clause.terms());
+
+    Query filter = clause.toFilter();
+    BooleanQuery expected = new BooleanQuery.Builder()
+        .add(new TermInSetQuery("countrycode", List.of(new BytesRef("us"))), BooleanClause.Occur.FILTER)
+        .add(new TermInSetQuery("gazsource", List.of(new BytesRef("usgs"))), BooleanClause.Occur.FILTER)
+        .build();
+    assertEquals(expected, filter);
+  }
+
+  @Test
+  public void testAlternativeValues() {
+    WhereClause clause = WhereClause.parse(" gazsource:usgs geonames region ");
+    assertEquals(Map.of("gazsource", Set.of("usgs", "geonames", "region")), clause.terms());
+    // a single restriction needs no boolean wrapper, which keeps the cached filter minimal
+    assertEquals(new TermInSetQuery("gazsource",
+        List.of(new BytesRef("usgs"), new BytesRef("geonames"), new BytesRef("region"))), clause.toFilter());
+  }
+
+  @Test
+  public void testBlankClauseMatchesAll() {
+    assertInstanceOf(MatchAllDocsQuery.class, WhereClause.parse("  ").toFilter());
+  }
+
+  @Test
+  public void testUnsupportedSyntax() {
+    assertThrows(IllegalArgumentException.class, () -> WhereClause.parse("countrycode:us OR countrycode:ca"));
+    assertThrows(IllegalArgumentException.class, () -> WhereClause.parse("(countrycode:us)"));
+    assertThrows(IllegalArgumentException.class, () -> WhereClause.parse("usgs"));
+  }
+}
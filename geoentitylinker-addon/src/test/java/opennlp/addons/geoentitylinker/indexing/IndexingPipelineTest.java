@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker.indexing;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class IndexingPipelineTest {
+
+  private static BufferedReader lines(int count) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      sb.append("place").append(i).append('\n');
+    }
+    return new BufferedReader(new StringReader(sb.toString()));
+  }
+
+  @Test
+  public void testIndexesAllLinesWithSeveralThreads() throws IOException {
+    try (Directory dir = new ByteBuffersDirectory()) {
+      try (IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()))) {
+        IndexingPipeline pipeline = new IndexingPipeline(writer, 3);
+        pipeline.setBatchSize(7);
+        long rows = pipeline.run(lines(1000), line -> {
+          if (line.endsWith("0")) {
+            // skipped lines are not indexed
+            return null;
+          }
+          Document doc = new Document();
+          doc.add(new StringField("placename", line, Field.Store.YES));
+          return doc;
+        }, "test");
+        assertEquals(1000, rows);
+        writer.commit();
+      }
+      try (DirectoryReader reader = DirectoryReader.open(dir)) {
+        assertEquals(900, reader.numDocs());
+      }
+    }
+  }
+
+  private static Document place(String line) {
+    Document doc = new Document();
+    doc.add(new StringField("placename", line, Field.Store.YES));
+    return doc;
+  }
+
+  @Test
+  public void testResumeFromCheckpoint() throws IOException {
+    try (Directory dir = new ByteBuffersDirectory()) {
+      IndexWriter crashed = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()));
+      IndexingPipeline pipeline = new IndexingPipeline(crashed, 2);
+      pipeline.setBatchSize(30);
+      pipeline.setCheckpoint(IndexCheckpoint.load(crashed), 200);
+      assertThrows(IOException.class, () -> pipeline.run(lines(1000), line -> {
+        if (line.equals("place550")) {
+          throw new IOException("disk full");
+        }
+        return place(line);
+      }, "test"));
+      // everything after the last checkpoint is lost
+      crashed.rollback();
+
+      Set<String> seen = ConcurrentHashMap.newKeySet();
+      try (IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()))) {
+        IndexCheckpoint checkpoint = IndexCheckpoint.load(writer);
+        assertEquals(400, checkpoint.getCommittedRows("test"));
+        IndexingPipeline resumed = new IndexingPipeline(writer, 2);
+        resumed.setCheckpoint(checkpoint, 200);
+        resumed.run(lines(1000), line -> {
+          // committed rows are passed to the builder again, but not indexed again
+          seen.add(line);
+          return place(line);
+        }, "test");
+        checkpoint.commitCompleted("test");
+      }
+      assertEquals(1000, seen.size());
+      try (DirectoryReader reader = DirectoryReader.open(dir)) {
+        assertEquals(1000, reader.numDocs());
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < reader.maxDoc(); i++) {
+          names.add(reader.document(i).get("placename"));
+        }
+        assertEquals(1000, names.size());
+      }
+    }
+  }
+
+  @Test
+  public void testBuilderFailureStopsPipeline() throws IOException {
+    try (Directory dir = new ByteBuffersDirectory();
+         IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer()))) {
+      IndexingPipeline pipeline = new IndexingPipeline(writer, 2);
+      pipeline.setBatchSize(10);
+      IOException ex = assertThrows(IOException.class, () -> pipeline.run(lines(100_000), line -> {
+        throw new ArrayIndexOutOfBoundsException("malformed line " + line);
+      }, "test"));
+      assertEquals(ArrayIndexOutOfBoundsException.class, ex.getCause().getClass());
+    }
+  }
+}
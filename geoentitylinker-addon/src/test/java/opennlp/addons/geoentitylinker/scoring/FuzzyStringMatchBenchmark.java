@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker.scoring;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the string similarities of the {@link FuzzyStringMatchScorer} with
+ * the implementations they replaced: the full matrix Levenshtein distance and
+ * the Dice coefficient over split strings. The {@code short} pair is a search
+ * term and a hierarchy, as the scorer compares them, its distance is computed
+ * with Myers' bit-parallel algorithm. The strings of the {@code long} pair are
+ * longer than 64 chars, so its distance is computed with two rows.
+ * <p>
+ * Not run by the tests. Run it with {@code org.openjdk.jmh.Main} on the test
+ * class path, or with the {@link #main(String[])} method.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FuzzyStringMatchBenchmark {
+
+  @Param({"short", "long"})
+  public String pair;
+
+  private final FuzzyStringMatchScorer scorer = new FuzzyStringMatchScorer();
+  private String s1;
+  private String s2;
+
+  @Setup
+  public void setup() {
+    if (pair.equals("short")) {
+      s1 = "springfield";
+      s2 = "united states, illinois, sangamon county, springfield";
+    } else {
+      s1 = "united states of america, commonwealth of massachusetts, hampden county, springfield";
+      s2 = "united states of america, state of illinois, sangamon county, city of springfield";
+    }
+  }
+
+  @Benchmark
+  public int levenshteinMatrix() {
+    return FuzzyStringMatchScorerTest.matrixDistance(s1, s2);
+  }
+
+  @Benchmark
+  public int levenshtein() {
+    return scorer.getLevenshteinDistance(s1, s2);
+  }
+
+  @Benchmark
+  public int levenshteinBanded() {
+    return scorer.getLevenshteinDistance(s1, s2, 3);
+  }
+
+  @Benchmark
+  public double diceSplit() {
+    return FuzzyStringMatchScorerTest.splitDice(s1, s2);
+  }
+
+  @Benchmark
+  public double dice() {
+    return scorer.getDiceCoefficient(s1, s2, 2);
+  }
+
+  public static void main(String[] args) throws Exception {
+    org.openjdk.jmh.Main.main(new String[] {FuzzyStringMatchBenchmark.class.getSimpleName()});
+  }
+}
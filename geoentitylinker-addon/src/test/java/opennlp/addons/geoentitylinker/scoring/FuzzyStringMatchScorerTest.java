@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker.scoring;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FuzzyStringMatchScorerTest {
+
+  private final FuzzyStringMatchScorer scorer = new FuzzyStringMatchScorer();
+
+  /**
+   * The full matrix version the scorer used before, also the baseline of the
+   * {@link FuzzyStringMatchBenchmark}.
+   */
+  static int matrixDistance(CharSequence str1, CharSequence str2) {
+    int[][] distance = new int[str1.length() + 1][str2.length() + 1];
+    for (int i = 0; i <= str1.length(); i++) {
+      distance[i][0] = i;
+    }
+    for (int j = 1; j <= str2.length(); j++) {
+      distance[0][j] = j;
+    }
+    for (int i = 1; i <= str1.length(); i++) {
+      for (int j = 1; j <= str2.length(); j++) {
+        distance[i][j] = Math.min(Math.min(distance[i - 1][j] + 1, distance[i][j - 1] + 1),
+            distance[i - 1][j - 1] + ((str1.charAt(i - 1) == str2.charAt(j - 1)) ? 0 : 1));
+      }
+    }
+    return distance[str1.length()][str2.length()];
+  }
+
+  /**
+   * The regex split version the scorer used before, also the baseline of the
+   * {@link FuzzyStringMatchBenchmark}.
+   */
+  static double splitDice(String s1, String s2) {
+    if (s1.isEmpty() || s2.isEmpty()) {
+      return 0d;
+    }
+    List<String> s1Grams = new ArrayList<>();
+    List<String> s2Grams = new ArrayList<>();
+    for (String token : s1.split("[ ,]")) {
+      if (!token.trim().isEmpty()) {
+        s1Grams.add(token);
+      }
+    }
+    for (String token : s2.split("[ ,]")) {
+      if (!token.trim().isEmpty()) {
+        s2Grams.add(token);
+      }
+    }
+    Set<String> overlap = new HashSet<>(s1Grams);
+    overlap.retainAll(s2Grams);
+    return (2d * overlap.size()) / (s1Grams.size() + s2Grams.size());
+  }
+
+  private static String randomText(Random random, String alphabet, int maxLength) {
+    StringBuilder text = new StringBuilder();
+    int length = random.nextInt(maxLength + 1);
+    for (int i = 0; i < length; i++) {
+      text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return text.toString();
+  }
+
+  @Test
+  public void testLevenshteinEqualsFullMatrix() {
+    Random random = new Random(7);
+    String alphabet = "abcde é中🌍";
+    for (int round = 0; round < 2000; round++) {
+      // lengths around 64 switch between the bit-parallel and the two-row version
+      String s1 = randomText(random, alphabet, round % 3 == 0 ? 150 : 70);
+      String s2 = randomText(random, alphabet, 70);
+      int expected = matrixDistance(s1, s2);
+      assertEquals(expected, scorer.getLevenshteinDistance(s1, s2), s1 + " / " + s2);
+      assertEquals(expected, scorer.getLevenshteinDistance(s2, s1));
+      int threshold = random.nextInt(40);
+      assertEquals(expected <= threshold ? expected : -1, scorer.getLevenshteinDistance(s1, s2, threshold));
+    }
+  }
+
+  @Test
+  public void testLevenshteinExamples() {
+    assertEquals(3, scorer.getLevenshteinDistance("kitten", "sitting"));
+    assertEquals(0, scorer.getLevenshteinDistance("", ""));
+    assertEquals(4, scorer.getLevenshteinDistance("", "four"));
+    assertEquals(-1, scorer.getLevenshteinDistance("kitten", "sitting", 2));
+    assertEquals(3, scorer.getLevenshteinDistance("kitten", "sitting", 3));
+  }
+
+  @Test
+  public void testDiceEqualsRegexSplit() {
+    Random random = new Random(11);
+    String alphabet = "ab ,\t";
+    for (int round = 0; round < 2000; round++) {
+      String s1 = randomText(random, alphabet, 20);
+      String s2 = randomText(random, alphabet, 20);
+      assertEquals(splitDice(s1, s2), scorer.getDiceCoefficient(s1, s2, 2), s1 + " / " + s2);
+    }
+    assertEquals(2d * 2 / 7, scorer.getDiceCoefficient("fairfax, virginia", "fairfax, fairfax county, virginia, us", 2));
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker.scoring;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import opennlp.addons.geoentitylinker.MentionIndex;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MentionProximityTest {
+
+  /**
+   * The per mention computation the proximity scorers used before, with the
+   * distances of each code as a list.
+   */
+  private static double expectedScore(Map<String, Set<Integer>> mentions, String code, int position) {
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (Set<Integer> offsets : mentions.values()) {
+      for (int offset : offsets) {
+        min = Math.min(min, Math.abs(position - offset));
+        max = Math.max(max, Math.abs(position - offset));
+      }
+    }
+    if (min == max) {
+      min = 0;
+    }
+    List<Double> reversed = new ArrayList<>();
+    for (int offset : mentions.get(code)) {
+      double norm = (double) (Math.abs(position - offset) - min) / (max - min);
+      reversed.add(Math.abs(norm - 1));
+    }
+    Collections.sort(reversed);
+    List<Double> window = new ArrayList<>();
+    if (reversed.size() < 3) {
+      window.addAll(reversed);
+    } else {
+      for (int i = 0; i < reversed.size() - 1; i++) {
+        window.add((reversed.get(i) + reversed.get(i + 1)) / 2);
+      }
+    }
+    double sum = 0d;
+    for (double d : window) {
+      sum += d;
+    }
+    return sum / window.size();
+  }
+
+  @Test
+  public void testScoresEqualPerMentionComputation() {
+    Random random = new Random(23);
+    for (int round = 0; round < 500; round++) {
+      Map<String, Set<Integer>> mentions = new LinkedHashMap<>();
+      int codes = 1 + random.nextInt(5);
+      for (int c = 0; c < codes; c++) {
+        Set<Integer> offsets = new HashSet<>();
+        int count = 1 + random.nextInt(8);
+        for (int i = 0; i < count; i++) {
+          offsets.add(random.nextInt(5000));
+        }
+        mentions.put("c" + c, offsets);
+      }
+      MentionIndex index = MentionIndex.of(mentions);
+      int position = random.nextInt(6000);
+      double[] scores = MentionProximity.scores(index, position);
+      for (String code : mentions.keySet()) {
+        int i = index.indexOf(code);
+        assertEquals(mentions.get(code).size(), index.mentions(i));
+        assertEquals(mentions.get(code).stream().mapToLong(o -> Math.abs(position - o)).sum(),
+            index.distanceSum(i, position));
+        assertEquals(mentions.get(code).stream().mapToInt(o -> Math.abs(position - o)).min().getAsInt(),
+            index.nearestDistance(i, position));
+        assertEquals(expectedScore(mentions, code, position), scores[i], 1e-9);
+      }
+    }
+  }
+
+  @Test
+  public void testIndex() {
+    Map<String, Set<Integer>> mentions = new LinkedHashMap<>();
+    mentions.put("us", Set.of(10, 500, 40));
+    mentions.put("ca", Set.of());
+    mentions.put("de", Set.of(300, 200, 100));
+    MentionIndex index = MentionIndex.of(mentions);
+
+    assertEquals(2, index.size());
+    assertEquals(-1, index.indexOf("ca"));
+    assertEquals("us", index.dominantCode());
+    assertEquals(40, index.nearestDistance(index.indexOf("de"), 160));
+    assertEquals(140, index.farthestDistance(index.indexOf("de"), 160));
+    assertEquals(60 + 40 + 140, index.distanceSum(index.indexOf("de"), 160));
+    assertEquals("", MentionIndex.of(Map.of()).dominantCode());
+  }
+}
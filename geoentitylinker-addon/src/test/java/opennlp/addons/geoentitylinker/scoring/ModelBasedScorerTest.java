@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker.scoring;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import opennlp.addons.geoentitylinker.GazetteerEntry;
+import opennlp.tools.doccat.DoccatFactory;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.doccat.DocumentSample;
+import opennlp.tools.entitylinker.BaseLink;
+import opennlp.tools.entitylinker.EntityLinkerProperties;
+import opennlp.tools.entitylinker.LinkedSpan;
+import opennlp.tools.util.ObjectStreamUtils;
+import opennlp.tools.util.Span;
+import opennlp.tools.util.TrainingParameters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ModelBasedScorerTest {
+
+  @TempDir
+  Path tempDir;
+
+  private EntityLinkerProperties properties() throws IOException {
+    TrainingParameters params = TrainingParameters.defaultParams();
+    params.put(TrainingParameters.CUTOFF_PARAM, 0);
+    params.put(TrainingParameters.ITERATIONS_PARAM, 10);
+    DoccatModel model = DocumentCategorizerME.train("en", ObjectStreamUtils.createObjectStream(
+        new DocumentSample("us", new String[] {"virginia fairfax washington"}),
+        new DocumentSample("us", new String[] {"texas austin"}),
+        new DocumentSample("de", new String[] {"bavaria munich berlin"}),
+        new DocumentSample("de", new String[] {"hessen frankfurt"})), params, new DoccatFactory());
+    Path path = tempDir.resolve("doccat.bin");
+    model.serialize(path);
+    String props = "opennlp.geoentitylinker.modelbasedscorer.modelpath=" + path.toString().replace("\\", "/");
+    return new EntityLinkerProperties(new ByteArrayInputStream(props.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static LinkedSpan<BaseLink> span(int sentence, String... countryCodes) {
+    ArrayList<BaseLink> entries = new ArrayList<>();
+    for (String code : countryCodes) {
+      entries.add(new GazetteerEntry(code, code + sentence, "place", "ppl"));
+    }
+    LinkedSpan<BaseLink> span = new LinkedSpan<>(entries, 0, 1);
+    span.setSentenceid(sentence);
+    return span;
+  }
+
+  @Test
+  public void testSpansOfASentenceShareTheirScores() throws IOException {
+    EntityLinkerProperties properties = properties();
+    ModelBasedScorer scorer = new ModelBasedScorer();
+    scorer.init(properties);
+    assertTrue(scorer.modelexists);
+    assertNotNull(scorer.doccatModel);
+
+    String docText = "The county board met in fairfax on monday. Later the team flew to munich for the game.";
+    Span[] sentences = {new Span(0, 42), new Span(43, docText.length())};
+    List<LinkedSpan<BaseLink>> spans = List.of(span(0, "us", "de"), span(0, "us", "fr"), span(1, "us", "de"));
+    scorer.score(spans, docText, sentences, properties, null);
+
+    DocumentCategorizerME categorizer = new DocumentCategorizerME(scorer.doccatModel);
+    for (LinkedSpan<BaseLink> span : spans) {
+      int start = sentences[span.getSentenceid()].getStart();
+      double[] expected = categorizer.categorize(
+          new String[] {scorer.getTextChunk(start, docText, ModelBasedScorer.RADIUS)});
+      for (BaseLink link : span.getLinkedEntries()) {
+        int category = categorizer.getIndex(link.getItemParentID());
+        assertEquals(category < 0 ? 0d : expected[category], link.getScoreMap().get("countrymodel"));
+      }
+    }
+    assertEquals(0d, spans.get(1).getLinkedEntries().get(1).getScoreMap().get("countrymodel"));
+  }
+
+  @Test
+  public void testWithoutModelNothingIsScored() throws IOException {
+    EntityLinkerProperties properties = new EntityLinkerProperties(new ByteArrayInputStream(new byte[0]));
+    ModelBasedScorer scorer = new ModelBasedScorer();
+    scorer.init(properties);
+    List<LinkedSpan<BaseLink>> spans = List.of(span(0, "us"));
+    scorer.score(spans, "fairfax", new Span[] {new Span(0, 7)}, properties, null);
+    assertTrue(spans.get(0).getLinkedEntries().get(0).getScoreMap().isEmpty());
+  }
+}
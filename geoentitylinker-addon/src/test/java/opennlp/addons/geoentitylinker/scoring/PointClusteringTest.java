@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker.scoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.spatial4j.core.io.GeohashUtils;
+import org.junit.jupiter.api.Test;
+
+import opennlp.addons.geoentitylinker.GazetteerEntry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class PointClusteringTest {
+
+  private final PointClustering clustering = new PointClustering();
+
+  /**
+   * Also used by the tests of the other scorers that work on coordinates.
+   */
+  static GazetteerEntry entry(int id, Double lat, Double lon) {
+    GazetteerEntry entry = new GazetteerEntry("us", String.valueOf(id), "place " + id, "ppl");
+    entry.setLatitude(lat);
+    entry.setLongitude(lon);
+    return entry;
+  }
+
+  @Test
+  public void testLongGeoHashEqualsSpatial4j() {
+    Random random = new Random(3);
+    double[][] points = {{0, 0}, {90, 180}, {-90, -180}, {45, 90}, {-45, -90}, {38.8462, -77.3064}};
+    for (double[] point : points) {
+      long geohash = PointClustering.geoHashLong(point[0], point[1]);
+      assertEquals(GeohashUtils.encodeLatLon(point[0], point[1]),
+          PointClustering.geoHashString(geohash, PointClustering.MAX_PRECISION));
+    }
+    for (int i = 0; i < 10000; i++) {
+      double lat = random.nextDouble() * 180 - 90;
+      double lon = random.nextDouble() * 360 - 180;
+      long geohash = PointClustering.geoHashLong(lat, lon);
+      String expected = GeohashUtils.encodeLatLon(lat, lon);
+      assertEquals(expected, PointClustering.geoHashString(geohash, PointClustering.MAX_PRECISION));
+      int precision = random.nextInt(PointClustering.MAX_PRECISION + 1);
+      assertEquals(expected.substring(0, precision),
+          PointClustering.geoHashString(PointClustering.prefix(geohash, precision) << 5
+              * (PointClustering.MAX_PRECISION - precision), precision));
+    }
+  }
+
+  @Test
+  public void testBinScoresEqualStringClusters() {
+    Random random = new Random(5);
+    for (int round = 0; round < 20; round++) {
+      List<GazetteerEntry> expected = new ArrayList<>();
+      List<GazetteerEntry> actual = new ArrayList<>();
+      for (int i = 0; i < 2000; i++) {
+        // points in a few regions, so the bins have different sizes
+        double lat = 10 * random.nextInt(3) + random.nextDouble() * 4;
+        double lon = 10 * random.nextInt(4) + random.nextDouble() * 4;
+        expected.add(entry(i, lat, lon));
+        actual.add(entry(i, lat, lon));
+      }
+      int precision = 1 + round % 4;
+      clustering.scoreClusters(clustering.cluster(expected, precision));
+      clustering.scoreClusters(actual, precision);
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).getScoreMap().get("geohashbin"), actual.get(i).getScoreMap().get("geohashbin"));
+      }
+    }
+  }
+
+  @Test
+  public void testMultiplePrecisionsFromOneEncoding() {
+    List<GazetteerEntry> entries = List.of(entry(0, 38.85, -77.31), entry(1, 38.86, -77.30),
+        entry(2, 38.0, -77.0), entry(3, -33.9, 151.2), entry(4, null, null));
+    long[] geohashes = clustering.geoHashes(entries);
+    assertEquals(-1L, geohashes[4]);
+    assertEquals(List.of(3, 3, 3, 1, 0), asList(clustering.binSizes(geohashes, 1)));
+    assertEquals(List.of(2, 2, 1, 1, 0), asList(clustering.binSizes(geohashes, 5)));
+
+    clustering.scoreClusters(entries, 5);
+    assertEquals(1d, entries.get(0).getScoreMap().get("geohashbin"));
+    assertEquals(0.5, entries.get(3).getScoreMap().get("geohashbin"));
+    assertFalse(entries.get(4).getScoreMap().containsKey("geohashbin"));
+  }
+
+  private static List<Integer> asList(int[] values) {
+    List<Integer> list = new ArrayList<>();
+    for (int value : values) {
+      list.add(value);
+    }
+    return list;
+  }
+}
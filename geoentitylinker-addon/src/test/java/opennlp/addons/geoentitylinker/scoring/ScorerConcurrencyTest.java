@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker.scoring;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import opennlp.addons.geoentitylinker.AdminBoundaryContext;
+import opennlp.addons.geoentitylinker.AdminBoundaryContextGenerator;
+import opennlp.addons.geoentitylinker.GazetteerEntry;
+import opennlp.tools.doccat.DoccatFactory;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.doccat.DocumentSample;
+import opennlp.tools.entitylinker.BaseLink;
+import opennlp.tools.entitylinker.EntityLinkerProperties;
+import opennlp.tools.entitylinker.LinkedSpan;
+import opennlp.tools.util.ObjectStreamUtils;
+import opennlp.tools.util.Span;
+import opennlp.tools.util.TrainingParameters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * The scorers are shared by all the documents that are linked at the same
+ * time, so scoring the same spans from several threads has to give the scores
+ * of a single-threaded run.
+ */
+public class ScorerConcurrencyTest {
+
+  private static final String[] TEXTS = {
+      "The county board met in fairfax, virginia on monday. Later the team flew to paris in france for the game.",
+      "Springfield is a city in the united states. It is not far from virginia. Munich is in bavaria.",
+      "Lyon and paris are in france. The delegation then went on to maryland and fairfax county."
+  };
+
+  @TempDir
+  Path tempDir;
+
+  private EntityLinkerProperties properties() throws IOException {
+    TrainingParameters params = TrainingParameters.defaultParams();
+    params.put(TrainingParameters.CUTOFF_PARAM, 0);
+    params.put(TrainingParameters.ITERATIONS_PARAM, 10);
+    DoccatModel model = DocumentCategorizerME.train("en", ObjectStreamUtils.createObjectStream(
+        new DocumentSample("us", new String[] {"virginia fairfax washington"}),
+        new DocumentSample("us", new String[] {"maryland springfield"}),
+        new DocumentSample("fr", new String[] {"france paris lyon"}),
+        new DocumentSample("de", new String[] {"bavaria munich berlin"})), params, new DoccatFactory());
+    Path modelFile = tempDir.resolve("doccat.bin");
+    model.serialize(modelFile);
+
+    Path contextFile = tempDir.resolve("countrycontext.txt");
+    Files.write(contextFile, List.of(
+        "cc\tprov\tcounty\tcountry\tprovince\tcountyname\tcountryregex\tprovregex\tcountyregex",
+        "us\tva\t059\tunited states\tvirginia\tfairfax county\t(united states|u\\.s\\.a\\.)\tvirginia\tfairfax county",
+        "us\tmd\tNO_DATA_FOUND\tunited states\tmaryland\tNO_DATA_FOUND\t(united states|u\\.s\\.a\\.)\tmaryland\tNO_DATA_FOUND",
+        "fr\t11\tNO_DATA_FOUND\tfrance\tile-de-france\tNO_DATA_FOUND\t(france)\tile-de-france\tNO_DATA_FOUND"), StandardCharsets.UTF_8);
+
+    String props = "opennlp.geoentitylinker.modelbasedscorer.modelpath=" + modelFile.toString().replace("\\", "/") + "\n"
+        + "opennlp.geoentitylinker.countrycontext.filepath=" + contextFile.toString().replace("\\", "/") + "\n";
+    return new EntityLinkerProperties(new ByteArrayInputStream(props.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static Span[] sentences(String text) {
+    List<Span> sentences = new ArrayList<>();
+    int start = 0;
+    for (int end = text.indexOf(". "); end >= 0; end = text.indexOf(". ", start)) {
+      sentences.add(new Span(start, end + 1));
+      start = end + 2;
+    }
+    sentences.add(new Span(start, text.length()));
+    return sentences.toArray(new Span[0]);
+  }
+
+  private static GazetteerEntry entry(String countryCode, String provinceCode, String name) {
+    GazetteerEntry entry = new GazetteerEntry(countryCode, countryCode + "." + name, name, "ppl");
+    entry.setProvinceCode(provinceCode);
+    return entry;
+  }
+
+  /**
+   * The same candidates for every sentence, so the scores only differ by the
+   * position of the sentence and the mentions of the document.
+   */
+  private static List<LinkedSpan<BaseLink>> spans(Span[] sentences) {
+    List<LinkedSpan<BaseLink>> spans = new ArrayList<>();
+    for (int sentence = 0; sentence < sentences.length; sentence++) {
+      ArrayList<BaseLink> entries = new ArrayList<>();
+      entries.add(entry("us", "us.va", "fairfax"));
+      entries.add(entry("us", "us.va", "virginia"));
+      entries.add(entry("us", "us.md", "springfield"));
+      entries.add(entry("fr", "fr.11", "paris"));
+      entries.add(entry("fr", "fr.11", "france"));
+      entries.add(entry("de", "de.02", "munich"));
+      LinkedSpan<BaseLink> span = new LinkedSpan<>(entries, 0, 1);
+      span.setSentenceid(sentence);
+      spans.add(span);
+    }
+    return spans;
+  }
+
+  private static List<Map<String, Double>> score(List<LinkedEntityScorer<BaseLink, AdminBoundaryContext>> scorers,
+                                                 AdminBoundaryContextGenerator generator,
+                                                 EntityLinkerProperties properties, String text) {
+    Span[] sentences = sentences(text);
+    List<LinkedSpan<BaseLink>> spans = spans(sentences);
+    AdminBoundaryContext context = generator.getContext(text);
+    for (LinkedEntityScorer<BaseLink, AdminBoundaryContext> scorer : scorers) {
+      scorer.score(spans, text, sentences, properties, context);
+    }
+    List<Map<String, Double>> scores = new ArrayList<>();
+    for (LinkedSpan<BaseLink> span : spans) {
+      for (BaseLink link : span.getLinkedEntries()) {
+        scores.add(new HashMap<>(link.getScoreMap()));
+      }
+    }
+    return scores;
+  }
+
+  @Test
+  public void testConcurrentScoringGivesTheSingleThreadedScores() throws Exception {
+    EntityLinkerProperties properties = properties();
+    AdminBoundaryContextGenerator generator = new AdminBoundaryContextGenerator(properties);
+    ModelBasedScorer modelScorer = new ModelBasedScorer();
+    modelScorer.init(properties);
+    List<LinkedEntityScorer<BaseLink, AdminBoundaryContext>> scorers =
+        List.of(new CountryProximityScorer(), new ProvinceProximityScorer(), modelScorer);
+
+    List<List<Map<String, Double>>> expected = new ArrayList<>();
+    for (String text : TEXTS) {
+      List<Map<String, Double>> scores = score(scorers, generator, properties, text);
+      for (Map<String, Double> score : scores) {
+        assertEquals(3, score.size(), score.toString());
+      }
+      expected.add(scores);
+    }
+    // the documents differ in their mentions, so a mixed up context would show
+    assertFalse(expected.get(0).equals(expected.get(1)));
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        int offset = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 100; i++) {
+            int doc = (i + offset) % TEXTS.length;
+            assertEquals(expected.get(doc), score(scorers, generator, properties, TEXTS[doc]));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker.scoring;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import opennlp.addons.geoentitylinker.GazetteerEntry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SlotScoreMapTest {
+
+  @Test
+  public void testSlotsAndKeysAreTheSameScores() {
+    SlotScoreMap scores = new SlotScoreMap();
+    scores.put(ScoreRegistry.TYPESCORE, 0.5);
+    scores.put("countrycontext", 0.25);
+
+    assertEquals(0.5, scores.get("typescore"));
+    assertEquals(0.25, scores.get(ScoreRegistry.COUNTRYCONTEXT, -1d));
+    assertEquals(-1d, scores.get(ScoreRegistry.GEOHASHBIN, -1d));
+    assertFalse(scores.has(ScoreRegistry.GEOHASHBIN));
+    assertNull(scores.get("geohashbin"));
+    assertNull(scores.get("never registered"));
+    assertEquals(2, scores.size());
+  }
+
+  @Test
+  public void testMapViewBehavesLikeAHashMap() {
+    Map<String, Double> expected = new HashMap<>();
+    SlotScoreMap scores = new SlotScoreMap();
+    String[] keys = {"lucene", "normlucene", "typescore", "a custom score", "another custom score"};
+    for (int i = 0; i < 20; i++) {
+      String key = keys[(i * 7) % keys.length];
+      assertEquals(expected.put(key, (double) i), scores.put(key, (double) i));
+      if (i % 3 == 0) {
+        String removed = keys[i % keys.length];
+        assertEquals(expected.remove(removed), scores.remove(removed));
+      }
+      assertEquals(expected, scores);
+      assertEquals(expected.hashCode(), scores.hashCode());
+    }
+    assertTrue(scores.containsKey("a custom score"));
+    assertEquals(ScoreRegistry.find("a custom score"), ScoreRegistry.slot("a custom score"));
+
+    Iterator<Map.Entry<String, Double>> entries = scores.entrySet().iterator();
+    while (entries.hasNext()) {
+      entries.next();
+      entries.remove();
+    }
+    assertTrue(scores.isEmpty());
+  }
+
+  @Test
+  public void testNullScoreRemovesTheScore() {
+    SlotScoreMap scores = new SlotScoreMap();
+    scores.put("typescore", 0.5);
+    assertEquals(0.5, scores.put("typescore", null));
+    assertFalse(scores.containsKey("typescore"));
+    assertNull(scores.put("typescore", null));
+
+    Map<String, Double> withNull = new HashMap<>();
+    withNull.put("typescore", null);
+    withNull.put("fuzzyscore", 0.25);
+    assertEquals(Map.of("fuzzyscore", 0.25), new SlotScoreMap(withNull));
+  }
+
+  @Test
+  public void testReadsWhileTheMapGrows() throws Exception {
+    SlotScoreMap scores = new SlotScoreMap();
+    int first = ScoreRegistry.size() + 64;
+    int last = first + 2000;
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      Future<?> writer = executor.submit(() -> {
+        for (int slot = first; slot <= last; slot++) {
+          scores.put(slot, slot);
+        }
+      });
+      List<Future<?>> readers = new ArrayList<>();
+      for (int r = 0; r < 2; r++) {
+        readers.add(executor.submit(() -> {
+          while (!writer.isDone()) {
+            for (int slot = first; slot <= last; slot += 7) {
+              double score = scores.get(slot, -1d);
+              assertTrue(score == -1d || score == slot);
+            }
+          }
+          return null;
+        }));
+      }
+      writer.get();
+      for (Future<?> reader : readers) {
+        reader.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(last, scores.get(last, -1d));
+  }
+
+  @Test
+  public void testScoreRegistryFallsBackToOtherMaps() {
+    GazetteerEntry entry = new GazetteerEntry("us", "1", "fairfax", "ppl");
+    assertTrue(entry.getScoreMap() instanceof SlotScoreMap);
+    entry.setScoreMap(new HashMap<>(entry.getScoreMap()));
+    ScoreRegistry.put(entry, ScoreRegistry.PROVINCECONTEXT, 0.75);
+    assertEquals(0.75, entry.getScoreMap().get("provincecontext"));
+    assertEquals(0.75, ScoreRegistry.get(entry, ScoreRegistry.PROVINCECONTEXT, 0d));
+    assertEquals(0d, ScoreRegistry.get(entry, ScoreRegistry.TYPESCORE, 0d));
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package opennlp.addons.geoentitylinker.scoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import opennlp.addons.geoentitylinker.GazetteerEntry;
+import opennlp.tools.entitylinker.LinkedSpan;
+
+import static opennlp.addons.geoentitylinker.scoring.PointClusteringTest.entry;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class SpatialDensityScorerTest {
+
+  private final SpatialDensityScorer scorer = new SpatialDensityScorer();
+
+  private static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a = Math.pow(Math.sin(dLat / 2), 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+    return 2 * 6371.0088 * Math.asin(Math.sqrt(a));
+  }
+
+  @Test
+  public void testNeighborsEqualPairwiseGreatCircleDistances() {
+    Random random = new Random(17);
+    for (int round = 0; round < 20; round++) {
+      List<GazetteerEntry> entries = new ArrayList<>();
+      int n = 1 + random.nextInt(800);
+      for (int i = 0; i < n; i++) {
+        // some clusters, some points spread over the globe, some duplicates
+        if (i % 4 == 0) {
+          entries.add(entry(i, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+        } else if (i % 7 == 0) {
+          entries.add(entry(i, entries.get(i - 1).getLatitude(), entries.get(i - 1).getLongitude()));
+        } else {
+          int cluster = random.nextInt(3);
+          entries.add(entry(i, 10 * cluster + random.nextGaussian(), 179.5 * (cluster - 1) + random.nextGaussian()));
+        }
+      }
+      double radiusKm = 10 + random.nextInt(500);
+
+      int[] expected = new int[n];
+      for (int i = 0; i < n; i++) {
+        for (int j = 0; j < n; j++) {
+          double km = haversineKm(entries.get(i).getLatitude(), entries.get(i).getLongitude(),
+              entries.get(j).getLatitude(), entries.get(j).getLongitude());
+          if (i != j && km <= radiusKm) {
+            expected[i]++;
+          }
+        }
+      }
+      int[] actual = scorer.countNeighbors(entries, radiusKm);
+      for (int i = 0; i < n; i++) {
+        // the chord and the haversine distance may round differently right at the radius
+        assertEquals(expected[i], actual[i], 1 + expected[i] / 100);
+      }
+    }
+  }
+
+  @Test
+  public void testScoresAreRelativeToTheDensestPoint() {
+    GazetteerEntry fairfax = entry(0, 38.8462, -77.3064);
+    GazetteerEntry washington = entry(1, 38.9072, -77.0369);
+    GazetteerEntry arlington = entry(2, 38.8816, -77.0910);
+    GazetteerEntry sydney = entry(3, -33.8688, 151.2093);
+    GazetteerEntry unknown = entry(4, null, null);
+    List<LinkedSpan<GazetteerEntry>> spans = List.of(
+        new LinkedSpan<>(new ArrayList<>(List.of(fairfax, sydney)), 0, 1),
+        new LinkedSpan<>(new ArrayList<>(List.of(washington, arlington, unknown)), 2, 3));
+
+    assertArrayEquals(new int[] {1, 1}, scorer.countNeighbors(List.of(fairfax, sydney), 20000));
+    assertArrayEquals(new int[] {0, 0}, scorer.countNeighbors(List.of(fairfax, sydney), 10000));
+    scorer.score(spans, "", null, null, null);
+    assertEquals(1d, fairfax.getScoreMap().get("spatialdensity"));
+    assertEquals(1d, washington.getScoreMap().get("spatialdensity"));
+    assertEquals(0d, sydney.getScoreMap().get("spatialdensity"));
+    assertFalse(unknown.getScoreMap().containsKey("spatialdensity"));
+  }
+}